@@ -0,0 +1,151 @@
+package util.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Measures how long it takes to turn a row of doubles into a CSV line, comparing the
+ * old Double.toString() path against CsvSink formatting into a byte array, with and
+ * without rounding. Output is thrown away so only the formatting is timed. Run with
+ * the library on the classpath:
+ * <br>
+ * <br>
+ * java -cp ... util.logging.CsvFormatBench [fields] [rows]
+ */
+public class CsvFormatBench {
+
+	/**
+	 * Output that throws away everything written to it, but counts the bytes
+	 */
+	static class NullOutput extends LogOutput {
+		long bytes = 0;
+
+		@Override
+		public void write(int b) {
+			bytes++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			bytes += len;
+		}
+
+		@Override
+		public void sync() {
+		}
+	}
+
+	interface Row {
+		void write(int index) throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int fieldCount = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		int rows = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+		// A mix of what robot code logs, noisy sensors, setpoints and booleans
+		Random random = new Random(955);
+		double[][] data = new double[1024][fieldCount];
+		for (double[] row : data) {
+			for (int i = 0; i < fieldCount; i++) {
+				switch (i % 3) {
+					case 0:
+						row[i] = random.nextGaussian() * 100;
+						break;
+					case 1:
+						row[i] = Math.round(random.nextDouble() * 1000) / 100.0;
+						break;
+					default:
+						row[i] = random.nextBoolean() ? 1.0 : 0.0;
+						break;
+				}
+			}
+		}
+
+		// CsvSink is handed the bits of each value, as DataLogger samples them
+		long[][] bits = new long[data.length][fieldCount];
+		for (int row = 0; row < data.length; row++) {
+			for (int i = 0; i < fieldCount; i++) {
+				bits[row][i] = LogFieldType.bitsOf(data[row][i]);
+			}
+		}
+
+		String[] names = new String[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			names[i] = "field" + i;
+		}
+
+		// Old path, a String per cell through a Writer
+		NullOutput oldOutput = new NullOutput();
+		Writer writer = new BufferedWriter(new OutputStreamWriter(oldOutput));
+		Row toString = index -> {
+			double[] values = data[index];
+			for (int i = 0; i < values.length; i++) {
+				writer.write(Double.toString(values[i]));
+				writer.write(", ");
+			}
+			writer.write("\n");
+		};
+
+		// New path, shortest text that reads back as the same value
+		NullOutput shortestOutput = new NullOutput();
+		CsvSink shortest = new CsvSink(shortestOutput);
+		shortest.open(names, names);
+		Row formatter = index -> shortest.writeRow(0, bits[index], null);
+
+		// New path, every column rounded to 3 decimals
+		int[] decimals = new int[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			decimals[i] = 3;
+		}
+		NullOutput roundedOutput = new NullOutput();
+		CsvSink rounded = new CsvSink(roundedOutput, decimals);
+		rounded.open(names, names);
+		Row fixed = index -> rounded.writeRow(0, bits[index], null);
+
+		System.out.println(fieldCount + " fields, " + rows + " rows");
+		// Run everything once first so the JIT has compiled it before it is timed
+		for (int pass = 0; pass < 2; pass++) {
+			boolean print = pass == 1;
+			measure("Double.toString", toString, data.length, rows, print);
+			measure("shortest", formatter, data.length, rows, print);
+			measure("3 decimals", fixed, data.length, rows, print);
+		}
+		writer.flush();
+		System.out.printf("bytes written: %d toString, %d shortest, %d 3 decimals%n", oldOutput.bytes,
+				shortestOutput.bytes, roundedOutput.bytes);
+	}
+
+	private static void measure(String name, Row row, int dataRows, int rows, boolean print) throws IOException {
+		long startBytes = allocatedBytes();
+		long start = System.nanoTime();
+
+		for (int i = 0; i < rows; i++) {
+			row.write(i & (dataRows - 1));
+		}
+
+		long time = System.nanoTime() - start;
+		long bytes = allocatedBytes() - startBytes;
+
+		if (print) {
+			System.out.printf("%-20s %8.1f ns/row %8.1f bytes/row%n", name, (double) time / rows,
+					bytes < 0 ? Double.NaN : (double) bytes / rows);
+		}
+	}
+
+	/**
+	 * @return bytes allocated by this thread so far, or -1 if the JVM can't tell
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,173 @@
+package util.logging;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.Vector;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Measures how long it takes to sample a tick's worth of logging fields, comparing
+ * the old invokeWithArguments() path against the compiled samplers DataLogger uses
+ * now. Run with the library and WPILib on the classpath:
+ * <br>
+ * <br>
+ * java -cp ... util.logging.FieldSamplingBench [fields] [ticks]
+ */
+public class FieldSamplingBench {
+	
+	/**
+	 * Stand in for a subsystem with a few getters
+	 */
+	public static class Source {
+		private double value = 1;
+		
+		public double getValue() {
+			value += 0.5;
+			return value;
+		}
+		
+		public double getScaled(int scale) {
+			return value * scale;
+		}
+		
+		public boolean isPositive() {
+			return value > 0;
+		}
+	}
+	
+	interface Tick {
+		double run();
+	}
+
+	public static void main(String[] args) throws Throwable {
+		int fieldCount = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+		
+		Source source = new Source();
+		
+		// Old path, a handle and a Vector of arguments per field
+		Vector<MethodHandle> handles = new Vector<MethodHandle>();
+		Vector<Vector<Object>> handleArgs = new Vector<Vector<Object>>();
+		
+		for (int i = 0; i < fieldCount; i++) {
+			Vector<Object> fieldArgs = new Vector<Object>();
+			fieldArgs.add(source);
+			
+			switch (i % 3) {
+				case 0:
+					handles.add(MethodHandles.lookup().findVirtual(Source.class, "getValue", MethodType.methodType(double.class)));
+					break;
+				case 1:
+					handles.add(MethodHandles.lookup().findVirtual(Source.class, "getScaled", MethodType.methodType(double.class, int.class)));
+					fieldArgs.add(2);
+					break;
+				default:
+					handles.add(MethodHandles.lookup().findVirtual(Source.class, "isPositive", MethodType.methodType(boolean.class)));
+					break;
+			}
+			handleArgs.add(fieldArgs);
+		}
+		
+		// New path, the same fields added through a DataLogger
+		DataLogger logger = new DataLogger("bench");
+		for (int i = 0; i < fieldCount; i++) {
+			switch (i % 3) {
+				case 0:
+					logger.addLoggingFieldDouble("handle" + i, "", "getValue", source);
+					break;
+				case 1:
+					logger.addLoggingFieldDouble("handle" + i, "", "getScaled", source, 2);
+					break;
+				default:
+					logger.addLoggingFieldBoolean("handle" + i, "", "isPositive", source);
+					break;
+			}
+		}
+		DoubleSupplier[] compiled = logger.samplers.toArray(new DoubleSupplier[0]);
+		
+		DoubleSupplier[] lambdas = new DoubleSupplier[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			switch (i % 3) {
+				case 0:
+					lambdas[i] = source::getValue;
+					break;
+				case 1:
+					lambdas[i] = () -> source.getScaled(2);
+					break;
+				default:
+					lambdas[i] = () -> source.isPositive() ? 1.0 : 0.0;
+					break;
+			}
+		}
+		
+		double[] row = new double[fieldCount];
+		
+		Tick invokeWithArguments = () -> {
+			for (int i = 0; i < fieldCount; i++) {
+				MethodHandle handle = handles.get(i);
+				try {
+					if (handle.type().returnType() == double.class)
+						row[i] = (double) handle.invokeWithArguments(handleArgs.get(i));
+					else
+						row[i] = ((boolean) handle.invokeWithArguments(handleArgs.get(i))) ? 1.0 : 0.0;
+				} catch (Throwable e) {
+					row[i] = -1;
+				}
+			}
+			return row[0];
+		};
+		Tick boundHandles = () -> {
+			for (int i = 0; i < compiled.length; i++) {
+				row[i] = compiled[i].getAsDouble();
+			}
+			return row[0];
+		};
+		Tick suppliers = () -> {
+			for (int i = 0; i < lambdas.length; i++) {
+				row[i] = lambdas[i].getAsDouble();
+			}
+			return row[0];
+		};
+		
+		System.out.println(fieldCount + " fields, " + ticks + " ticks");
+		// Run everything once first so the JIT has compiled it before it is timed
+		for (int pass = 0; pass < 2; pass++) {
+			boolean print = pass == 1;
+			measure("invokeWithArguments", invokeWithArguments, ticks, print);
+			measure("bound handles", boundHandles, ticks, print);
+			measure("suppliers", suppliers, ticks, print);
+		}
+	}
+
+	private static void measure(String name, Tick tick, int ticks, boolean print) {
+		long startBytes = allocatedBytes();
+		long start = System.nanoTime();
+		double sink = 0;
+		
+		for (int i = 0; i < ticks; i++) {
+			sink += tick.run();
+		}
+		
+		long time = System.nanoTime() - start;
+		long bytes = allocatedBytes() - startBytes;
+		
+		if (print) {
+			System.out.printf("%-20s %8.1f ns/tick %8.1f bytes/tick  (%s)%n", name, (double) time / ticks,
+					bytes < 0 ? Double.NaN : (double) bytes / ticks, sink > 0 ? "ok" : "?");
+		}
+	}
+
+	/**
+	 * @return bytes allocated by this thread so far, or -1 if the JVM can't tell
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -2,6 +2,8 @@ package auto.modes;
 
 import auto.AutoModeEndedException;
 import auto.actions.Action;
+import util.logging.CsvLogger;
+import util.logging.LogEvent;
 
 /**
  * An abstract class that is the basis of the robot's autonomous routines. This
@@ -22,6 +24,7 @@ public abstract class AutoModeBase {
         try {
             routine();
         } catch (AutoModeEndedException e) {
+            CsvLogger.logEvent(LogEvent.Type.INFO, getClass().getSimpleName(), "Ended early");
             System.out.println("AutoModeExecutor mode done, ended early");
             return;
         }
@@ -49,6 +52,8 @@ public abstract class AutoModeBase {
 
     public void runAction(Action action) throws AutoModeEndedException {
         isActiveWithThrow();
+        String name = action.getClass().getSimpleName();
+        CsvLogger.logEvent(LogEvent.Type.ACTION_START, getClass().getSimpleName(), name);
         action.start();
         while (isActiveWithThrow() && !action.isFinished()) {
             action.update();
@@ -60,6 +65,7 @@ public abstract class AutoModeBase {
             }
         }
         action.done();
+        CsvLogger.logEvent(LogEvent.Type.ACTION_END, getClass().getSimpleName(), name);
     }
 
 }
\ No newline at end of file
@@ -109,6 +109,11 @@ public abstract class DriveConfigDefault {
      */
     public double pathDt = 0.2;
     
+    /**
+     * How many motion profile points to keep queued in each talon ahead of the one it is running
+     */
+    public int pathBufferedPoints = 50;
+    
     /**
      * Basic constructor that calls setConfig() so that user changed values are updated
      */
@@ -14,6 +14,55 @@ public abstract class LoopConfigDefault {
 	 * The time in seconds between each run of the main control loop
 	 */
 	public double loopDt = 0.01;
+	
+	/**
+	 * The number of threads used to run loops that don't depend on each other at the
+	 * same time, including the looper's own thread. With 1 thread every loop is run 
+	 * one after another in the order it was registered
+	 */
+	public int loopThreads = 1;
+	
+	/**
+	 * Loops with a priority below this can be put off when a tick is running late.
+	 * Loops at or above it are always run
+	 */
+	public int shedPriority = util.loops.Loop.PRIORITY_NORMAL;
+	
+	/**
+	 * Fraction of loopDt after which a tick is running late and low priority loops 
+	 * start being put off
+	 */
+	public double shedThreshold = 0.8;
+	
+	/**
+	 * If true, a loop that is put off runs on the next tick. If false, it waits until
+	 * the next tick that it is normally due on
+	 */
+	public boolean shedPostpone = true;
+	
+	/**
+	 * A loop that spends longer than this many times loopDt in one of its phases is 
+	 * reported as hung by the looper's watchdog. Set to 0 to turn off the watchdog
+	 */
+	public double watchdogMultiple = 10;
+	
+	/**
+	 * If true, a loop found hung is quarantined and not run again until it is restored.
+	 * This also runs every loop's onLoop() on a worker thread, so that a worker stuck 
+	 * in onLoop() can be replaced and the other loops keep running on time
+	 */
+	public boolean watchdogQuarantine = false;
+	
+	/**
+	 * The width in seconds of each bucket in the timing histograms kept by the looper
+	 */
+	public double statsBucketWidth = 0.00005;
+	
+	/**
+	 * The number of buckets in the timing histograms kept by the looper. Any time longer
+	 * than statsBucketWidth * statsBucketCount is counted in the last bucket
+	 */
+	public int statsBucketCount = 400;
     
     /**
      * Basic constructor that calls setConfig() so that user changed values are updated
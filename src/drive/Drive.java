@@ -5,7 +5,11 @@ import com.ctre.CANTalon.TalonControlMode;
 import config.DriveConfigDefault;
 import util.MotionProfileFollower;
 import util.MyJoystick;
+import util.TrajectorySource;
+import util.logging.CsvLogger;
+import util.logging.LogEvent;
 import util.loops.Loop;
+import util.loops.SensorSnapshot;
 
 /**
  * Drive code for basic tank drive system using one controller with two joysticks
@@ -39,10 +43,41 @@ public class Drive {
 	
 	private MyJoystick joy;
 	
+	/**
+	 * What the drive loop reads and writes, for the Looper
+	 */
+	private static final String[] READS = {"drive", "joystick"};
+	private static final String[] WRITES = {"drive"};
+	
 	/**
 	 * Used for setting left and right side motors when in the OPEN_LOOP_SET mode
 	 */
     private double left, right = 0;
+    
+    /**
+     * Sensor values read once each tick by the looper, null if registerSensors() 
+     * has not been called and the talons should be read directly
+     */
+    private SensorSnapshot sensors = null;
+    
+    /**
+     * Channels in the sensor snapshot for each of the talon values
+     */
+    private int leftOutputChannel, rightOutputChannel;
+    private int leftPositionChannel, rightPositionChannel;
+    private int leftSpeedChannel, rightSpeedChannel;
+    
+    /**
+     * Set while the loop's onLoop() is running, so that talon outputs are held and 
+     * sent out together in the loop's write()
+     */
+    private boolean holdOutputs = false;
+    
+    /**
+     * Outputs that are waiting to be sent to the master talons
+     */
+    private double leftSetValue, rightSetValue;
+    private boolean outputsPending = false;
 
     /** 
      * Enums that account for all control states for the drive system
@@ -124,12 +159,13 @@ public class Drive {
             
         }
 
-    	leftFollower = new MotionProfileFollower(leftTalons[0], config.pathDt);
-    	rightFollower = new MotionProfileFollower(rightTalons[0], config.pathDt);
+    	leftFollower = new MotionProfileFollower(leftTalons[0], config.pathDt, config.pathBufferedPoints);
+    	rightFollower = new MotionProfileFollower(rightTalons[0], config.pathDt, config.pathBufferedPoints);
     }
     
     /**
-     * Main control loop, run at periodically from the Looper class
+     * Main control loop, run at periodically from the Looper class. Outputs worked 
+     * out in onLoop() are held and sent to the talons in write()
      */
  	private final Loop loop = new Loop() {
 
@@ -140,22 +176,37 @@ public class Drive {
 
  		@Override
  		public void onLoop() {
- 			switch (driveControlState) {
- 				case OPEN_LOOP_JOY:
- 					move(joy.getRTheta());
- 					break;
+ 			holdOutputs = true;
+ 			
+ 			try {
+ 				switch (driveControlState) {
+ 					case OPEN_LOOP_JOY:
+ 						move(joy.getRTheta());
+ 						break;
 
- 				case MOTION_PROFILE:
- 					leftFollower.control();
- 					rightFollower.control();
+ 					case MOTION_PROFILE:
+ 						leftFollower.control();
+ 						rightFollower.control();
 
- 					leftTalons[0].set(leftFollower.getSetValue().value);
- 					rightTalons[0].set(rightFollower.getSetValue().value);
- 					break;
+ 						setOutputs(leftFollower.getSetValue().value, rightFollower.getSetValue().value);
+ 						break;
 
- 				case OPEN_LOOP_SET:
- 					ramp(-left, right);
- 					break;
+ 					case OPEN_LOOP_SET:
+ 						ramp(-left, right);
+ 						break;
+ 				}
+ 			} finally {
+ 				// An exception must not leave calls from outside the loop held forever
+ 				holdOutputs = false;
+ 			}
+ 		}
+ 		
+ 		@Override
+ 		public void write() {
+ 			if (outputsPending) {
+ 				outputsPending = false;
+ 				leftTalons[0].set(leftSetValue);
+ 				rightTalons[0].set(rightSetValue);
  			}
  		}
 
@@ -164,6 +215,21 @@ public class Drive {
  			openLoopJoyMode();
  			move(0,0);
  		}
+ 		
+ 		@Override
+ 		public int getPriority() {
+ 			return PRIORITY_CRITICAL;
+ 		}
+ 		
+ 		@Override
+ 		public String[] getReads() {
+ 			return READS;
+ 		}
+ 		
+ 		@Override
+ 		public String[] getWrites() {
+ 			return WRITES;
+ 		}
  	};
  	
  	/**
@@ -210,35 +276,122 @@ public class Drive {
 	 * @param wantSpeedRight The wanted speed for the right side
 	 */
 	public void ramp(double wantSpeedLeft, double wantSpeedRight){
-		if(Math.abs(wantSpeedLeft - leftTalons[0].get()) > config.rampRate){
+		// Read each side once, every call to get() goes out over CAN
+		double currentLeft = getLeftOutput();
+		double currentRight = getRightOutput();
+		
+		double newLeft = wantSpeedLeft;
+		double newRight = wantSpeedRight;
+		
+		if(Math.abs(wantSpeedLeft - currentLeft) > config.rampRate){
 			
-			if(wantSpeedLeft > leftTalons[0].get())
-				leftTalons[0].set((leftTalons[0].get() +  config.rampRate));
+			if(wantSpeedLeft > currentLeft)
+				newLeft = currentLeft + config.rampRate;
 			
 			else
-				leftTalons[0].set((leftTalons[0].get() - config.rampRate));
+				newLeft = currentLeft - config.rampRate;
 			
 		}
 		
-		else {
-			leftTalons[0].set(wantSpeedLeft);
-		}
-		
-		if(Math.abs(wantSpeedRight - rightTalons[0].get()) > config.rampRate){
+		if(Math.abs(wantSpeedRight - currentRight) > config.rampRate){
 			
-			if(wantSpeedRight > rightTalons[0].get())
-				rightTalons[0].set(rightTalons[0].get() +  config.rampRate);
+			if(wantSpeedRight > currentRight)
+				newRight = currentRight + config.rampRate;
 			
 			else
-				rightTalons[0].set(rightTalons[0].get() - config.rampRate);
+				newRight = currentRight - config.rampRate;
 			
 		}
 		
+		setOutputs(newLeft, newRight);
+	}
+	
+	/**
+	 * Sets the left and right master talons. While the drive loop is running its 
+	 * onLoop(), the values are held and sent out in the loop's write() instead
+	 * @param leftValue Value for the left master talon
+	 * @param rightValue Value for the right master talon
+	 */
+	private void setOutputs(double leftValue, double rightValue) {
+		if (holdOutputs) {
+			leftSetValue = leftValue;
+			rightSetValue = rightValue;
+			outputsPending = true;
+		}
+		
 		else {
-			rightTalons[0].set(wantSpeedRight);
+			leftTalons[0].set(leftValue);
+			rightTalons[0].set(rightValue);
 		}
 	}
 	
+	/**
+	 * Adds the drive talons' output, position and speed to a sensor snapshot so they are
+	 * read once at the start of each tick. After this is called, the drive reads those 
+	 * values from the snapshot instead of from the talons while the snapshot is fresh.
+	 * When it is stale, such as when called before the looper starts or after it stops,
+	 * the talons are read directly
+	 * @param sensors Snapshot to add the sensors to, usually from Looper.getSensors()
+	 */
+	public void registerSensors(SensorSnapshot sensors) {
+		leftOutputChannel = sensors.addChannel("leftOutput", leftTalons[0]::get);
+		rightOutputChannel = sensors.addChannel("rightOutput", rightTalons[0]::get);
+		leftPositionChannel = sensors.addChannel("leftPosition", leftTalons[0]::getPosition);
+		rightPositionChannel = sensors.addChannel("rightPosition", rightTalons[0]::getPosition);
+		leftSpeedChannel = sensors.addChannel("leftSpeed", leftTalons[0]::getSpeed);
+		rightSpeedChannel = sensors.addChannel("rightSpeed", rightTalons[0]::getSpeed);
+		this.sensors = sensors;
+	}
+	
+	/**
+	 * @return true if the values in the sensor snapshot can be used
+	 */
+	private boolean isSnapshotFresh() {
+		return sensors != null && sensors.isFresh();
+	}
+	
+	/**
+	 * @return the value the left master talon is set to
+	 */
+	public double getLeftOutput() {
+		return isSnapshotFresh() ? sensors.get(leftOutputChannel) : leftTalons[0].get();
+	}
+	
+	/**
+	 * @return the value the right master talon is set to
+	 */
+	public double getRightOutput() {
+		return isSnapshotFresh() ? sensors.get(rightOutputChannel) : rightTalons[0].get();
+	}
+	
+	/**
+	 * @return position of the left side in rotations
+	 */
+	public double getLeftPosition() {
+		return isSnapshotFresh() ? sensors.get(leftPositionChannel) : leftTalons[0].getPosition();
+	}
+	
+	/**
+	 * @return position of the right side in rotations
+	 */
+	public double getRightPosition() {
+		return isSnapshotFresh() ? sensors.get(rightPositionChannel) : rightTalons[0].getPosition();
+	}
+	
+	/**
+	 * @return speed of the left side in rpm
+	 */
+	public double getLeftSpeed() {
+		return isSnapshotFresh() ? sensors.get(leftSpeedChannel) : leftTalons[0].getSpeed();
+	}
+	
+	/**
+	 * @return speed of the right side in rpm
+	 */
+	public double getRightSpeed() {
+		return isSnapshotFresh() ? sensors.get(rightSpeedChannel) : rightTalons[0].getSpeed();
+	}
+	
 	/**
 	 * Gets the set value to set the talon to when it is in motion profile mode
 	 * @return Set value where 0 - Disable, 1 - Enable, and 2 - Hold
@@ -251,7 +404,7 @@ public class Drive {
 	 * Sets the talons to a mode where they can follow a motion profile
 	 */
 	public void motionProfileMode() {
-		driveControlState = DriveControlStates.MOTION_PROFILE;
+		setControlState(DriveControlStates.MOTION_PROFILE);
 
 		leftTalons[0].changeControlMode(TalonControlMode.MotionProfile);
 		leftFollower.control();
@@ -267,7 +420,7 @@ public class Drive {
 	 * Sets the talons to a mode where they can be controlled by the joystick
 	 */
 	public void openLoopJoyMode() {
-		driveControlState = DriveControlStates.OPEN_LOOP_JOY;
+		setControlState(DriveControlStates.OPEN_LOOP_JOY);
 		resetToOpenLoop();
 	}
 
@@ -282,10 +435,21 @@ public class Drive {
 
 		if(driveControlState != DriveControlStates.OPEN_LOOP_SET) {
 			resetToOpenLoop();
-			driveControlState = DriveControlStates.OPEN_LOOP_SET;
+			setControlState(DriveControlStates.OPEN_LOOP_SET);
 		}
 	}
 
+	/**
+	 * Changes the control state, logging an event if it is different
+	 * @param state New control state
+	 */
+	private void setControlState(DriveControlStates state) {
+		if (state != driveControlState) {
+			CsvLogger.logEvent(LogEvent.Type.STATE, "Drive", state.name());
+		}
+		driveControlState = state;
+	}
+
 	/**
 	 * Resets the talons so that they're buffer is clear and they can accept PercentVbus commands (-1 to 1)
 	 */
@@ -318,4 +482,14 @@ public class Drive {
 		leftFollower.setPoints(left);
 		rightFollower.setPoints(right);
 	}
+	
+	/**
+	 * Load two paths to be streamed to the talons as the motion profile runs, so they can be any length
+	 * @param left source of the points of the left path, see TrajectorySource
+	 * @param right source of the points of the right path, see TrajectorySource
+	 */
+	public void setPaths(TrajectorySource left, TrajectorySource right) {
+		leftFollower.setSource(left);
+		rightFollower.setSource(right);
+	}
 }
@@ -0,0 +1,44 @@
+package util;
+
+/**
+ * Gives the points of a path already in memory, starting over from the first point
+ * each time the profile is started
+ */
+public class ArrayTrajectorySource implements TrajectorySource {
+
+	private final double[][] points;
+
+	/**
+	 * Index of the next point to give
+	 */
+	private int index = 0;
+
+	/**
+	 * @param points Path as an array of points, each laid out as {accumulated position,
+	 *        velocity, dt}. Not copied, so it should not be changed while it is followed
+	 */
+	public ArrayTrajectorySource(double[][] points) {
+		this.points = points;
+	}
+
+	@Override
+	public void start() {
+		index = 0;
+	}
+
+	@Override
+	public boolean next(double[] point) {
+		if (index >= points.length) {
+			return false;
+		}
+		System.arraycopy(points[index++], 0, point, 0, 3);
+		return true;
+	}
+
+	/**
+	 * @return number of points in the path
+	 */
+	public int size() {
+		return points.length;
+	}
+}
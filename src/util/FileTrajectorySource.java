@@ -0,0 +1,234 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reads the points of a path from a text file as they are needed, so paths of any
+ * length can be followed without loading them first. Each line holds one point as
+ * "position, velocity, dt" separated by commas or spaces. Blank lines, lines starting
+ * with '#' and a header line of names before the first point are skipped.
+ * <br>
+ * <br>
+ * The file is opened again each time the profile is started, and a background thread
+ * reads ahead into a fixed buffer of points, so next() takes points from memory and
+ * the loop never waits on the disk. next() only waits if the thread has fallen
+ * behind and the buffer is empty, such as for the first points right after start()
+ * when the disk is slow.
+ */
+public class FileTrajectorySource implements TrajectorySource {
+
+	/**
+	 * Bytes read from the file at a time
+	 */
+	private static final int BUFFER_SIZE = 65536;
+
+	/**
+	 * Default number of points read ahead
+	 */
+	public static final int DEFAULT_READ_AHEAD = 1024;
+
+	private final String path;
+	private final int readAhead;
+
+	/**
+	 * Reader for the current run of the profile, or null if the source isn't started
+	 */
+	private Prefetch prefetch = null;
+
+	/**
+	 * Creates a source that reads ahead DEFAULT_READ_AHEAD points
+	 *
+	 * @param path Path of the file to read
+	 */
+	public FileTrajectorySource(String path) {
+		this(path, DEFAULT_READ_AHEAD);
+	}
+
+	/**
+	 * @param path Path of the file to read
+	 * @param readAhead Most points to read ahead of the follower
+	 */
+	public FileTrajectorySource(String path, int readAhead) {
+		this.path = path;
+		this.readAhead = Math.max(1, readAhead);
+	}
+
+	/**
+	 * Opens the file and starts reading ahead on a background thread
+	 *
+	 * @throws IOException if the file can't be opened
+	 */
+	@Override
+	public void start() throws IOException {
+		close();
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(path), StandardCharsets.US_ASCII), BUFFER_SIZE);
+		prefetch = new Prefetch(in);
+		prefetch.thread.start();
+	}
+
+	@Override
+	public boolean next(double[] point) throws IOException {
+		Prefetch p = prefetch;
+		if (p == null) {
+			return false;
+		}
+
+		// Points are written before done is set, so written is checked again after it
+		while (p.written == p.taken) {
+			if (p.done) {
+				if (p.written != p.taken) {
+					break;
+				}
+				if (p.error != null) {
+					throw p.error;
+				}
+				return false;
+			}
+			p.consumer = Thread.currentThread();
+			if (p.written == p.taken && !p.done) {
+				LockSupport.park(p);
+			}
+		}
+
+		int slot = (int) (p.taken % readAhead) * 3;
+		System.arraycopy(p.points, slot, point, 0, 3);
+		p.taken++;
+		LockSupport.unpark(p.thread);
+		return true;
+	}
+
+	/**
+	 * Stops reading ahead. The background thread closes the file once it sees this
+	 */
+	@Override
+	public void close() {
+		Prefetch p = prefetch;
+		if (p != null) {
+			prefetch = null;
+			p.stopped = true;
+			LockSupport.unpark(p.thread);
+		}
+	}
+
+	private static boolean isNumber(String text) {
+		char c = text.isEmpty() ? ' ' : text.charAt(0);
+		return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+	}
+
+	/**
+	 * Reads the file for one run of the profile into a ring of points on its own
+	 * thread. Only the thread writes points and only next() takes them
+	 */
+	private final class Prefetch implements Runnable {
+
+		private final BufferedReader in;
+		private final Thread thread;
+
+		/**
+		 * Point i is at index (i % readAhead) * 3
+		 */
+		private final double[] points = new double[readAhead * 3];
+
+		/**
+		 * Number of points written by the thread and taken by next()
+		 */
+		private volatile long written = 0;
+		private volatile long taken = 0;
+
+		/**
+		 * Set once the thread has written its last point
+		 */
+		private volatile boolean done = false;
+		private volatile boolean stopped = false;
+		private volatile IOException error = null;
+
+		/**
+		 * Thread waiting in next(), woken up when a point is written
+		 */
+		private volatile Thread consumer = null;
+
+		/**
+		 * Line number of the last line read, for error messages
+		 */
+		private int line = 0;
+
+		/**
+		 * True until the first line that isn't blank or a comment, which may be a header
+		 */
+		private boolean first = true;
+
+		Prefetch(BufferedReader in) {
+			this.in = in;
+			thread = new Thread(this, "FileTrajectorySource");
+			thread.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			double[] point = new double[3];
+			try {
+				while (!stopped && read(point)) {
+					while (!stopped && written - taken >= readAhead) {
+						LockSupport.park(this);
+					}
+					if (stopped) {
+						break;
+					}
+					System.arraycopy(point, 0, points, (int) (written % readAhead) * 3, 3);
+					written++;
+					LockSupport.unpark(consumer);
+				}
+			} catch (IOException e) {
+				error = e;
+			} finally {
+				done = true;
+				LockSupport.unpark(consumer);
+				try {
+					in.close();
+				} catch (IOException e) {
+					// Nothing is read from it anymore
+				}
+			}
+		}
+
+		/**
+		 * Reads the next point from the file
+		 *
+		 * @return false at the end of the file
+		 */
+		private boolean read(double[] point) throws IOException {
+			String text;
+			while ((text = in.readLine()) != null) {
+				line++;
+				text = text.trim();
+				if (text.isEmpty() || text.charAt(0) == '#') {
+					continue;
+				}
+
+				String[] cells = text.split("[,\\s]+");
+				boolean header = first && !isNumber(cells[0]);
+				first = false;
+				if (header) {
+					continue;
+				}
+				if (cells.length < 3) {
+					throw new IOException("Trajectory point on line " + line + " of " + path + " has fewer than 3 values");
+				}
+				try {
+					for (int i = 0; i < 3; i++) {
+						point[i] = Double.parseDouble(cells[i]);
+					}
+				} catch (NumberFormatException e) {
+					throw new IOException("Bad trajectory point on line " + line + " of " + path);
+				}
+				return true;
+			}
+			return false;
+		}
+	}
+}
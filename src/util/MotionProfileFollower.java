@@ -17,19 +17,27 @@
  * 
  * getControlMode, to check if we are in Motion Profile Control mode.
  * 
+ * Points are streamed from a TrajectorySource by calling pushMotionProfileTrajectory() every loop while the Talon
+ * executes the motion profile, keeping a set number of points queued ahead of it. The profile starts as soon as the
+ * first few points are in the Talon, and paths can be any length.
+ * 
  * Example of advanced features not demonstrated here...
- * [1] Calling pushMotionProfileTrajectory() continuously while the Talon executes the motion profile, thereby keeping it going indefinitely.
- * [2] Instead of setting the sensor position to zero at the start of each MP, the program could offset the MP's position based on current position. 
+ * [1] Instead of setting the sensor position to zero at the start of each MP, the program could offset the MP's position based on current position. 
  */
 package util;
 
+import java.io.IOException;
 
 import com.ctre.CANTalon;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 import com.ctre.CANTalon.TalonControlMode;
 
+import util.logging.CsvLogger;
+import util.logging.LogEvent;
+
 /**
  * Used to push motionProfile points to the buffer in the CANTalons and execute them
  * when the talon is in motion profile mode
@@ -66,6 +74,10 @@ public class MotionProfileFollower {
 	 * simple (no need to worry about timer overflows).
 	 */
 	private int _loopTimeout = -1;
+	/**
+	 * Name used for the events logged when the state changes or times out
+	 */
+	private final String _eventSource;
 	/**
 	 * If start() gets called, this flag is set and in the control() we will
 	 * service it.
@@ -88,8 +100,42 @@ public class MotionProfileFollower {
 	 * is about 20ms.
 	 */
 	private static final int kNumLoopsTimeout = 10;
+	/**
+	 * How many trajectory points to keep queued in the Talon ahead of the one
+	 * being executed, unless told otherwise.
+	 */
+	public static final int kDefaultBufferedPoints = 50;
+	
+	/**
+	 * Where the points of the next profile come from
+	 */
+	private TrajectorySource _source = new ArrayTrajectorySource(new double[0][]);
+	/**
+	 * How many trajectory points to keep queued in the Talon while streaming
+	 */
+	private int _bufferedPoints;
 	
-	private double[][] points = {};
+	/**
+	 * Reused for every point pushed to the Talon
+	 */
+	private final CANTalon.TrajectoryPoint _point = new CANTalon.TrajectoryPoint();
+	/**
+	 * Next point to push, and the one after it. One point is read ahead so the
+	 * last point of the profile can be marked when it is pushed.
+	 */
+	private double[] _nextPoint = new double[3];
+	private double[] _followingPoint = new double[3];
+	private boolean _hasNextPoint = false;
+	private boolean _hasFollowingPoint = false;
+	private boolean _readAhead = false;
+	/**
+	 * Set between starting the source and closing it
+	 */
+	private boolean _sourceOpen = false;
+	/**
+	 * Number of points pushed since the profile was started
+	 */
+	private int _pointsSent = 0;
 	
 	/**
 	 * Lets create a periodic task to funnel our trajectory points into our talon.
@@ -113,7 +159,26 @@ public class MotionProfileFollower {
 	 * @param pathDt the dt between each point in the path
 	 */
 	public MotionProfileFollower(CANTalon talon, double pathDt) {
+		this(talon, pathDt, kDefaultBufferedPoints);
+	}
+
+	/**
+	 * 
+	 * 
+	 * @param talon reference to Talon object to fetch motion profile status from.
+	 * @param pathDt the dt between each point in the path
+	 * @param bufferedPoints how many points to keep queued in the Talon ahead of
+	 *        the one being executed. Should cover a few loops of points
+	 */
+	public MotionProfileFollower(CANTalon talon, double pathDt, int bufferedPoints) {
 		_talon = talon;
+		_bufferedPoints = Math.max(kMinPointsInTalon + 1, bufferedPoints);
+		/* the same gains and servo settings are used for every point */
+		_point.profileSlotSelect = 0; /* which set of gains would you like to use? */
+		_point.velocityOnly = false; /* set true to not do any position
+									  * servo, just velocity feedforward
+									  */
+		_eventSource = "MotionProfileFollower " + talon.getDeviceID();
 		/*
 		 * since our MP is 10ms per point, set the control frame rate and the
 		 * notifer to half that
@@ -133,10 +198,11 @@ public class MotionProfileFollower {
 		 * sitting in memory.
 		 */
 		_talon.clearMotionProfileTrajectories();
+		stopStreaming();
 		/* When we do re-enter motionProfile control mode, stay disabled. */
 		_setValue = CANTalon.SetValueMotionProfile.Disable;
 		/* When we do start running our state machine start at the beginning. */
-		_state = 0;
+		setState(0);
 		_loopTimeout = -1;
 		/*
 		 * If application wanted to start an MP before, ignore and wait for next
@@ -169,6 +235,9 @@ public class MotionProfileFollower {
 				 */
 			} else {
 				--_loopTimeout;
+				if (_loopTimeout == 0) {
+					CsvLogger.logEvent(LogEvent.Type.ERROR, _eventSource, "Timed out in state " + _state);
+				}
 			}
 		}
 
@@ -178,8 +247,9 @@ public class MotionProfileFollower {
 			 * we are not in MP mode. We are probably driving the robot around
 			 * using gamepads or some other mode.
 			 */
-			_state = 0;
+			setState(0);
 			_loopTimeout = -1;
+			stopStreaming();
 		} else {
 			/*
 			 * we are in MP control mode. That means: starting Mps, checking Mp
@@ -193,28 +263,33 @@ public class MotionProfileFollower {
 						_bStart = false;
 	
 						_setValue = CANTalon.SetValueMotionProfile.Disable;
-						startFilling();
-						/*
-						 * MP is being sent to CAN bus, wait a small amount of time
-						 */
-						_state = 1;
-						_loopTimeout = kNumLoopsTimeout;
+						if (startFilling()) {
+							/*
+							 * MP is being sent to CAN bus, wait a small amount of time
+							 */
+							setState(1);
+							_loopTimeout = kNumLoopsTimeout;
+						}
 					}
 					break;
 				case 1: /*
 						 * wait for MP to stream to Talon, really just the first few
 						 * points
 						 */
-					/* do we have a minimum numberof points in Talon */
-					if (_status.btmBufferCnt > kMinPointsInTalon) {
+					streamPoints(_status.topBufferCnt + _status.btmBufferCnt);
+					/* do we have a minimum numberof points in Talon, or the whole of a short MP */
+					if (_status.btmBufferCnt > kMinPointsInTalon
+							|| (!_hasNextPoint && _status.topBufferCnt == 0 && _status.btmBufferCnt > 0)) {
 						/* start (once) the motion profile */
 						_setValue = CANTalon.SetValueMotionProfile.Enable;
 						/* MP will start once the control frame gets scheduled */
-						_state = 2;
+						setState(2);
 						_loopTimeout = kNumLoopsTimeout;
 					}
 					break;
 				case 2: /* check the status of the MP */
+					/* keep the Talon's buffer topped up while it executes */
+					streamPoints(_status.topBufferCnt + _status.btmBufferCnt);
 					/*
 					 * if talon is reporting things are good, keep adding to our
 					 * timeout. Really this is so that you can unplug your talon in
@@ -234,7 +309,7 @@ public class MotionProfileFollower {
 						 * get here when the MP is done
 						 */
 						_setValue = CANTalon.SetValueMotionProfile.Hold;
-						_state = 0;
+						setState(0);
 						_loopTimeout = -1;
 					}
 					break;
@@ -243,18 +318,23 @@ public class MotionProfileFollower {
 		/* printfs and/or logging */
 	}
 
-	/** Start filling the MPs to all of the involved Talons. */
-	private void startFilling() {
-		startFilling(points, points.length);
-		SmartDashboard.putNumber("points.length", points.length);
+	/**
+	 * Changes the state of the state machine, logging an event if it is different
+	 */
+	private void setState(int state) {
+		if (state != _state) {
+			CsvLogger.logEvent(LogEvent.Type.STATE, _eventSource, Integer.toString(state));
+		}
+		_state = state;
 	}
-	
-	
 
-	private void startFilling(double[][] profile, int totalCnt) {
-
-		/* create an empty point */
-		CANTalon.TrajectoryPoint point = new CANTalon.TrajectoryPoint();
+	/**
+	 * Start filling the MP to the Talon from the source. Only the first points are
+	 * pushed here, the rest are streamed in by streamPoints() as the MP runs.
+	 * 
+	 * @return false if the source has no points
+	 */
+	private boolean startFilling() {
 
 		/* did we get an underrun condition since last time we checked ? */
 		if (_status.hasUnderrun) {
@@ -270,29 +350,105 @@ public class MotionProfileFollower {
 		 * points in memory, clear it.
 		 */
 		_talon.clearMotionProfileTrajectories();
+		stopStreaming();
 
-		/* This is fast since it's just into our TOP buffer */
-		for (int i = 0; i < totalCnt; ++i) {
-			/* for each point, fill our structure and pass it to API */
-			point.position = profile[i][0];
-			point.velocity = profile[i][1];
-			point.timeDurMs = (int) profile[i][2];
-			point.profileSlotSelect = 0; /* which set of gains would you like to use? */
-			point.velocityOnly = false; /* set true to not do any position
-										 * servo, just velocity feedforward
-										 */
-			point.zeroPos = false;
-			if (i == 0)
-				point.zeroPos = true; /* set this to true on the first point */
+		try {
+			_source.start();
+		} catch (IOException e) {
+			sourceFailed(e);
+			return false;
+		}
+		_sourceOpen = true;
+		_pointsSent = 0;
+		_readAhead = false;
+		_hasNextPoint = readPoint(_nextPoint);
+		if (!_hasNextPoint) {
+			CsvLogger.logEvent(LogEvent.Type.ERROR, _eventSource, "No points to follow");
+			return false;
+		}
+
+		/* Nothing is queued yet, so this fills the buffer up to its target */
+		streamPoints(0);
+		return true;
+	}
+
+	/**
+	 * Pushes points from the source until the target number are queued in the
+	 * Talon. This is fast since it's just into our TOP buffer.
+	 * 
+	 * @param queued number of points in the Talon's buffers when the status was read
+	 */
+	private void streamPoints(int queued) {
+		while (_hasNextPoint && queued < _bufferedPoints) {
+			/* read one point ahead to know if this is the last one */
+			if (!_readAhead) {
+				_hasFollowingPoint = readPoint(_followingPoint);
+				_readAhead = true;
+			}
+
+			/* fill our structure and pass it to API */
+			_point.position = _nextPoint[0];
+			_point.velocity = _nextPoint[1];
+			_point.timeDurMs = (int) _nextPoint[2];
+			_point.zeroPos = _pointsSent == 0; /* set this to true on the first point */
+			_point.isLastPoint = !_hasFollowingPoint; /* set this to true on the last point  */
+
+			if (!_talon.pushMotionProfileTrajectory(_point)) {
+				/* top buffer is full, try this point again next loop */
+				break;
+			}
+			_pointsSent++;
+			queued++;
+
+			double[] pushed = _nextPoint;
+			_nextPoint = _followingPoint;
+			_followingPoint = pushed;
+			_hasNextPoint = _hasFollowingPoint;
+			_readAhead = false;
+		}
+		SmartDashboard.putNumber("pointsSent", _pointsSent);
 
-			point.isLastPoint = false;
-			if ((i + 1) == totalCnt)
-				point.isLastPoint = true; /* set this to true on the last point  */
+		if (!_hasNextPoint) {
+			stopStreaming();
+		}
+	}
 
-			_talon.pushMotionProfileTrajectory(point);
+	/**
+	 * Reads the next point from the source
+	 * 
+	 * @return false if there are no more points or the source failed
+	 */
+	private boolean readPoint(double[] point) {
+		try {
+			return _source.next(point);
+		} catch (IOException e) {
+			sourceFailed(e);
+			return false;
 		}
 	}
 
+	/**
+	 * Stops reading points and closes the source
+	 */
+	private void stopStreaming() {
+		_hasNextPoint = false;
+		_readAhead = false;
+		if (!_sourceOpen) {
+			return;
+		}
+		_sourceOpen = false;
+		try {
+			_source.close();
+		} catch (IOException e) {
+			sourceFailed(e);
+		}
+	}
+
+	private void sourceFailed(IOException e) {
+		DriverStation.reportError("Error reading motion profile points: " + e.getMessage(), false);
+		CsvLogger.logEvent(LogEvent.Type.ERROR, _eventSource, "Error reading points: " + e.getMessage());
+	}
+
 	/**
 	 * Called by application to signal Talon to start the buffered MP (when it's
 	 * able to).
@@ -301,8 +457,36 @@ public class MotionProfileFollower {
 		_bStart = true;
 	}
 	
+	/**
+	 * Sets the path to follow the next time the MP is started
+	 * 
+	 * @param points path as an array of points, each laid out as {accumulated
+	 *        position, velocity, dt}
+	 */
 	public void setPoints(double[][] points) {
-		this.points = points;
+		setSource(new ArrayTrajectorySource(points));
+	}
+
+	/**
+	 * Sets where the points of the path come from the next time the MP is started.
+	 * They are read as the MP runs, so the source can be as long as needed.
+	 * 
+	 * @param source source of the points to follow
+	 */
+	public void setSource(TrajectorySource source) {
+		_source = source;
+	}
+
+	/**
+	 * Sets how many points are kept queued in the Talon ahead of the one being
+	 * executed. More points cover longer gaps between loops but use more of the
+	 * Talon's buffer.
+	 * 
+	 * @param points number of points, at least one more than the number needed
+	 *        to start the MP
+	 */
+	public void setBufferedPoints(int points) {
+		_bufferedPoints = Math.max(kMinPointsInTalon + 1, points);
 	}
 
 	/**
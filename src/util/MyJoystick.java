@@ -2,6 +2,7 @@ package util;
 
 import config.JoystickConfigDefaults;
 import edu.wpi.first.wpilibj.Joystick;
+import util.loops.SensorSnapshot;
 
 /**
  * Adds functions to assist in joystick use
@@ -22,6 +23,22 @@ public class MyJoystick extends Joystick {
 	private boolean[] buttonState;
 	
 	JoystickConfigDefaults config;
+	
+	/**
+	 * Sensor values read once each tick by the looper, null if registerSensors() 
+	 * has not been called and the joystick should be read directly
+	 */
+	private SensorSnapshot sensors = null;
+	
+	/**
+	 * Channels in the sensor snapshot for each axis
+	 */
+	private int leftXChannel, leftYChannel, rightXChannel, rightYChannel;
+	
+	/**
+	 * Channels in the sensor snapshot for each button, in the same order as buttonState
+	 */
+	private int[] buttonChannels;
 
 	/**
 	 * Creates joystick with given configuration
@@ -45,11 +62,44 @@ public class MyJoystick extends Joystick {
 	 * Updates the button values for the controller
 	 */
 	public void update() {
+		boolean fresh = isSnapshotFresh();
 		for (int i = 0; i < config.maxButtons; i++) {
-			buttonState[i] = !lastButtonState[i] && super.getRawButton(i + 1);
-			lastButtonState[i] = super.getRawButton(i + 1);
+			boolean pressed = fresh ? sensors.getBoolean(buttonChannels[i]) : super.getRawButton(i + 1);
+			buttonState[i] = !lastButtonState[i] && pressed;
+			lastButtonState[i] = pressed;
 		}
 	}
+	
+	/**
+	 * Adds the joystick's axes and buttons to a sensor snapshot so they are read once 
+	 * at the start of each tick. After this is called, the joystick reads those values
+	 * from the snapshot instead of from the driver station while the snapshot is fresh.
+	 * When it is stale, such as when called before the looper starts or after it stops,
+	 * the joystick is read directly
+	 * 
+	 * @param sensors Snapshot to add the sensors to, usually from Looper.getSensors()
+	 */
+	public void registerSensors(SensorSnapshot sensors) {
+		String prefix = "joy" + config.portNumber;
+		leftXChannel = sensors.addChannel(prefix + "LeftX", () -> super.getRawAxis(config.chnLeftX));
+		leftYChannel = sensors.addChannel(prefix + "LeftY", () -> super.getRawAxis(config.chnLeftY));
+		rightXChannel = sensors.addChannel(prefix + "RightX", () -> super.getRawAxis(config.chnRightX));
+		rightYChannel = sensors.addChannel(prefix + "RightY", () -> super.getRawAxis(config.chnRightY));
+		
+		buttonChannels = new int[config.maxButtons];
+		for (int i = 0; i < config.maxButtons; i++) {
+			final int button = i + 1;
+			buttonChannels[i] = sensors.addChannel(prefix + "Button" + button, () -> super.getRawButton(button));
+		}
+		this.sensors = sensors;
+	}
+
+	/**
+	 * @return true if the values in the sensor snapshot can be used
+	 */
+	private boolean isSnapshotFresh() {
+		return sensors != null && sensors.isFresh();
+	}
 
 	/**
 	 * Gives the location of the joystick in the coordinate system (r, theta) where r is the distance from the 
@@ -90,7 +140,7 @@ public class MyJoystick extends Joystick {
 	 * @return the x value of the left joystick
 	 */
 	public double getRawLeftX() {
-		return super.getRawAxis(config.chnLeftX);
+		return isSnapshotFresh() ? sensors.get(leftXChannel) : super.getRawAxis(config.chnLeftX);
 	}
 
 	/**
@@ -99,7 +149,7 @@ public class MyJoystick extends Joystick {
 	 * @return the y value of the left joystick
 	 */
 	public double getRawLeftY() {
-		return super.getRawAxis(config.chnLeftY);
+		return isSnapshotFresh() ? sensors.get(leftYChannel) : super.getRawAxis(config.chnLeftY);
 	}
 
 	/**
@@ -108,7 +158,7 @@ public class MyJoystick extends Joystick {
 	 * @return the x value of the right joystick
 	 */
 	public double getRawRightX() {
-		return super.getRawAxis(config.chnRightX);
+		return isSnapshotFresh() ? sensors.get(rightXChannel) : super.getRawAxis(config.chnRightX);
 	}
 
 	/**
@@ -117,7 +167,7 @@ public class MyJoystick extends Joystick {
 	 * @return the y value of the right joystick
 	 */
 	public double getRawRightY() {
-		return super.getRawAxis(config.chnRightY);
+		return isSnapshotFresh() ? sensors.get(rightYChannel) : super.getRawAxis(config.chnRightY);
 	}
 	
 	/**
@@ -0,0 +1,45 @@
+package util;
+
+import java.io.IOException;
+
+/**
+ * Gives the points of a motion profile one at a time, so MotionProfileFollower can
+ * stream them into the Talon while the profile runs instead of loading the whole path
+ * first. Each point is laid out as {accumulated position, velocity, dt}, where
+ * position is in rotations, velocity is in rpm and dt is in ms.
+ * <br>
+ * <br>
+ * ArrayTrajectorySource gives the points of a path already in memory and
+ * FileTrajectorySource reads them from a file as they are needed. Paths worked out
+ * as they are followed, or too long to keep, can implement next() directly.
+ */
+public interface TrajectorySource {
+
+	/**
+	 * Called each time the profile is started, before the first point is read, so the
+	 * source can go back to its first point
+	 *
+	 * @throws IOException if the points can't be read
+	 */
+	public default void start() throws IOException {
+	}
+
+	/**
+	 * Gets the next point. Called from the loop that runs the follower, so it should
+	 * not wait on anything
+	 *
+	 * @param point Array of 3 to fill in with the point
+	 * @return true if the point was filled in, false if there are no more points
+	 * @throws IOException if the point can't be read, the follower ends the profile
+	 *         at the point before it
+	 */
+	public boolean next(double[] point) throws IOException;
+
+	/**
+	 * Called once the last point has been read or the profile is stopped
+	 *
+	 * @throws IOException if the source can't be closed
+	 */
+	public default void close() throws IOException {
+	}
+}
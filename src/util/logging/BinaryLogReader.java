@@ -0,0 +1,244 @@
+package util.logging;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a log written by BinarySink one row at a time. Only one row is held in
+ * memory, so any size of log can be read. Use LogFileReader.open() to read a log
+ * without knowing which format it is in.
+ */
+public class BinaryLogReader implements LogFileReader {
+	
+	private final DataInputStream in;
+	private final String[] fieldNames;
+	private final String[] unitNames;
+	private final LogFieldType[] fieldTypes;
+	
+	/**
+	 * Reused for every row
+	 */
+	private final ByteBuffer row;
+	
+	/**
+	 * Bytes of presence bitmask in each row, 0 for version 1 logs
+	 */
+	private final int maskBytes;
+	
+	private double timestamp = 0;
+	private final long[] rawValues;
+	private final double[] values;
+	private final long[] present;
+	
+	/**
+	 * Events read since the last row
+	 */
+	private final List<LogEvent> events = new ArrayList<LogEvent>();
+
+	/**
+	 * Opens a binary log and reads its header
+	 * 
+	 * @param path Path of the file to read
+	 * @throws IOException if the file can't be read or is not a binary log
+	 */
+	public BinaryLogReader(String path) throws IOException {
+		this(new BufferedInputStream(new FileInputStream(path), 65536));
+	}
+
+	/**
+	 * Reads a binary log from a stream, starting with its header
+	 * 
+	 * @param stream Stream to read from, it is closed when the reader is closed
+	 * @throws IOException if the stream can't be read or is not a binary log
+	 */
+	public BinaryLogReader(InputStream stream) throws IOException {
+		this(new DataInputStream(stream), null);
+	}
+
+	/**
+	 * Reads a binary log from a stream. Used by LogReader to start reading part way
+	 * through a log, with the header read from the start of the file
+	 * 
+	 * @param stream Stream to read from, it is closed when the reader is closed
+	 * @param header Header of the log if the stream is positioned at the start of a 
+	 *        record, or null to read the header from the stream first
+	 * @throws IOException if the stream can't be read or is not a binary log
+	 */
+	BinaryLogReader(DataInputStream stream, LogHeader header) throws IOException {
+		in = stream;
+		
+		if (header == null) {
+			try {
+				header = LogHeader.read(in, BinarySink.MAGIC, 1, BinarySink.VERSION);
+			} catch (IOException e) {
+				in.close();
+				throw e;
+			}
+		}
+		fieldNames = header.fieldNames;
+		unitNames = header.unitNames;
+		fieldTypes = header.fieldTypes;
+		
+		int fieldCount = fieldNames.length;
+		maskBytes = header.version >= 2 ? (fieldCount + 7) / 8 : 0;
+		rawValues = new long[fieldCount];
+		values = new double[fieldCount];
+		present = new long[(fieldCount + 63) / 64];
+		int rowBytes = 0;
+		for (LogFieldType type : fieldTypes) {
+			rowBytes += type.bytes;
+		}
+		row = ByteBuffer.allocate(8 + maskBytes + rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+		
+		if (maskBytes == 0) {
+			for (int i = 0; i < fieldCount; i++) {
+				present[i >> 6] |= 1L << i;
+			}
+		}
+	}
+
+	/**
+	 * Moves to the next row in the log
+	 * 
+	 * @return true if there was another row, false at the end of the log. A row that 
+	 *         was cut off, such as by a brownout, or the zero padding a MappedLogOutput
+	 *         leaves when it isn't closed is treated as the end of the log
+	 * @throws IOException if the file can't be read or has an unknown record
+	 */
+	@Override
+	public boolean next() throws IOException {
+		events.clear();
+		int type;
+		
+		try {
+			while ((type = in.read()) == BinarySink.RECORD_EVENT) {
+				events.add(LogEvent.read(in));
+			}
+		} catch (EOFException e) {
+			return false;
+		}
+		if (type <= 0) {
+			return false;
+		}
+		if (type != BinarySink.RECORD_ROW) {
+			throw new IOException("Unknown record type " + type);
+		}
+		
+		try {
+			in.readFully(row.array(), 0, 8 + maskBytes);
+			row.rewind();
+			timestamp = row.getDouble();
+			
+			if (maskBytes > 0) {
+				Arrays.fill(present, 0);
+				for (int i = 0; i < maskBytes; i++) {
+					present[i >> 3] |= (long) (row.get() & 0xFF) << ((i & 7) * 8);
+				}
+				if ((values.length & 63) != 0) {
+					present[present.length - 1] &= (1L << values.length) - 1;
+				}
+			}
+			int bytes = 0;
+			for (int i = 0; i < values.length; i++) {
+				if (isPresent(i)) {
+					bytes += fieldTypes[i].bytes;
+				}
+			}
+			in.readFully(row.array(), 8 + maskBytes, bytes);
+		} catch (EOFException e) {
+			return false;
+		}
+		
+		for (int i = 0; i < values.length; i++) {
+			if (isPresent(i)) {
+				rawValues[i] = fieldTypes[i].get(row);
+				values[i] = fieldTypes[i].toDouble(rawValues[i]);
+			} else {
+				rawValues[i] = 0;
+				values[i] = Double.NaN;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return names of each column
+	 */
+	@Override
+	public String[] getFieldNames() {
+		return fieldNames.clone();
+	}
+
+	/**
+	 * @return units of each column
+	 */
+	@Override
+	public String[] getUnitNames() {
+		return unitNames.clone();
+	}
+
+	/**
+	 * @return time in seconds the current row was sampled
+	 */
+	@Override
+	public double getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @param column Column to get
+	 * @return value of the column in the current row
+	 */
+	@Override
+	public double get(int column) {
+		return values[column];
+	}
+
+	/**
+	 * @return values of every column in the current row, only valid until next() is 
+	 *         called. Columns that aren't present in the row are NaN
+	 */
+	@Override
+	public double[] getValues() {
+		return values;
+	}
+
+	@Override
+	public LogFieldType[] getFieldTypes() {
+		return fieldTypes.clone();
+	}
+
+	@Override
+	public long[] getRawValues() {
+		return rawValues;
+	}
+
+	@Override
+	public long getLong(int column) {
+		return fieldTypes[column].toLong(rawValues[column]);
+	}
+
+	@Override
+	public long[] getPresent() {
+		return present;
+	}
+
+	@Override
+	public List<LogEvent> getEvents() {
+		return events;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
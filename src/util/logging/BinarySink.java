@@ -0,0 +1,187 @@
+package util.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes log rows in a compact binary format. Each row is copied straight into a
+ * reusable byte buffer, so nothing has to be turned into text while logging. Use 
+ * BinaryLogReader to read the file back, or LogConverter to turn it into a CSV.
+ * <br>
+ * <br>
+ * FORMAT (all numbers little-endian):
+ * <ol>
+ * <li>Header: the bytes "RLOG", a 4 byte version number, a 4 byte field count, then
+ * for each field its name and units, each as a 2 byte length followed by UTF-8 bytes,
+ * then the type of each field, see LogHeader</li>
+ * <li>Records: a 1 byte record type followed by the record. A row record (type 1) is an
+ * 8 byte timestamp in seconds, a bitmask of which fields are present with one bit per
+ * field rounded up to whole bytes, then each present field in the number of bytes of
+ * its LogFieldType, such as 4 for an int and 1 for a boolean. Version 1 logs have no
+ * bitmask and every field is present, and logs before version 4 only have 8 byte 
+ * doubles. An event record (type 2) is an event laid out as described in LogEvent, 
+ * from version 3 on</li>
+ * </ol>
+ */
+public class BinarySink implements LogSink {
+	
+	/**
+	 * Bytes at the start of every binary log
+	 */
+	static final byte[] MAGIC = { 'R', 'L', 'O', 'G' };
+	
+	/**
+	 * Version of the format written by this class
+	 */
+	static final int VERSION = 4;
+	
+	/**
+	 * Record type for a row of samples
+	 */
+	static final byte RECORD_ROW = 1;
+	
+	/**
+	 * Record type for an event
+	 */
+	static final byte RECORD_EVENT = 2;
+	
+	/**
+	 * Number of rows between entries in the time index
+	 */
+	static final int INDEX_INTERVAL = 128;
+	
+	private final OutputStream out;
+	
+	/**
+	 * Time index written next to the log, or null if there isn't one
+	 */
+	private final LogIndexWriter index;
+	
+	/**
+	 * Number of bytes and rows written so far
+	 */
+	private long position = 0;
+	private long rowCount = 0;
+	
+	/**
+	 * Reused for every row, sized once the number of fields is known
+	 */
+	private ByteBuffer row = null;
+	private int fieldCount = 0;
+	private LogFieldType[] types = null;
+
+	/**
+	 * Creates a sink that writes to the given file, replacing anything already in it
+	 * 
+	 * @param path Path of the file to write
+	 * @throws IOException if the file can't be opened
+	 */
+	public BinarySink(String path) throws IOException {
+		this(new StreamLogOutput(path, false), new StreamLogOutput(LogIndex.pathFor(path), false));
+	}
+
+	/**
+	 * Creates a sink that writes to the given stream
+	 * 
+	 * @param out Stream to write to, it is closed when the sink is closed. If it is a 
+	 *        LogOutput, sync() syncs it to disk
+	 */
+	public BinarySink(OutputStream out) {
+		this.out = out;
+		this.index = null;
+	}
+
+	/**
+	 * Creates a sink that writes to the given stream and a time index of it, so it can
+	 * be read with LogReader
+	 * 
+	 * @param out Stream to write to, it is closed when the sink is closed. If it is a 
+	 *        LogOutput, sync() syncs it to disk
+	 * @param index Stream to write the index to, normally a file named after the log
+	 *        with ".idx" added. It is closed when the sink is closed
+	 * @throws IOException if the index can't be written
+	 */
+	public BinarySink(OutputStream out, OutputStream index) throws IOException {
+		this.out = out;
+		this.index = new LogIndexWriter(index);
+	}
+
+	@Override
+	public void open(String[] fieldNames, String[] unitNames, LogFieldType[] fieldTypes) throws IOException {
+		LogHeader header = new LogHeader(MAGIC, VERSION, fieldNames, unitNames, fieldTypes);
+		position = header.write(out);
+		
+		fieldCount = fieldNames.length;
+		types = header.fieldTypes;
+		int rowBytes = 0;
+		for (LogFieldType type : types) {
+			rowBytes += type.bytes;
+		}
+		row = ByteBuffer.allocate(1 + 8 + (fieldCount + 7) / 8 + rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public void writeRow(double timestamp, long[] values, long[] present) throws IOException {
+		row.clear();
+		row.put(RECORD_ROW);
+		row.putDouble(timestamp);
+		
+		for (int i = 0; i < fieldCount; i += 8) {
+			int bits = present == null ? 0xFF : (int) (present[i >> 6] >>> (i & 63)) & 0xFF;
+			if (fieldCount - i < 8) {
+				// Leave the bits past the last field clear
+				bits &= (1 << (fieldCount - i)) - 1;
+			}
+			row.put((byte) bits);
+		}
+		for (int i = 0; i < fieldCount; i++) {
+			if (present == null || (present[i >> 6] & (1L << i)) != 0) {
+				types[i].put(row, values[i]);
+			}
+		}
+		if (index != null && rowCount % INDEX_INTERVAL == 0) {
+			index.add(timestamp, position);
+		}
+		out.write(row.array(), 0, row.position());
+		position += row.position();
+		rowCount++;
+	}
+
+	@Override
+	public void writeEvent(double timestamp, LogEvent.Type type, String source, String message) throws IOException {
+		out.write(RECORD_EVENT);
+		position += 1 + LogEvent.write(out, timestamp, type, source, message);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+		if (index != null) {
+			index.flush();
+		}
+	}
+
+	@Override
+	public void sync() throws IOException {
+		out.flush();
+		if (out instanceof LogOutput) {
+			((LogOutput) out).sync();
+		}
+		if (index != null) {
+			index.sync();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			out.close();
+		} finally {
+			if (index != null) {
+				index.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package util.logging;
+
+/**
+ * Reads values written by a BitWriter back out of a byte array
+ */
+final class BitReader {
+	
+	private byte[] bytes;
+	private int position;
+	private int current;
+	
+	/**
+	 * Number of bits of current that have already been read
+	 */
+	private int used;
+
+	/**
+	 * Starts reading from the beginning of an array
+	 */
+	void reset(byte[] bytes) {
+		this.bytes = bytes;
+		position = 0;
+		used = 8;
+	}
+
+	/**
+	 * Reads an unsigned value
+	 * 
+	 * @param count Number of bits to read, 1 to 64
+	 * @return the value
+	 */
+	long read(int count) {
+		long value = 0;
+		
+		while (count > 0) {
+			if (used == 8) {
+				current = bytes[position++] & 0xFF;
+				used = 0;
+			}
+			int n = Math.min(8 - used, count);
+			int chunk = (current >>> (8 - used - n)) & ((1 << n) - 1);
+			
+			value = (value << n) | chunk;
+			used += n;
+			count -= n;
+		}
+		return value;
+	}
+
+	/**
+	 * Reads a value and sign extends it
+	 * 
+	 * @param count Number of bits to read, 1 to 64
+	 * @return the value
+	 */
+	long readSigned(int count) {
+		long value = read(count);
+		return (value << (64 - count)) >> (64 - count);
+	}
+
+	/**
+	 * Reads a single bit
+	 */
+	boolean readBit() {
+		return read(1) != 0;
+	}
+}
@@ -0,0 +1,88 @@
+package util.logging;
+
+import java.util.Arrays;
+
+/**
+ * Packs values of any number of bits into a growing byte array, most significant
+ * bit first. Used to build the blocks of a compressed log
+ */
+final class BitWriter {
+	
+	private byte[] bytes = new byte[4096];
+	
+	/**
+	 * Number of whole bytes written
+	 */
+	private int length = 0;
+	
+	/**
+	 * Byte being filled and how many of its bits are used
+	 */
+	private int current = 0;
+	private int used = 0;
+
+	/**
+	 * Writes the lowest bits of a value
+	 * 
+	 * @param value Value to write
+	 * @param count Number of bits to write, 1 to 64
+	 */
+	void write(long value, int count) {
+		while (count > 0) {
+			int n = Math.min(8 - used, count);
+			int chunk = (int) (value >>> (count - n)) & ((1 << n) - 1);
+			
+			current |= chunk << (8 - used - n);
+			used += n;
+			count -= n;
+			
+			if (used == 8) {
+				if (length == bytes.length) {
+					bytes = Arrays.copyOf(bytes, bytes.length * 2);
+				}
+				bytes[length++] = (byte) current;
+				current = 0;
+				used = 0;
+			}
+		}
+	}
+
+	/**
+	 * Writes a single bit
+	 */
+	void writeBit(boolean bit) {
+		write(bit ? 1 : 0, 1);
+	}
+
+	/**
+	 * Pads the last byte with zeros
+	 */
+	void finish() {
+		if (used > 0) {
+			write(0, 8 - used);
+		}
+	}
+
+	/**
+	 * @return bytes written, only the first size() are used
+	 */
+	byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return number of whole bytes written
+	 */
+	int size() {
+		return length;
+	}
+
+	/**
+	 * Empties the writer so it can be reused
+	 */
+	void reset() {
+		length = 0;
+		current = 0;
+		used = 0;
+	}
+}
@@ -0,0 +1,284 @@
+package util.logging;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a log written by CompressedSink one row at a time. Only one block is held in
+ * memory, so any size of log can be read. Use LogFileReader.open() to read a log
+ * without knowing which format it is in.
+ */
+public class CompressedLogReader implements LogFileReader {
+	
+	private final DataInputStream in;
+	private final String[] fieldNames;
+	private final String[] unitNames;
+	private final LogFieldType[] fieldTypes;
+	
+	private final BitReader bits = new BitReader();
+	private byte[] block = new byte[4096];
+	private int blockRows = 0;
+	private int rowInBlock = 0;
+	
+	private long time;
+	private long delta;
+	private final long[] valueBits;
+	private final int[] leading;
+	private final int[] trailing;
+	private final boolean[] started;
+	private final long[] rawValues;
+	private final double[] values;
+	private final long[] present;
+	
+	/**
+	 * Events read since the last row
+	 */
+	private final List<LogEvent> events = new ArrayList<LogEvent>();
+	
+	/**
+	 * Set if each value has a bit saying whether it is present, false for version 1 logs
+	 */
+	private final boolean hasPresence;
+
+	/**
+	 * Opens a compressed log and reads its header
+	 * 
+	 * @param path Path of the file to read
+	 * @throws IOException if the file can't be read or is not a compressed log
+	 */
+	public CompressedLogReader(String path) throws IOException {
+		this(new BufferedInputStream(new FileInputStream(path), 65536));
+	}
+
+	/**
+	 * Reads a compressed log from a stream, starting with its header
+	 * 
+	 * @param stream Stream to read from, it is closed when the reader is closed
+	 * @throws IOException if the stream can't be read or is not a compressed log
+	 */
+	public CompressedLogReader(InputStream stream) throws IOException {
+		this(new DataInputStream(stream), null);
+	}
+
+	/**
+	 * Reads a compressed log from a stream. Used by LogReader to start reading part way
+	 * through a log, with the header read from the start of the file
+	 * 
+	 * @param stream Stream to read from, it is closed when the reader is closed
+	 * @param header Header of the log if the stream is positioned at the start of a 
+	 *        record, or null to read the header from the stream first
+	 * @throws IOException if the stream can't be read or is not a compressed log
+	 */
+	CompressedLogReader(DataInputStream stream, LogHeader header) throws IOException {
+		in = stream;
+		
+		if (header == null) {
+			try {
+				header = LogHeader.read(in, CompressedSink.MAGIC, 1, CompressedSink.VERSION);
+			} catch (IOException e) {
+				in.close();
+				throw e;
+			}
+		}
+		fieldNames = header.fieldNames;
+		unitNames = header.unitNames;
+		fieldTypes = header.fieldTypes;
+		
+		valueBits = new long[fieldNames.length];
+		leading = new int[fieldNames.length];
+		trailing = new int[fieldNames.length];
+		started = new boolean[fieldNames.length];
+		rawValues = new long[fieldNames.length];
+		values = new double[fieldNames.length];
+		present = new long[(fieldNames.length + 63) / 64];
+		hasPresence = header.version >= 2;
+	}
+
+	/**
+	 * Reads the next block into memory
+	 * 
+	 * @return false at the end of the log. A block that was cut off, such as by a 
+	 *         brownout, is treated as the end of the log
+	 */
+	private boolean readBlock() throws IOException {
+		int type;
+		
+		try {
+			while ((type = in.read()) == CompressedSink.RECORD_EVENT) {
+				events.add(LogEvent.read(in));
+			}
+		} catch (EOFException e) {
+			return false;
+		}
+		if (type <= 0) {
+			return false;
+		}
+		if (type != CompressedSink.RECORD_BLOCK) {
+			throw new IOException("Unknown record type " + type);
+		}
+		
+		try {
+			ByteBuffer header = LogHeader.readBytes(in, 8);
+			blockRows = header.getInt();
+			int length = header.getInt();
+			
+			if (length > block.length) {
+				block = new byte[Math.max(length, block.length * 2)];
+			}
+			in.readFully(block, 0, length);
+		} catch (EOFException e) {
+			return false;
+		}
+		
+		bits.reset(block);
+		rowInBlock = 0;
+		return true;
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		events.clear();
+		if (rowInBlock >= blockRows && !readBlock()) {
+			return false;
+		}
+		
+		if (rowInBlock == 0) {
+			time = bits.read(64);
+			delta = 0;
+		} else {
+			delta += readTimeChange();
+			time += delta;
+		}
+		
+		Arrays.fill(present, 0);
+		for (int i = 0; i < values.length; i++) {
+			if (rowInBlock == 0) {
+				started[i] = false;
+			}
+			
+			if (hasPresence && !bits.readBit()) {
+				values[i] = Double.NaN;
+				rawValues[i] = 0;
+				continue;
+			}
+			present[i >> 6] |= 1L << i;
+			
+			if (fieldTypes[i] == LogFieldType.BOOLEAN) {
+				valueBits[i] = bits.readBit() ? 1 : 0;
+			} else if (!started[i]) {
+				valueBits[i] = bits.read(fieldTypes[i].bytes * 8);
+				leading[i] = -1;
+				started[i] = true;
+			} else {
+				readValue(i);
+			}
+			rawValues[i] = valueBits[i];
+			values[i] = fieldTypes[i].toDouble(valueBits[i]);
+		}
+		
+		rowInBlock++;
+		return true;
+	}
+
+	/**
+	 * Reads a change in the time between rows written by CompressedSink.writeTimeChange()
+	 */
+	private long readTimeChange() {
+		if (!bits.readBit()) {
+			return 0;
+		}
+		if (!bits.readBit()) {
+			return bits.readSigned(7);
+		}
+		if (!bits.readBit()) {
+			return bits.readSigned(9);
+		}
+		if (!bits.readBit()) {
+			return bits.readSigned(12);
+		}
+		if (!bits.readBit()) {
+			return bits.readSigned(32);
+		}
+		return bits.read(64);
+	}
+
+	/**
+	 * Reads the bits that changed in a column written by CompressedSink.writeValue()
+	 */
+	private void readValue(int column) {
+		if (!bits.readBit()) {
+			return;
+		}
+		
+		if (bits.readBit()) {
+			leading[column] = (int) bits.read(5);
+			int meaningful = (int) bits.read(6) + 1;
+			trailing[column] = 64 - leading[column] - meaningful;
+		}
+		int meaningful = 64 - leading[column] - trailing[column];
+		valueBits[column] ^= bits.read(meaningful) << trailing[column];
+	}
+
+	@Override
+	public String[] getFieldNames() {
+		return fieldNames.clone();
+	}
+
+	@Override
+	public String[] getUnitNames() {
+		return unitNames.clone();
+	}
+
+	@Override
+	public double getTimestamp() {
+		return time / 1e6;
+	}
+
+	@Override
+	public double get(int column) {
+		return values[column];
+	}
+
+	@Override
+	public double[] getValues() {
+		return values;
+	}
+
+	@Override
+	public LogFieldType[] getFieldTypes() {
+		return fieldTypes.clone();
+	}
+
+	@Override
+	public long[] getRawValues() {
+		return rawValues;
+	}
+
+	@Override
+	public long getLong(int column) {
+		return fieldTypes[column].toLong(rawValues[column]);
+	}
+
+	@Override
+	public long[] getPresent() {
+		return present;
+	}
+
+	@Override
+	public List<LogEvent> getEvents() {
+		return events;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,333 @@
+package util.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes log rows compressed column by column as they arrive. Most logged values,
+ * like encoder positions, yaw and joystick axes, change slowly from one row to the
+ * next, so only the bits that changed are stored:
+ * <ul>
+ * <li>Timestamps are rounded to the microsecond and stored as the change in the time 
+ * between rows (delta-of-delta), which is 1 bit for a row that came exactly one loop
+ * period after the last one</li>
+ * <li>Values are XORed with the last value of the same column and only the bits that
+ * changed are stored (Gorilla encoding), which is 1 bit for a value that didn't change.
+ * The first value of a column in each block takes the number of bits of its 
+ * LogFieldType, and booleans are always stored as a single bit</li>
+ * <li>Each value is preceded by 1 bit saying whether the field is present in the row</li>
+ * </ul>
+ * Rows are encoded into blocks that each start from scratch, so a reader can start at
+ * any block and a log cut off by a power loss only loses its last block. Use 
+ * CompressedLogReader or LogFileReader.open() to read the file back.
+ * <br>
+ * <br>
+ * FORMAT (all numbers little-endian):
+ * <ol>
+ * <li>Header: see LogHeader, with the magic bytes "RLOZ"</li>
+ * <li>Blocks: a 1 byte record type (2), a 4 byte row count, a 4 byte length and then
+ * that many bytes of encoded rows</li>
+ * <li>Events: a 1 byte record type (3) and an event laid out as described in LogEvent,
+ * from version 3 on. The block being encoded is ended first, so an event comes after
+ * every row sampled before it</li>
+ * </ol>
+ */
+public class CompressedSink implements LogSink {
+	
+	/**
+	 * Bytes at the start of every compressed log
+	 */
+	static final byte[] MAGIC = { 'R', 'L', 'O', 'Z' };
+	
+	/**
+	 * Version of the format written by this class
+	 */
+	static final int VERSION = 4;
+	
+	/**
+	 * Record type for a block of rows
+	 */
+	static final byte RECORD_BLOCK = 2;
+	
+	/**
+	 * Record type for an event
+	 */
+	static final byte RECORD_EVENT = 3;
+	
+	/**
+	 * Default number of rows in each block
+	 */
+	public static final int DEFAULT_BLOCK_ROWS = 256;
+	
+	private final OutputStream out;
+	private final int blockRows;
+	
+	/**
+	 * Time index written next to the log, with an entry for every block, or null if
+	 * there isn't one
+	 */
+	private final LogIndexWriter index;
+	
+	/**
+	 * Number of bytes written so far and the time of the first row in the current block
+	 */
+	private long position = 0;
+	private double blockStart;
+	private final BitWriter bits = new BitWriter();
+	private final ByteBuffer blockHeader = ByteBuffer.allocate(9).order(ByteOrder.LITTLE_ENDIAN);
+	
+	private int rowsInBlock = 0;
+	private long lastTime;
+	private long lastDelta;
+	
+	/**
+	 * Bits of the last value in each column and the position of the bits that changed
+	 * the last time it was stored, -1 when there is no last position
+	 */
+	private long[] lastValues;
+	private int[] lastLeading;
+	private int[] lastTrailing;
+	
+	/**
+	 * Set once a column has had a value in the current block
+	 */
+	private boolean[] started;
+	
+	private LogFieldType[] types;
+
+	/**
+	 * Creates a sink that writes to the given file, replacing anything already in it
+	 * 
+	 * @param path Path of the file to write
+	 * @throws IOException if the file can't be opened
+	 */
+	public CompressedSink(String path) throws IOException {
+		this(new StreamLogOutput(path, false), new StreamLogOutput(LogIndex.pathFor(path), false), DEFAULT_BLOCK_ROWS);
+	}
+
+	/**
+	 * Creates a sink that writes to the given stream with the default block size
+	 * 
+	 * @param out Stream to write to, it is closed when the sink is closed. If it is a 
+	 *        LogOutput, sync() syncs it to disk
+	 */
+	public CompressedSink(OutputStream out) {
+		this(out, DEFAULT_BLOCK_ROWS);
+	}
+
+	/**
+	 * Creates a sink that writes to the given stream
+	 * 
+	 * @param out Stream to write to, it is closed when the sink is closed. If it is a 
+	 *        LogOutput, sync() syncs it to disk
+	 * @param blockRows Largest number of rows in each block. Bigger blocks compress a
+	 *        little better but lose more rows if the log is cut off. Blocks are also
+	 *        ended early every time the sink is flushed
+	 */
+	public CompressedSink(OutputStream out, int blockRows) {
+		this.out = out;
+		this.blockRows = Math.max(1, blockRows);
+		this.index = null;
+	}
+
+	/**
+	 * Creates a sink that writes to the given stream and a time index of it, so it can
+	 * be read with LogReader
+	 * 
+	 * @param out Stream to write to, it is closed when the sink is closed. If it is a 
+	 *        LogOutput, sync() syncs it to disk
+	 * @param index Stream to write the index to, normally a file named after the log
+	 *        with ".idx" added. It is closed when the sink is closed
+	 * @param blockRows Largest number of rows in each block
+	 * @throws IOException if the index can't be written
+	 */
+	public CompressedSink(OutputStream out, OutputStream index, int blockRows) throws IOException {
+		this.out = out;
+		this.blockRows = Math.max(1, blockRows);
+		this.index = new LogIndexWriter(index);
+	}
+
+	@Override
+	public void open(String[] fieldNames, String[] unitNames, LogFieldType[] fieldTypes) throws IOException {
+		LogHeader header = new LogHeader(MAGIC, VERSION, fieldNames, unitNames, fieldTypes);
+		position = header.write(out);
+		types = header.fieldTypes;
+		
+		lastValues = new long[fieldNames.length];
+		lastLeading = new int[fieldNames.length];
+		lastTrailing = new int[fieldNames.length];
+		started = new boolean[fieldNames.length];
+	}
+
+	@Override
+	public void writeRow(double timestamp, long[] values, long[] present) throws IOException {
+		long time = Math.round(timestamp * 1e6);
+		
+		if (rowsInBlock == 0) {
+			bits.write(time, 64);
+			lastDelta = 0;
+			blockStart = time / 1e6;
+		} else {
+			long delta = time - lastTime;
+			writeTimeChange(delta - lastDelta);
+			lastDelta = delta;
+		}
+		lastTime = time;
+		
+		for (int i = 0; i < values.length; i++) {
+			if (rowsInBlock == 0) {
+				started[i] = false;
+			}
+			
+			boolean isPresent = present == null || (present[i >> 6] & (1L << i)) != 0;
+			bits.writeBit(isPresent);
+			if (!isPresent) {
+				continue;
+			}
+			
+			long value = values[i];
+			if (types[i] == LogFieldType.BOOLEAN) {
+				bits.writeBit(value != 0);
+				continue;
+			}
+			if (!started[i]) {
+				bits.write(value, types[i].bytes * 8);
+				lastLeading[i] = -1;
+				started[i] = true;
+			} else {
+				writeValue(i, value ^ lastValues[i]);
+			}
+			lastValues[i] = value;
+		}
+		
+		if (++rowsInBlock >= blockRows) {
+			writeBlock();
+		}
+	}
+
+	@Override
+	public void writeEvent(double timestamp, LogEvent.Type type, String source, String message) throws IOException {
+		writeBlock();
+		out.write(RECORD_EVENT);
+		position += 1 + LogEvent.write(out, timestamp, type, source, message);
+	}
+
+	/**
+	 * Stores the change in the time between rows using the smallest size that fits
+	 */
+	private void writeTimeChange(long change) {
+		if (change == 0) {
+			bits.write(0b0, 1);
+		} else if (fits(change, 7)) {
+			bits.write(0b10, 2);
+			bits.write(change, 7);
+		} else if (fits(change, 9)) {
+			bits.write(0b110, 3);
+			bits.write(change, 9);
+		} else if (fits(change, 12)) {
+			bits.write(0b1110, 4);
+			bits.write(change, 12);
+		} else if (fits(change, 32)) {
+			bits.write(0b11110, 5);
+			bits.write(change, 32);
+		} else {
+			bits.write(0b11111, 5);
+			bits.write(change, 64);
+		}
+	}
+
+	/**
+	 * @return true if value fits in a signed number of the given bits
+	 */
+	private static boolean fits(long value, int bitCount) {
+		long limit = 1L << (bitCount - 1);
+		return value >= -limit && value < limit;
+	}
+
+	/**
+	 * Stores the bits that changed in a column, reusing the last position of the
+	 * changed bits if they still fit in it
+	 */
+	private void writeValue(int column, long xor) {
+		if (xor == 0) {
+			bits.writeBit(false);
+			return;
+		}
+		bits.writeBit(true);
+		
+		int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+		int trailing = Long.numberOfTrailingZeros(xor);
+		
+		if (lastLeading[column] >= 0 && leading >= lastLeading[column] && trailing >= lastTrailing[column]) {
+			bits.writeBit(false);
+			bits.write(xor >>> lastTrailing[column], 64 - lastLeading[column] - lastTrailing[column]);
+		} else {
+			int meaningful = 64 - leading - trailing;
+			
+			bits.writeBit(true);
+			bits.write(leading, 5);
+			bits.write(meaningful - 1, 6);
+			bits.write(xor >>> trailing, meaningful);
+			lastLeading[column] = leading;
+			lastTrailing[column] = trailing;
+		}
+	}
+
+	/**
+	 * Writes out the rows encoded so far as a block and starts a new one
+	 */
+	private void writeBlock() throws IOException {
+		if (rowsInBlock == 0) {
+			return;
+		}
+		bits.finish();
+		
+		if (index != null) {
+			index.add(blockStart, position);
+		}
+		
+		blockHeader.clear();
+		blockHeader.put(RECORD_BLOCK).putInt(rowsInBlock).putInt(bits.size());
+		out.write(blockHeader.array());
+		out.write(bits.getBytes(), 0, bits.size());
+		position += blockHeader.capacity() + bits.size();
+		
+		bits.reset();
+		rowsInBlock = 0;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writeBlock();
+		out.flush();
+		if (index != null) {
+			index.flush();
+		}
+	}
+
+	@Override
+	public void sync() throws IOException {
+		writeBlock();
+		out.flush();
+		if (out instanceof LogOutput) {
+			((LogOutput) out).sync();
+		}
+		if (index != null) {
+			index.sync();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			writeBlock();
+		} finally {
+			out.close();
+			if (index != null) {
+				index.close();
+			}
+		}
+	}
+}
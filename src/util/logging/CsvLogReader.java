@@ -0,0 +1,393 @@
+package util.logging;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a log written by CsvSink one line at a time. Only one row is held in memory,
+ * so any size of log can be read. Use LogFileReader.open() to read a log without
+ * knowing which format it is in.
+ * <br>
+ * <br>
+ * CSV logs don't store when each row was sampled, so getTimestamp() returns NaN,
+ * unless the reader was opened by LogReader, which gives it the times from the log's
+ * index. Empty cells and cells that aren't numbers are read as not present, and 
+ * "#event" lines are returned from getEvents().
+ */
+public class CsvLogReader implements LogFileReader {
+
+	private final BufferedReader in;
+	private final String[] fieldNames;
+	private final String[] unitNames;
+
+	private final double[] values;
+	private final long[] present;
+
+	/**
+	 * Events read since the last row
+	 */
+	private final List<LogEvent> events = new ArrayList<LogEvent>();
+
+	/**
+	 * Time index with an entry for every row, or null if the times aren't known
+	 */
+	private final LogIndex index;
+
+	/**
+	 * Entry in the index of the current row
+	 */
+	private int entry;
+
+	/**
+	 * Byte offset in the file of the next line, only counted when there is an index
+	 */
+	private long offset;
+
+	/**
+	 * Opens a CSV log and reads its header
+	 *
+	 * @param path Path of the file to read
+	 * @throws IOException if the file can't be read
+	 */
+	public CsvLogReader(String path) throws IOException {
+		this(new FileInputStream(path));
+	}
+
+	/**
+	 * Reads a CSV log from a stream, starting with its header
+	 *
+	 * @param stream Stream to read from, it is closed when the reader is closed
+	 * @throws IOException if the stream can't be read or has no header
+	 */
+	public CsvLogReader(InputStream stream) throws IOException {
+		in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 65536);
+
+		try {
+			String names = in.readLine();
+			String units = in.readLine();
+			if (names == null || units == null) {
+				throw new IOException("CSV log has no header");
+			}
+			fieldNames = splitHeader(names);
+			unitNames = Arrays.copyOf(splitHeader(units), fieldNames.length);
+			for (int i = 0; i < unitNames.length; i++) {
+				if (unitNames[i] == null) {
+					unitNames[i] = "";
+				}
+			}
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		values = new double[fieldNames.length];
+		present = new long[(fieldNames.length + 63) / 64];
+		index = null;
+	}
+
+	/**
+	 * Reads a CSV log from a stream that is already past the header, such as at an
+	 * offset from the log's index, getting the time of each row from the index. Only
+	 * lines in the index are read as rows
+	 *
+	 * @param stream Stream to read from, at the start of a line. It is closed when the
+	 *        reader is closed
+	 * @param fieldNames Names of each column, from the log's header
+	 * @param unitNames Units of each column, from the log's header
+	 * @param index Time index of the log, with an entry for every row
+	 * @param entry Entry in the index of the first row in the stream
+	 */
+	CsvLogReader(InputStream stream, String[] fieldNames, String[] unitNames, LogIndex index, int entry) {
+		in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 65536);
+		this.fieldNames = fieldNames;
+		this.unitNames = unitNames;
+		this.index = index;
+		this.entry = entry - 1;
+		offset = entry < index.size() ? index.getOffset(entry) : -1;
+		values = new double[fieldNames.length];
+		present = new long[(fieldNames.length + 63) / 64];
+	}
+
+	/**
+	 * Splits a header line written by CsvSink, which ends every cell with ", "
+	 */
+	private static String[] splitHeader(String line) {
+		List<String> cells = new ArrayList<String>();
+		int start = 0;
+		int comma;
+
+		while ((comma = line.indexOf(',', start)) >= 0) {
+			cells.add(line.substring(start, comma).trim());
+			start = comma + 1;
+		}
+		if (!line.substring(start).trim().isEmpty()) {
+			cells.add(line.substring(start).trim());
+		}
+		return cells.toArray(new String[cells.size()]);
+	}
+
+	/**
+	 * Moves to the next row in the log
+	 *
+	 * @return true if there was another row, false at the end of the log
+	 * @throws IOException if the file can't be read
+	 */
+	@Override
+	public boolean next() throws IOException {
+		events.clear();
+		String line;
+
+		while ((line = in.readLine()) != null) {
+			long start = offset;
+			if (index != null) {
+				offset += utf8Length(line) + 1;
+			}
+			
+			if (line.startsWith("#event")) {
+				LogEvent event = parseEvent(line);
+				if (event != null) {
+					events.add(event);
+				}
+			} else if (!line.isEmpty() && line.charAt(0) != '#') {
+				if (index != null && !isNextEntry(start)) {
+					// Not a row in the index, such as the header of rows added to the
+					// end of the log later
+					continue;
+				}
+				parseRow(line);
+				entry++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the next entry in the index is the line at an offset
+	 */
+	private boolean isNextEntry(long lineOffset) {
+		return entry + 1 < index.size() && index.getOffset(entry + 1) == lineOffset;
+	}
+
+	/**
+	 * @return number of bytes a line takes in the file, not counting the line break
+	 */
+	private static int utf8Length(String line) {
+		int length = line.length();
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c >= 0x800) {
+				// Surrogate pairs are 4 bytes for the two chars
+				length += Character.isSurrogate(c) ? 1 : 2;
+			} else if (c >= 0x80) {
+				length++;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Reads the cells of a row into values, without creating a string per cell
+	 */
+	private void parseRow(String line) {
+		Arrays.fill(present, 0);
+		int column = 0;
+		int start = 0;
+
+		while (column < values.length && start <= line.length()) {
+			int comma = line.indexOf(',', start);
+			int end = comma < 0 ? line.length() : comma;
+
+			values[column] = parseNumber(line, start, end);
+			if (!Double.isNaN(values[column])) {
+				present[column >> 6] |= 1L << column;
+			}
+			column++;
+			if (comma < 0) {
+				break;
+			}
+			start = comma + 1;
+		}
+		for (; column < values.length; column++) {
+			values[column] = Double.NaN;
+		}
+	}
+
+	/**
+	 * Reads a number from part of a line
+	 *
+	 * @return the number, or NaN if the cell is empty or not a number
+	 */
+	private static double parseNumber(String line, int start, int end) {
+		while (start < end && line.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && line.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		if (start == end) {
+			return Double.NaN;
+		}
+
+		// Most cells are short decimals, which are read directly. Anything else, like
+		// exponents or more digits than a long holds, goes through parseDouble
+		int i = start;
+		boolean negative = line.charAt(i) == '-';
+		if (negative) {
+			i++;
+		}
+		long digits = 0;
+		int count = 0;
+		int decimals = -1;
+		for (; i < end; i++) {
+			char c = line.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits = digits * 10 + (c - '0');
+				count++;
+				if (decimals >= 0) {
+					decimals++;
+				}
+			} else if (c == '.' && decimals < 0) {
+				decimals = 0;
+			} else {
+				break;
+			}
+		}
+		if (i == end && count > 0 && count <= 15 && decimals < POWERS_OF_TEN.length) {
+			// Both are exact as doubles, so dividing rounds correctly
+			double value = decimals > 0 ? digits / POWERS_OF_TEN[decimals] : digits;
+			return negative ? -value : value;
+		}
+
+		try {
+			return Double.parseDouble(line.substring(start, end));
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * Reads an event line written by CsvSink.writeEvent()
+	 *
+	 * @return the event, or null if the line can't be read
+	 */
+	private static LogEvent parseEvent(String line) {
+		List<String> cells = new ArrayList<String>(4);
+		int i = line.indexOf(',') + 1;
+
+		while (i > 0 && i <= line.length() && cells.size() < 4) {
+			while (i < line.length() && line.charAt(i) == ' ') {
+				i++;
+			}
+			StringBuilder cell = new StringBuilder();
+			if (i < line.length() && line.charAt(i) == '"') {
+				// Quoted, with quotes inside doubled
+				for (i++; i < line.length(); i++) {
+					char c = line.charAt(i);
+					if (c == '"') {
+						if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+							i++;
+						} else {
+							break;
+						}
+					}
+					cell.append(c);
+				}
+				i = line.indexOf(',', i) + 1;
+			} else {
+				int comma = line.indexOf(',', i);
+				cell.append(line.substring(i, comma < 0 ? line.length() : comma).trim());
+				i = comma + 1;
+			}
+			cells.add(cell.toString());
+			if (i == 0) {
+				break;
+			}
+		}
+		if (cells.size() < 4) {
+			return null;
+		}
+
+		try {
+			LogEvent.Type type;
+			try {
+				type = LogEvent.Type.valueOf(cells.get(1));
+			} catch (IllegalArgumentException e) {
+				type = LogEvent.Type.INFO;
+			}
+			return new LogEvent(Double.parseDouble(cells.get(0)), type, cells.get(2), cells.get(3));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return names of each column
+	 */
+	@Override
+	public String[] getFieldNames() {
+		return fieldNames.clone();
+	}
+
+	/**
+	 * @return units of each column
+	 */
+	@Override
+	public String[] getUnitNames() {
+		return unitNames.clone();
+	}
+
+	/**
+	 * @return time in seconds of the current row from the index, or NaN if the reader
+	 *         has no index
+	 */
+	@Override
+	public double getTimestamp() {
+		if (index == null || entry < 0) {
+			return Double.NaN;
+		}
+		return index.getTimestamp(entry);
+	}
+
+	/**
+	 * @param column Column to get
+	 * @return value of the column in the current row
+	 */
+	@Override
+	public double get(int column) {
+		return values[column];
+	}
+
+	/**
+	 * @return values of every column in the current row, only valid until next() is
+	 *         called. Columns that aren't present in the row are NaN
+	 */
+	@Override
+	public double[] getValues() {
+		return values;
+	}
+
+	@Override
+	public long[] getPresent() {
+		return present;
+	}
+
+	@Override
+	public List<LogEvent> getEvents() {
+		return events;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
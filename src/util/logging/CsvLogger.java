@@ -1,31 +1,20 @@
 package util.logging;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
-import java.util.Vector;
-
-import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.RobotState;
-import util.loops.Loop;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.lang.invoke.MethodHandles;
-import java.lang.invoke.MethodType;
-import java.lang.invoke.MethodHandle;
-import static java.lang.invoke.MethodType.*;
+import util.loops.Loop;
 
 /**
  * DESCRIPTION: <br>
  * Provides an API for FRC 955 data logging on the robot during testing or
  * matches. Will write lines into a CSV file with a unique name between calls to
- * init() and close(). This implementation utilizes java's "methodHandles"
- * libraries to refer to the data which is to be put into the log. It is also a
- * static class, which needs no instantiation. <br>
+ * init() and close(). It is a static class, which needs no instantiation, and 
+ * passes every call on to a default DataLogger named "log". See DataLogger for how
+ * logging works, and create more DataLoggers to write several logs at once. <br>
  * <br>
  * USAGE:
  * <ol>
@@ -44,215 +33,176 @@ import static java.lang.invoke.MethodType.*;
  */
 public class CsvLogger {
 
-	static long logWriteIndex;
-	static String logName = null;
-	static BufferedWriter logFile = null;
-	static boolean logOpen = false;
-	static String outputDir = "/home/lvuser/logFiles";
-
-	static Vector<String> dataFieldNames = new Vector<String>();
-	static Vector<String> unitNames = new Vector<String>();
-	static Vector<MethodHandle> methodHandles = new Vector<MethodHandle>();
-	static Vector<Vector<Object>> mhReferenceObjects = new Vector<Vector<Object>>();
-	static double lastLeftMotorCurrent = 0;
-	static double lastRightMotorCurrent = 0;
-
 	/**
-	 * Main loop that will log data periodically when running
+	 * Logger that every static method uses
 	 */
-	private final static Loop loop = new Loop() {
-
- 		@Override
- 		public void onStart() {
- 			init();
- 		}
+	static final DataLogger defaultLogger = new DataLogger("log");
 
- 		@Override
- 		public void onLoop() {
- 			logData(false );
- 		}
+	/**
+	 * @return logger that the static methods use, to use its other methods
+	 */
+	public static DataLogger getDefault() {
+		return defaultLogger;
+	}
 
- 		@Override
- 		public void onStop() {
- 			close();
- 		}
- 	};
- 	
  	/**
  	 * Use for starting loop through Looper class
  	 * @return main control loop
  	 */
  	public static Loop getLoop () {
-		return loop;
+		return defaultLogger.getLoop();
 	}
-	
+
 	/**
-	 * Clears the IO buffer in memory and forces things to file. Generally a good
-	 * idea to use this as infrequently as possible (because it increases logging
-	 * overhead), but definitely use it before the roboRIO might crash without a
-	 * proper call to the close() method (ie, during brownout)
+	 * Clears the IO buffer in memory and forces things to file. See DataLogger.forceSync()
 	 * 
-	 * @return 0 on flush success or -1 on failure.
+	 * @return 0 if the flush was requested or -1 if the log is not open.
 	 */
 	public static int forceSync() {
-		if (logOpen == false) {
-			DriverStation.reportError("Error - Log is not yet opened, cannot sync!", false);
-			return -1;
-		}
-		try {
-			logFile.flush();
-		}
-		// Catch ALL the errors!!!
-		catch (IOException e) {
-			DriverStation.reportError("Error flushing IO stream file: " + e.getMessage(), false);
-			return -1;
-		}
-
-		return 0;
+		return defaultLogger.forceSync();
 	}
 
 	/**
-	 * Closes the log file and ensures everything is written to disk. init() must be
-	 * called again in order to write to the file.
+	 * Closes the log file and ensures everything is written to disk. See DataLogger.close()
 	 * 
 	 * @return -1 on failure to close, 0 on success
 	 */
 	public static int close() {
-
-		if (logOpen == false) {
-			return 0;
-		}
-
-		try {
-			logFile.close();
-			logOpen = false;
-		}
-		// Catch ALL the errors!!!
-		catch (IOException e) {
-			DriverStation.reportError("Error Closing Log File: " + e.getMessage(), false);
-			return -1;
-		}
-		return 0;
-
+		return defaultLogger.close();
 	}
 
 	/**
-	 * Check whether there is presently a log file open and being written to.
+	 * Sets the format logs are written in. See DataLogger.setFormat()
 	 * 
-	 * @return True if there is an open log file, false otherwise.
+	 * @param newFormat Format of the log file
 	 */
-	public static boolean isLogOpen() {
-		return logOpen;
+	public static void setFormat(LogFormat newFormat) {
+		defaultLogger.setFormat(newFormat);
 	}
 
-	private static String getOpModeName() {
-		if (RobotState.isAutonomous()) {
-			return "Auto";
-		} else {
-			return "Teleop";
-		}
+	/**
+	 * @return format logs are written in
+	 */
+	public static LogFormat getFormat() {
+		return defaultLogger.getFormat();
 	}
 
-	private static String getDateTimeString() {
-		// Yes, I could have made this ISO, but I'm american and this format looks nicer
-		// to me.
-		DateFormat df = new SimpleDateFormat("dd-MMM-yyyy_hh.mm.ssa");
-		df.setTimeZone(TimeZone.getTimeZone("PST"));
-		return df.format(new Date());
+	/**
+	 * Sets how the log file is written. See DataLogger.setOutputMode()
+	 * 
+	 * @param mode How the log file is written
+	 */
+	public static void setOutputMode(LogOutput.Mode mode) {
+		defaultLogger.setOutputMode(mode);
 	}
 
 	/**
-	 * Determines a unique file name based on current timestamp, and opens a file in
-	 * the data captures directory and writes the initial lines to it. Timestamp
-	 * determination is done based on info received from the Driver station or FMS,
-	 * so improper time there will cause oddly-named log files. Takes no action if
-	 * log is already open.
+	 * Sets when the writer thread forces the log to disk. See DataLogger.setSyncPolicy()
 	 * 
-	 * @return 0 on successful log open, -1 on failure
+	 * @param policy When to sync the log
 	 */
-	public static int init() {
-
-		if (logOpen) {
-			DriverStation.reportWarning("Warning - log is already open!", false);
-			return 0;
-		}
-
-		logOpen = false;
-
-		// Determine a unique file name
-		logName = outputDir + "log_" + getDateTimeString() + "_" + getOpModeName() + ".csv";
-		System.out.println("Initalizing Log file  " + logName);
-
-		try {
-			// Reset state variables
-			logWriteIndex = 0;
+	public static void setSyncPolicy(LogSyncPolicy policy) {
+		defaultLogger.setSyncPolicy(policy);
+	}
 
-			// create directories, if they don't exist
-			File tempPathObj = new File(outputDir);
-			tempPathObj.mkdirs();
+	/**
+	 * Streams every logged row to a TelemetryListener. See DataLogger.setTelemetry()
+	 * 
+	 * @param host Name or address of the computer to send to, or null to stop streaming
+	 * @param port Port the listener is on
+	 * @param protocol How to send the rows
+	 */
+	public static void setTelemetry(String host, int port, TelemetrySink.Protocol protocol) {
+		defaultLogger.setTelemetry(host, port, protocol);
+	}
 
-			// Open File
-			FileWriter fstream = new FileWriter(logName, true);
-			logFile = new BufferedWriter(fstream);
+	/**
+	 * @return number of rows in the current or last log that couldn't be streamed 
+	 *         because the network fell behind
+	 */
+	public static long getTelemetryDropped() {
+		return defaultLogger.getTelemetryDropped();
+	}
 
-			// Write user-defined header line
-			for (String headerTxt : dataFieldNames) {
-				logFile.write(headerTxt + ", ");
-			}
-			// End of line
-			logFile.write("\n");
+	/**
+	 * Sets how many rows can be waiting to be written before new rows are dropped. 
+	 * See DataLogger.setBufferSize()
+	 * 
+	 * @param rows Number of rows the buffer can hold
+	 */
+	public static void setBufferSize(int rows) {
+		defaultLogger.setBufferSize(rows);
+	}
 
-			// Write user-defined units line
-			for (String headerTxt : unitNames) {
-				logFile.write(headerTxt + ", ");
-			}
-			// End of line
-			logFile.write("\n");
+	/**
+	 * @return number of rows dropped in the current or last log because the writer 
+	 *         thread fell behind
+	 */
+	public static long getDroppedSamples() {
+		return defaultLogger.getDroppedSamples();
+	}
 
-		}
-		// Catch ALL the errors!!!
-		catch (IOException e) {
-			DriverStation.reportError("ERROR - cannot initalize log file: " + e.getMessage(), false);
-			return -1;
-		}
+	/**
+	 * @return largest number of rows that were waiting to be written at once in the
+	 *         current or last log
+	 */
+	public static int getQueueHighWaterMark() {
+		return defaultLogger.getQueueHighWaterMark();
+	}
 
-		logOpen = true;
-		return 0;
+	/**
+	 * Check whether there is presently a log file open and being written to.
+	 * 
+	 * @return True if there is an open log file, false otherwise.
+	 */
+	public static boolean isLogOpen() {
+		return defaultLogger.isLogOpen();
+	}
 
+	/**
+	 * Opens a new log file and starts its writer thread. See DataLogger.init()
+	 * 
+	 * @return 0 on successful log open, -1 on failure
+	 */
+	public static int init() {
+		return defaultLogger.init();
 	}
 
 	/**
-	 * Logs data for all stored method handles. Methods that are not considered
-	 * "simple" should be handled accordingly within this method. This method should
-	 * be called once per loop.
+	 * Logs data for all stored fields. See DataLogger.logData()
 	 * 
 	 * @param forceSync
 	 *            set true if a forced write is desired (i.e. brownout conditions)
-	 * @return 0 if log successful, -1 if log is not open, and -2 on other errors
+	 * @return 0 if log successful, -1 if log is not open, -2 on other errors, and
+	 *         -3 if the buffer was full and the row was dropped
 	 */
 	public static int logData(boolean forceSync) {
-		if (!logOpen) {
-			// System.out.println("ERROR - Log is not yet opened, cannot write!");
-			return -1;
-		}
-
-		if (forceSync)
-			forceSync();
+		return defaultLogger.logData(forceSync);
+	}
 
-		try {
-			for (int i = 0; i < methodHandles.size(); i++) {
-				MethodHandle mh = methodHandles.get(i);
-				String fieldName = dataFieldNames.get(i);
-				Vector<Object> mhArgs = mhReferenceObjects.get(i);
-				logFile.write(getStandardLogData(mh, mhArgs, fieldName) + ", ");
-			}
-			logFile.write("\n");
-		} catch (Exception ex) {
-			DriverStation.reportError("Error writing to log file: " + ex.getMessage(), false);
-			return -2;
-		}
+	/**
+	 * Logs an event, such as a state change or an error, with the current time. See
+	 * DataLogger.logEvent()
+	 * 
+	 * @param type
+	 *            Kind of event
+	 * @param source
+	 *            What the event came from, such as "Drive"
+	 * @param message
+	 *            Details of the event, such as the new state
+	 * @return 0 if logged, -1 if the log is not open, and -3 if the queue was full and
+	 *         the event was dropped
+	 */
+	public static int logEvent(LogEvent.Type type, String source, String message) {
+		return defaultLogger.logEvent(type, source, message);
+	}
 
-		return 0;
+	/**
+	 * @return number of events dropped in the current or last log because the writer
+	 *         thread fell behind
+	 */
+	public static long getDroppedEvents() {
+		return defaultLogger.getDroppedEvents();
 	}
 
 	/**
@@ -260,214 +210,233 @@ public class CsvLogger {
 	 * an attempt to cache the results and not bog down the first loop.
 	 */
 	public static void preCacheAllMethods() {
-		try {
-			for (int i = 0; i < methodHandles.size(); i++) {
-				MethodHandle mh = methodHandles.get(i);
-				String fieldName = dataFieldNames.get(i);
-				Vector<Object> mhArgs = mhReferenceObjects.get(i);
-				getStandardLogData(mh, mhArgs, fieldName);
-			}
-		} catch (Exception ex) {
-			// do nothing
-		}
-
+		defaultLogger.preCacheAllMethods();
 	}
 
 	/**
-	 * Add a field to be logged at each loop of the robot code. A method handle will
-	 * be created and stored. This method is for non-static methods which return a
-	 * data type of double.
+	 * Add a field to be logged for a non-static method which returns a double. See
+	 * DataLogger.addLoggingFieldDouble()
 	 * 
 	 * @param dataFieldName
-	 *            Name of the field/column in the output data. Also used for
-	 *            determining what to do for "complex" methods
+	 *            Name of the field/column in the output data.
 	 * @param unitName
 	 *            Name of the units for field/column in the output data.
 	 * @param methodName
 	 *            Actual method name to be called for this field, such as
 	 *            "getRawButton"
 	 * @param reference
-	 *            A reference to the object whose method will be called. If static
-	 *            method, this should be null.
+	 *            A reference to the object whose method will be called.
 	 * @param args
 	 *            Optional list of arguments that are passed to the method, such as
 	 *            0 in getRawButton(0)
 	 */
 	public static void addLoggingFieldDouble(String dataFieldName, String unitName, String methodName, Object reference, Object... args) {
-		MethodType methodType = methodType(double.class);
-		
-		for (Object arg : args)
-			methodType = methodType.appendParameterTypes(arg.getClass());
-		
-		methodType = methodType.unwrap(); // assumes primitive wrappers should be primitives
-		addLoggingField(methodType, dataFieldName, unitName, reference.getClass(), methodName, reference, args);
+		defaultLogger.addLoggingFieldDouble(dataFieldName, unitName, methodName, reference, args);
 	}
 
 	/**
-	 * Add a field to be logged at each loop of the robot code. A method handle will
-	 * be created and stored. This method is for STATIC methods which return a data
-	 * type of double.
+	 * Add a field to be logged for a STATIC method which returns a double. See
+	 * DataLogger.addLoggingFieldDouble()
 	 * 
 	 * @param dataFieldName
-	 *            Name of the field/column in the output data. Also used for
-	 *            determining what to do for "complex" methods
+	 *            Name of the field/column in the output data.
 	 * @param unitName
 	 *            Name of the units for field/column in the output data.
 	 * @param methodName
 	 *            Actual method name to be called for this field, such as
 	 *            "getRawButton"
 	 * @param classRef
-	 *            Static Class where the method is held, such as Joystick.class for
-	 *            getRawButton()
+	 *            Static Class where the method is held
 	 * @param args
 	 *            Optional list of arguments that are passed to the method, such as
 	 *            0 in getRawButton(0)
 	 */
 	public static void addLoggingFieldDouble(String dataFieldName, String unitName, String methodName, Class<?> classRef, Object... args) {
-		MethodType methodType = methodType(double.class);
-		
-		for (Object arg : args)
-			methodType = methodType.appendParameterTypes(arg.getClass());
-		
-		methodType = methodType.unwrap(); // assumes primitive wrappers should be primitives
-		addLoggingField(methodType, dataFieldName, unitName, classRef, methodName, null, args);
+		defaultLogger.addLoggingFieldDouble(dataFieldName, unitName, methodName, classRef, args);
 	}
 
 	/**
-	 * Add a field to be logged at each loop of the robot code. A method handle will
-	 * be created and stored. This method is for non-static methods which return a
-	 * data type of boolean.
+	 * Add a field to be logged for a non-static method which returns a boolean. See
+	 * DataLogger.addLoggingFieldBoolean()
 	 * 
 	 * @param dataFieldName
-	 *            Name of the field/column in the output data. Also used for
-	 *            determining what to do for "complex" methods
+	 *            Name of the field/column in the output data.
 	 * @param unitName
 	 *            Name of the units for field/column in the output data.
 	 * @param methodName
 	 *            Actual method name to be called for this field, such as
 	 *            "getRawButton"
 	 * @param reference
-	 *            A reference to the object whose method will be called. If static
-	 *            method, this should be null.
+	 *            A reference to the object whose method will be called.
 	 * @param args
 	 *            Optional list of arguments that are passed to the method, such as
 	 *            0 in getRawButton(0)
 	 */
 	public static void addLoggingFieldBoolean(String dataFieldName, String unitName, String methodName, Object reference, Object... args) {
-		MethodType methodType = methodType(boolean.class);
-		
-		for (Object arg : args)
-			methodType = methodType.appendParameterTypes(arg.getClass());
-		
-		methodType = methodType.unwrap(); // assumes primitive wrappers should be primitives
-		addLoggingField(methodType, dataFieldName, unitName, reference.getClass(), methodName, reference, args);
+		defaultLogger.addLoggingFieldBoolean(dataFieldName, unitName, methodName, reference, args);
 	}
 
 	/**
-	 * Add a field to be logged at each loop of the robot code. A method handle will
-	 * be created and stored. This method is for STATIC methods which return a data
-	 * type of boolean.
+	 * Add a field to be logged for a STATIC method which returns a boolean. See
+	 * DataLogger.addLoggingFieldBoolean()
 	 * 
 	 * @param dataFieldName
-	 *            Name of the field/column in the output data. Also used for
-	 *            determining what to do for "complex" methods
+	 *            Name of the field/column in the output data.
 	 * @param unitName
 	 *            Name of the units for field/column in the output data.
 	 * @param methodName
 	 *            Actual method name to be called for this field, such as
 	 *            "getRawButton"
 	 * @param classRef
-	 *            Class where the method is held, such as Joystick.class for
-	 *            getRawButton()
+	 *            Class where the method is held
 	 * @param args
 	 *            Optional list of arguments that are passed to the method, such as
 	 *            0 in getRawButton(0)
 	 */
 	public static void addLoggingFieldBoolean(String dataFieldName, String unitName, String methodName, Class<?> classRef, Object... args) {
-		MethodType methodType = methodType(boolean.class);
-		
-		for (Object arg : args)
-			methodType = methodType.appendParameterTypes(arg.getClass());
-		
-		methodType = methodType.unwrap(); // assumes primitive wrappers should be primitives
-		addLoggingField(methodType, dataFieldName, unitName, classRef, methodName, null, args);
-	}
-
-	/*
-	 * Implementation of above convenience classes. Creates method handle and stores
-	 * relevant information in class level Vector objects.
-	 */
-	private static void addLoggingField(MethodType methodType, String dataFieldName, String unitName, Class<?> classRef, String methodName, Object reference, Object... args) {
-		if (logOpen) {
-			DriverStation.reportError("Error: cannot add logging field while log file is open", false);
-			return;
-		}
-		for (int i = 0; i < dataFieldNames.size(); i++) {
-			String fieldName = dataFieldNames.get(i);
-			if (dataFieldName.equals(fieldName)) {
-				Vector<Object> mhArgs = new Vector<Object>();
-				mhArgs.add(reference);
-				
-				for (Object arg : args)
-					mhArgs.add(arg);
-				
-				mhReferenceObjects.set(i, mhArgs);
-				DriverStation.reportWarning("Warning: log field named " + fieldName + " already present. Reference updated", false);
-				return;
-			}
-		}
-		MethodHandle methodHandle = null;
-		try {
-			methodHandle = MethodHandles.lookup().findVirtual(classRef, methodName, methodType);
-		} catch (NoSuchMethodException e) {
-			DriverStation.reportError("Error: Could not add logging field " + dataFieldName + " (no such method)", true);
-			e.printStackTrace();
-		} catch (IllegalAccessException e) {
-			try {
-				methodHandle = MethodHandles.lookup().findStatic(classRef, methodName, methodType);
-			} catch (Exception ex) {
-				DriverStation.reportError("Error: Could not add logging field " + dataFieldName, true);
-			}
-		}
-		
-		dataFieldNames.add(dataFieldName);
-		unitNames.add(unitName);
-		methodHandles.add(methodHandle);
-		Vector<Object> mhArgs = new Vector<Object>();
-		
-		if (reference != null) // will be null for static methods
-			mhArgs.add(reference);
-		
-		for (Object arg : args)
-			mhArgs.add(arg);
-		
-		mhReferenceObjects.add(mhArgs);
-	}
-
-	/***
-	 * This is used for any non-special logging parameters (those that don't require
-	 * extra math on the output)
+		defaultLogger.addLoggingFieldBoolean(dataFieldName, unitName, methodName, classRef, args);
+	}
+
+	/**
+	 * Add a field to be logged from a supplier. See DataLogger.addLoggingFieldDouble()
 	 * 
-	 * @param methodHandle
-	 *            A MethodHandle stored in the class level Vector
-	 * @param args
-	 *            Arguments for the given Method Handle
-	 * @param name 
-	 * 			  Name of the method
-	 * @return double value for double return types, 1 or 0 for boolean return types
-	 */
-	private static double getStandardLogData(MethodHandle methodHandle, Vector<Object> args, String name) {
-		try {
-			if (methodHandle.type().returnType() == double.class)
-				return (double) methodHandle.invokeWithArguments(args);
-			
-			else if (methodHandle.type().returnType() == boolean.class)
-				return ((boolean) methodHandle.invokeWithArguments(args)) ? 1.0 : 0.0;
-			
-		} catch (Throwable e) {
-			DriverStation.reportError("Error running method " + name + " for data logging", true);
-		}
-		return -1.0;
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as drive::getLeftSpeed
+	 */
+	public static void addLoggingFieldDouble(String dataFieldName, String unitName, DoubleSupplier supplier) {
+		defaultLogger.addLoggingFieldDouble(dataFieldName, unitName, supplier);
+	}
+
+	/**
+	 * Add a field to be logged from a supplier. See DataLogger.addLoggingFieldBoolean()
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as () -> joystick.getRawButton(1)
+	 */
+	public static void addLoggingFieldBoolean(String dataFieldName, String unitName, BooleanSupplier supplier) {
+		defaultLogger.addLoggingFieldBoolean(dataFieldName, unitName, supplier);
 	}
 
+	/**
+	 * Add an int field to be logged from a supplier. See DataLogger.addLoggingFieldInt()
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as () -> talon.getSelectedSensorPosition(0)
+	 */
+	public static void addLoggingFieldInt(String dataFieldName, String unitName, IntSupplier supplier) {
+		defaultLogger.addLoggingFieldInt(dataFieldName, unitName, supplier);
+	}
+
+	/**
+	 * Add a long field to be logged from a supplier. See DataLogger.addLoggingFieldLong()
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as System::nanoTime
+	 */
+	public static void addLoggingFieldLong(String dataFieldName, String unitName, LongSupplier supplier) {
+		defaultLogger.addLoggingFieldLong(dataFieldName, unitName, supplier);
+	}
+
+	/**
+	 * Add a field to be logged from a supplier and stored as a float. See 
+	 * DataLogger.addLoggingFieldFloat()
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as gyro::getAngle
+	 */
+	public static void addLoggingFieldFloat(String dataFieldName, String unitName, DoubleSupplier supplier) {
+		defaultLogger.addLoggingFieldFloat(dataFieldName, unitName, supplier);
+	}
+
+	/**
+	 * Add an enum field to be logged from a supplier as its ordinal. See 
+	 * DataLogger.addLoggingFieldEnum()
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as drive::getControlState
+	 */
+	public static void addLoggingFieldEnum(String dataFieldName, String unitName, Supplier<? extends Enum<?>> supplier) {
+		defaultLogger.addLoggingFieldEnum(dataFieldName, unitName, supplier);
+	}
+
+	/**
+	 * Add a fixed number of elements of an array to be logged from a supplier. See 
+	 * DataLogger.addLoggingFieldDoubleArray()
+	 * 
+	 * @param dataFieldName
+	 *            Name of the array, each field/column is named with its index added
+	 * @param unitName
+	 *            Name of the units for every element.
+	 * @param size
+	 *            Number of elements to log
+	 * @param supplier
+	 *            Gets the array to log, such as pdp::getCurrents
+	 */
+	public static void addLoggingFieldDoubleArray(String dataFieldName, String unitName, int size, Supplier<double[]> supplier) {
+		defaultLogger.addLoggingFieldDoubleArray(dataFieldName, unitName, size, supplier);
+	}
+
+	/**
+	 * Makes a field only be sampled every few calls to logData(). See 
+	 * DataLogger.setFieldSampleRate()
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field, as passed when it was added
+	 * @param divisor
+	 *            Field is sampled once every this many calls, 1 to sample every call
+	 */
+	public static void setFieldSampleRate(String dataFieldName, int divisor) {
+		defaultLogger.setFieldSampleRate(dataFieldName, divisor);
+	}
+
+	/**
+	 * Makes a field only be written when it has changed by more than a threshold. See
+	 * DataLogger.setFieldDeadband()
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field, as passed when it was added
+	 * @param deadband
+	 *            Smallest change that is written, 0 to write only when the value 
+	 *            changes, or negative to write every sample
+	 */
+	public static void setFieldDeadband(String dataFieldName, double deadband) {
+		defaultLogger.setFieldDeadband(dataFieldName, deadband);
+	}
+
+	/**
+	 * Rounds a field to a number of digits after the decimal point in CSV logs. See
+	 * DataLogger.setFieldPrecision()
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field, as passed when it was added
+	 * @param decimals
+	 *            Digits after the decimal point, or negative to write the exact value
+	 */
+	public static void setFieldPrecision(String dataFieldName, int decimals) {
+		defaultLogger.setFieldPrecision(dataFieldName, decimals);
+	}
 }
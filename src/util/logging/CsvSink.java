@@ -0,0 +1,287 @@
+package util.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes log rows as a CSV file that can be opened in excel. The first line holds
+ * the field names and the second line holds the units, followed by one line per row.
+ * The timestamp of each row is not written, and fields that weren't logged in a row
+ * are left as empty cells. Events are written as lines of their own between the rows,
+ * starting with "#event" followed by the time, type, source and quoted message.
+ * <br>
+ * <br>
+ * When given a stream for a time index, the sink adds an entry to it for every row 
+ * with the row's timestamp and the offset of its line. Since the rows don't hold 
+ * their own times, LogReader gets both where to jump to and the time of each row 
+ * from the index.
+ * <br>
+ * <br>
+ * Each row is formatted into a reused byte array with DoubleFormatter and written in
+ * one call, so no objects are created per row. Numbers are written as the shortest 
+ * text that reads back as the same value, or rounded to a number of decimals set for
+ * each column. Floats are written as the shortest text that reads back as the same 
+ * float, integer and enum fields as whole numbers and booleans as 1 or 0.
+ */
+public class CsvSink implements LogSink {
+	
+	private static final byte[] SEPARATOR = { ',', ' ' };
+	
+	/**
+	 * Start of every event line
+	 */
+	static final byte[] EVENT_START = "#event, ".getBytes(StandardCharsets.US_ASCII);
+	
+	private final OutputStream out;
+	
+	/**
+	 * File under out, or null if the sink was given a plain writer
+	 */
+	private final LogOutput output;
+	
+	/**
+	 * Time index written next to the log, or null if there isn't one
+	 */
+	private final LogIndexWriter index;
+	
+	/**
+	 * Byte offset in the file of the next line, counted for the index
+	 */
+	private long position = 0;
+	
+	/**
+	 * Digits after the decimal point for each column, negative or missing for the 
+	 * shortest text
+	 */
+	private final int[] decimals;
+	
+	/**
+	 * Type of each column, set by open()
+	 */
+	private LogFieldType[] types = new LogFieldType[0];
+	
+	/**
+	 * Reused to format each row, sized for the widest possible row by open()
+	 */
+	private byte[] line = new byte[0];
+
+	/**
+	 * Creates a sink that appends to the given file
+	 * 
+	 * @param path Path of the file to write
+	 * @throws IOException if the file can't be opened
+	 */
+	public CsvSink(String path) throws IOException {
+		this(new StreamLogOutput(path, true));
+	}
+
+	/**
+	 * Creates a sink that writes to a log file
+	 * 
+	 * @param output File to write to, it is closed when the sink is closed
+	 */
+	public CsvSink(LogOutput output) {
+		this(output, null);
+	}
+
+	/**
+	 * Creates a sink that writes to a log file, rounding some columns
+	 * 
+	 * @param output File to write to, it is closed when the sink is closed
+	 * @param decimals Digits after the decimal point for each column, negative for the
+	 *        shortest text that reads back as the same value. Null to write every 
+	 *        column that way
+	 */
+	public CsvSink(LogOutput output, int[] decimals) {
+		this.out = output;
+		this.output = output;
+		this.decimals = decimals;
+		this.index = null;
+	}
+
+	/**
+	 * Creates a sink that writes to a log file and a time index of it, so it can be 
+	 * read with LogReader
+	 * 
+	 * @param output File to write to, it is closed when the sink is closed
+	 * @param decimals Digits after the decimal point for each column, negative for the
+	 *        shortest text that reads back as the same value. Null to write every 
+	 *        column that way
+	 * @param index Stream to write the index to, normally a file named after the log
+	 *        with ".idx" added. It is closed when the sink is closed
+	 * @param position Length of the file before the sink started writing, when it is
+	 *        added to the end of an existing log. The index header is only written
+	 *        when this is 0, so an existing index is carried on
+	 * @throws IOException if the index can't be written
+	 */
+	public CsvSink(LogOutput output, int[] decimals, OutputStream index, long position) throws IOException {
+		this.out = output;
+		this.output = output;
+		this.decimals = decimals;
+		this.index = position == 0 ? new LogIndexWriter(index) : new LogIndexWriter(index, false);
+		this.position = position;
+	}
+
+	/**
+	 * Creates a sink that writes to the given stream
+	 * 
+	 * @param out Stream to write to, it is closed when the sink is closed
+	 */
+	public CsvSink(OutputStream out) {
+		this.out = out;
+		this.output = null;
+		this.decimals = null;
+		this.index = null;
+	}
+
+	@Override
+	public void open(String[] fieldNames, String[] unitNames, LogFieldType[] fieldTypes) throws IOException {
+		types = LogFieldType.orDouble(fieldTypes, fieldNames.length);
+		
+		// Write user-defined header line
+		for (String headerTxt : fieldNames) {
+			write(headerTxt.getBytes(StandardCharsets.UTF_8));
+			write(SEPARATOR);
+		}
+		// End of line
+		out.write('\n');
+		position++;
+
+		// Write user-defined units line
+		for (String headerTxt : unitNames) {
+			write(headerTxt.getBytes(StandardCharsets.UTF_8));
+			write(SEPARATOR);
+		}
+		// End of line
+		out.write('\n');
+		position++;
+		
+		line = new byte[fieldNames.length * (DoubleFormatter.MAX_LENGTH + SEPARATOR.length) + 1];
+	}
+
+	@Override
+	public void writeRow(double timestamp, long[] values, long[] present) throws IOException {
+		if (line.length < values.length * (DoubleFormatter.MAX_LENGTH + SEPARATOR.length) + 1) {
+			line = new byte[values.length * (DoubleFormatter.MAX_LENGTH + SEPARATOR.length) + 1];
+		}
+		
+		int pos = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (present == null || (present[i >> 6] & (1L << i)) != 0) {
+				pos = format(i, values[i], pos);
+			}
+			line[pos++] = ',';
+			line[pos++] = ' ';
+		}
+		line[pos++] = '\n';
+		if (index != null) {
+			index.add(timestamp, position);
+		}
+		out.write(line, 0, pos);
+		position += pos;
+	}
+
+	/**
+	 * Formats one value into the line
+	 * 
+	 * @param column Column of the value
+	 * @param bits Bits of the value, see LogFieldType
+	 * @param pos Index in the line to write at
+	 * @return index in the line after the value
+	 */
+	private int format(int column, long bits, int pos) {
+		int places = decimals != null && column < decimals.length ? decimals[column] : -1;
+		
+		switch (types[column]) {
+			case FLOAT:
+				float value = Float.intBitsToFloat((int) bits);
+				if (places >= 0) {
+					return DoubleFormatter.format(value, places, line, pos);
+				}
+				return DoubleFormatter.format(value, line, pos);
+			case LONG:
+				return DoubleFormatter.format(bits, line, pos);
+			case INT:
+			case ENUM:
+				return DoubleFormatter.format((long) (int) bits, line, pos);
+			case BOOLEAN:
+				line[pos] = bits != 0 ? (byte) '1' : (byte) '0';
+				return pos + 1;
+			default:
+				if (places >= 0) {
+					return DoubleFormatter.format(Double.longBitsToDouble(bits), places, line, pos);
+				}
+				return DoubleFormatter.format(Double.longBitsToDouble(bits), line, pos);
+		}
+	}
+
+	@Override
+	public void writeEvent(double timestamp, LogEvent.Type type, String source, String message) throws IOException {
+		if (line.length < DoubleFormatter.MAX_LENGTH) {
+			line = new byte[DoubleFormatter.MAX_LENGTH];
+		}
+		int pos = DoubleFormatter.format(timestamp, line, 0);
+		
+		write(EVENT_START);
+		out.write(line, 0, pos);
+		position += pos;
+		write(SEPARATOR);
+		write(type.name().getBytes(StandardCharsets.UTF_8));
+		write(SEPARATOR);
+		write(quote(source).getBytes(StandardCharsets.UTF_8));
+		write(SEPARATOR);
+		write(quote(message).getBytes(StandardCharsets.UTF_8));
+		out.write('\n');
+		position++;
+	}
+
+	/**
+	 * Writes bytes to the file, counting them for the index
+	 */
+	private void write(byte[] bytes) throws IOException {
+		out.write(bytes);
+		position += bytes.length;
+	}
+
+	/**
+	 * Puts text in quotes so commas in it don't split it into columns, doubling any
+	 * quotes in it and leaving out line breaks
+	 */
+	private static String quote(String text) {
+		if (text == null) {
+			return "\"\"";
+		}
+		return "\"" + text.replace("\"", "\"\"").replace('\r', ' ').replace('\n', ' ') + "\"";
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+		if (index != null) {
+			index.flush();
+		}
+	}
+
+	@Override
+	public void sync() throws IOException {
+		out.flush();
+		if (output != null) {
+			output.sync();
+		}
+		if (index != null) {
+			index.sync();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			out.close();
+		} finally {
+			if (index != null) {
+				index.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,1186 @@
+package util.logging;
+
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.Vector;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotState;
+import edu.wpi.first.wpilibj.Timer;
+import util.loops.Loop;
+import util.loops.Looper;
+
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MethodHandle;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import static java.lang.invoke.MethodType.*;
+
+/**
+ * DESCRIPTION: <br>
+ * A single data log on the robot during testing or matches. Will write rows into
+ * a file with a unique name between calls to init() and close(). Each logger has its
+ * own fields, rate, file, writer thread and Loop, so several can run at once, such 
+ * as a fast control log next to a slow system health log, or one per subsystem. 
+ * CsvLogger is a static front end to a default logger for code that only needs one.
+ * This implementation utilizes java's "methodHandles" libraries to refer to the 
+ * data which is to be put into the log. <br>
+ * <br>
+ * Each field is compiled once when it is added into a LongSupplier that returns the 
+ * bits of its LogFieldType, either from an exactly typed method handle with its 
+ * receiver and arguments already bound or straight from a lambda passed to one of
+ * the addLoggingField methods. Sampling a field is then a plain call that returns a
+ * primitive, so logData() does not box anything or allocate. <br>
+ * <br>
+ * Fields can be doubles, floats, ints, longs, booleans or enums, and each is stored
+ * at its own width in binary logs, so a long counter keeps every bit and a boolean 
+ * takes one byte. addLoggingFieldDoubleArray() logs a fixed number of elements of an
+ * array as the columns name[0], name[1] and so on. <br>
+ * <br>
+ * By default every field is sampled and written each time logData() is called. 
+ * setFieldSampleRate() makes a field only be sampled every few calls, and 
+ * setFieldDeadband() makes a field only be written when it has changed by more than
+ * a threshold since it was last written. Fields that aren't written in a row are left
+ * out of the file, showing up as empty cells in the CSV, and a row where no field 
+ * was written is skipped completely. setFieldPrecision() rounds a field to a number
+ * of decimals in CSV logs, which keeps the file small for noisy sensors. <br>
+ * <br>
+ * Sampling and writing happen on different threads. logData() only copies each
+ * value into a preallocated LogRingBuffer, and a background LogWriter thread turns 
+ * the rows into text and writes them to the file, so the control loop never waits
+ * on the disk. If the writer falls behind and the buffer fills up, new rows are 
+ * dropped and counted in getDroppedSamples(). <br>
+ * <br>
+ * Logs are written as CSV by default. setFormat(LogFormat.BINARY) writes a compact
+ * binary file instead, which is much cheaper to write and also records the time 
+ * each row was sampled, and LogFormat.COMPRESSED also compresses each column as it
+ * is written. Use LogConverter to turn either into the same CSV layout after the 
+ * match. <br>
+ * <br>
+ * logEvent() adds a timestamped event, such as a state change or an error, between
+ * the rows from any thread. Events go through a lock-free LogEventQueue to the same
+ * writer thread, so they are written in time order with the rows. <br>
+ * <br>
+ * setTelemetry() also streams every row over UDP or TCP as it is written, so a 
+ * TelemetryListener on the driver station sees the same data as the log file. <br>
+ * <br>
+ * USAGE:
+ * <ol>
+ * <li>Create a logger with a name that is unique among the loggers, which starts
+ * the name of each of its files</li>
+ * <li>During init, call addLoggingFieldDouble method for each field to be
+ * logged.</li>
+ * <li>Call register() to have the Looper start and stop the log and log data at the
+ * logger's period, or during teleop init or autonomous init, call the init() function
+ * to start logging data to a new file and each loop, call the logData</li>
+ * <li>During DisabledInit, call the close() method to close out any file which
+ * was being written to while the robot was doing something.</li>
+ * <li>Post-match or -practice, extract the data logs from the USB drive(maybe
+ * using FTP?) and view with excel or your favorite software.</li>
+ * </ol>
+ * 
+ * 
+ */
+public class DataLogger {
+	
+	/**
+	 * Name of the logger, used to name its files and writer thread
+	 */
+	private final String name;
+	
+	/**
+	 * Time in seconds between each time the Loop logs data, 0 to log every Looper tick
+	 */
+	private double period;
+
+	/**
+	 * Time in seconds that rows and events are stamped with
+	 */
+	private volatile DoubleSupplier clock = () -> Timer.getFPGATimestamp();
+
+	/**
+	 * What the fields read, given to the Looper by the Loop. Null if they aren't 
+	 * declared, so the logger never runs at the same time as another loop
+	 */
+	String[] reads = null;
+
+	/**
+	 * Number of times logData() has been called since init(), used for sample rates
+	 */
+	long logWriteIndex;
+	String logName = null;
+	LogSink logFile = null;
+	
+	/**
+	 * Format of the file written by init()
+	 */
+	LogFormat format = LogFormat.CSV;
+	volatile boolean logOpen = false;
+	
+	/**
+	 * Number of rows the ring buffer can hold before new rows are dropped
+	 */
+	int bufferRows = 1024;
+	
+	/**
+	 * How the log file is written
+	 */
+	LogOutput.Mode outputMode = LogOutput.Mode.STREAM;
+	
+	/**
+	 * When the writer thread forces the log to disk
+	 */
+	LogSyncPolicy syncPolicy = new LogSyncPolicy();
+	
+	/**
+	 * Where rows are streamed to live, or null to only write the file
+	 */
+	String telemetryHost = null;
+	int telemetryPort = 0;
+	TelemetrySink.Protocol telemetryProtocol = TelemetrySink.Protocol.UDP;
+	
+	/**
+	 * Sink streaming the current or last log, or null if there isn't one
+	 */
+	TelemetrySink telemetry = null;
+	
+	/**
+	 * Buffer that sampled rows are put in until the writer thread writes them
+	 */
+	LogRingBuffer ring = null;
+	
+	/**
+	 * Queue that events are put in until the writer thread writes them, replaced by
+	 * init(). Used from any thread
+	 */
+	volatile LogEventQueue events = null;
+	
+	/**
+	 * Number of events the queue can hold before new events are dropped
+	 */
+	int eventBufferSize = 256;
+	
+	/**
+	 * Background thread that writes rows from the buffer to the log file
+	 */
+	LogWriter writer = null;
+	String outputDir = "/home/lvuser/logFiles";
+
+	Vector<String> dataFieldNames = new Vector<String>();
+	Vector<String> unitNames = new Vector<String>();
+	
+	/**
+	 * Type of each field, in the same order as dataFieldNames
+	 */
+	Vector<LogFieldType> fieldTypes = new Vector<LogFieldType>();
+	
+	/**
+	 * Compiled sampler for each field returning the bits of its type, in the same 
+	 * order as dataFieldNames
+	 */
+	Vector<LongSupplier> samplers = new Vector<LongSupplier>();
+	
+	/**
+	 * Copy of samplers made by init(), so logData() doesn't go through Vector's locks
+	 */
+	LongSupplier[] fields = new LongSupplier[0];
+	
+	/**
+	 * Each field is sampled on calls where logWriteIndex is a multiple of its divisor
+	 */
+	Vector<Integer> sampleDivisors = new Vector<Integer>();
+	
+	/**
+	 * Each field is only written when it has changed by more than its deadband since 
+	 * it was last written, or every time it is sampled if the deadband is negative
+	 */
+	Vector<Double> deadbands = new Vector<Double>();
+	
+	/**
+	 * Digits after the decimal point each field is written with in CSV logs, or -1 for
+	 * the shortest text that reads back as the same value
+	 */
+	Vector<Integer> precisions = new Vector<Integer>();
+	
+	/**
+	 * Copies of fieldTypes, sampleDivisors and deadbands made by init(), the bits of 
+	 * the last value written for each field and whether it has been written yet
+	 */
+	LogFieldType[] types = new LogFieldType[0];
+	int[] fieldDivisors = new int[0];
+	double[] fieldDeadbands = new double[0];
+	long[] lastLogged = new long[0];
+	boolean[] hasLogged = new boolean[0];
+
+	/**
+	 * Main loop that will log data periodically when running
+	 */
+	private final Loop loop = new Loop() {
+
+ 		@Override
+ 		public void onStart() {
+ 			init();
+ 		}
+
+ 		@Override
+ 		public void onLoop() {
+ 			logData(false );
+ 		}
+
+ 		@Override
+ 		public void onStop() {
+ 			close();
+ 		}
+ 		
+ 		@Override
+ 		public int getPriority() {
+ 			// Logging is the first thing to put off when a tick runs late
+ 			return PRIORITY_LOW;
+ 		}
+ 		
+ 		@Override
+ 		public String[] getReads() {
+ 			return reads;
+ 		}
+ 		
+ 		@Override
+ 		public String[] getWrites() {
+ 			// Only the log, which no other loop reads
+ 			return new String[0];
+ 		}
+ 	};
+ 	
+ 	/**
+ 	 * Creates a logger that logs data every Looper tick
+ 	 * 
+ 	 * @param name Name of the logger, unique among the loggers. Starts the name of each
+ 	 *        of its files, such as name_01-Jan-2018_01.02.03PM_Teleop.csv
+ 	 */
+ 	public DataLogger(String name) {
+ 		this(name, 0);
+ 	}
+
+ 	/**
+ 	 * Creates a logger
+ 	 * 
+ 	 * @param name Name of the logger, unique among the loggers. Starts the name of each
+ 	 *        of its files, such as name_01-Jan-2018_01.02.03PM_Teleop.csv
+ 	 * @param period Time in seconds between each time the Loop logs data, 0 to log 
+ 	 *        every Looper tick
+ 	 */
+ 	public DataLogger(String name, double period) {
+ 		this.name = name;
+ 		this.period = period;
+ 	}
+
+ 	/**
+ 	 * Use for starting loop through Looper class
+ 	 * @return main control loop
+ 	 */
+ 	public Loop getLoop () {
+		return loop;
+	}
+
+	/**
+	 * Registers the logger's Loop with a Looper at the logger's period, so the log is
+	 * opened when the Looper starts, data is logged each period and the log is closed
+	 * when the Looper stops. Rows and events are then stamped with the time from the
+	 * Looper's scheduler, so they line up with Looper.getTimestamp()
+	 * 
+	 * @param looper Looper to run the logger
+	 */
+	public void register(Looper looper) {
+		clock = looper.getScheduler()::getTimestamp;
+		if (period > 0) {
+			looper.register(loop, period);
+		} else {
+			looper.register(loop);
+		}
+	}
+
+	/**
+	 * Sets where the time rows and events are stamped with comes from. The FPGA clock
+	 * is used until this is called or the logger is registered with a Looper
+	 * 
+	 * @param clock Time in seconds, such as a LoopScheduler's getTimestamp()
+	 */
+	public void setClock(DoubleSupplier clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * @return name of the logger
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets the time between each time the Loop logs data. Takes effect the next time 
+	 * the logger is registered.
+	 * 
+	 * @param period Time in seconds, 0 to log every Looper tick
+	 */
+	public void setPeriod(double period) {
+		this.period = period;
+	}
+
+	/**
+	 * @return time in seconds between each time the Loop logs data, 0 if it logs 
+	 *         every Looper tick
+	 */
+	public double getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Declares what the logged fields read, such as "drive", so the Looper can log at
+	 * the same time as loops that don't write any of them. Takes effect the next time 
+	 * the logger is registered. Until this is called the logger runs on its own, in 
+	 * the order it was registered.
+	 * 
+	 * @param names Names of what the fields read, the same names other loops return 
+	 *        from getWrites()
+	 */
+	public void setReads(String... names) {
+		reads = names.clone();
+	}
+
+	/**
+	 * Sets the directory log files are written to. Takes effect the next time init() 
+	 * is called.
+	 * 
+	 * @param directory Path of the directory, ending in a separator
+	 */
+	public void setOutputDir(String directory) {
+		outputDir = directory;
+	}
+	
+	/**
+	 * Clears the IO buffer in memory and forces things to file. Generally a good
+	 * idea to use this as infrequently as possible (because it increases logging
+	 * overhead), but definitely use it before the roboRIO might crash without a
+	 * proper call to the close() method (ie, during brownout). The flush is done
+	 * on the writer thread, so this returns without waiting for it. The sync policy
+	 * set with setSyncPolicy() already syncs on a timer and on brownout by default.
+	 * 
+	 * @return 0 if the flush was requested or -1 if the log is not open.
+	 */
+	public int forceSync() {
+		if (logOpen == false) {
+			DriverStation.reportError("Error - Log is not yet opened, cannot sync!", false);
+			return -1;
+		}
+		writer.requestSync();
+		return 0;
+	}
+
+	/**
+	 * Closes the log file and ensures everything is written to disk. Waits for the
+	 * writer thread to write any rows still in the buffer. init() must be called 
+	 * again in order to write to the file.
+	 * 
+	 * @return -1 on failure to close, 0 on success
+	 */
+	public int close() {
+
+		if (logOpen == false) {
+			return 0;
+		}
+
+		logOpen = false;
+		if (writer.close() != 0) {
+			DriverStation.reportError("Error Closing Log File: not all data was written", false);
+			return -1;
+		}
+		return 0;
+
+	}
+
+	/**
+	 * Sets the format logs are written in. Takes effect the next time init() is called.
+	 * 
+	 * @param newFormat Format of the log file
+	 */
+	public void setFormat(LogFormat newFormat) {
+		format = newFormat;
+	}
+
+	/**
+	 * @return format logs are written in
+	 */
+	public LogFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * Sets how the log file is written. LogOutput.Mode.MAPPED preallocates the file
+	 * and copies rows into memory-mapped segments of it. Takes effect the next time 
+	 * init() is called.
+	 * 
+	 * @param mode How the log file is written
+	 */
+	public void setOutputMode(LogOutput.Mode mode) {
+		outputMode = mode;
+	}
+
+	/**
+	 * Sets when the writer thread forces the log to disk, which bounds how much data 
+	 * can be lost if the robot loses power. Takes effect the next time init() is called.
+	 * 
+	 * @param policy When to sync the log
+	 */
+	public void setSyncPolicy(LogSyncPolicy policy) {
+		syncPolicy = policy;
+	}
+
+	/**
+	 * Streams every logged row to a TelemetryListener as it is written, as well as
+	 * writing it to the file. Takes effect the next time init() is called.
+	 * 
+	 * @param host Name or address of the computer to send to, or null to stop streaming
+	 * @param port Port the listener is on
+	 * @param protocol How to send the rows
+	 */
+	public void setTelemetry(String host, int port, TelemetrySink.Protocol protocol) {
+		telemetryHost = host;
+		telemetryPort = port;
+		telemetryProtocol = protocol;
+	}
+
+	/**
+	 * @return number of rows in the current or last log that couldn't be streamed 
+	 *         because the network fell behind
+	 */
+	public long getTelemetryDropped() {
+		return telemetry == null ? 0 : telemetry.getDropped();
+	}
+
+	/**
+	 * Sets how many rows can be waiting to be written before new rows are dropped. 
+	 * Takes effect the next time init() is called.
+	 * 
+	 * @param rows Number of rows the buffer can hold
+	 */
+	public void setBufferSize(int rows) {
+		bufferRows = rows;
+	}
+
+	/**
+	 * @return number of rows dropped in the current or last log because the writer 
+	 *         thread fell behind
+	 */
+	public long getDroppedSamples() {
+		return ring == null ? 0 : ring.getDropped();
+	}
+
+	/**
+	 * Sets how many events can be waiting to be written before new events are dropped.
+	 * Takes effect the next time init() is called.
+	 * 
+	 * @param size Number of events the queue can hold
+	 */
+	public void setEventBufferSize(int size) {
+		eventBufferSize = size;
+	}
+
+	/**
+	 * @return number of events dropped in the current or last log because the writer
+	 *         thread fell behind
+	 */
+	public long getDroppedEvents() {
+		LogEventQueue queue = events;
+		return queue == null ? 0 : queue.getDropped();
+	}
+
+	/**
+	 * @return largest number of rows that were waiting to be written at once in the
+	 *         current or last log
+	 */
+	public int getQueueHighWaterMark() {
+		return ring == null ? 0 : ring.getHighWaterMark();
+	}
+
+	/**
+	 * Check whether there is presently a log file open and being written to.
+	 * 
+	 * @return True if there is an open log file, false otherwise.
+	 */
+	public boolean isLogOpen() {
+		return logOpen;
+	}
+
+	static String getOpModeName() {
+		if (RobotState.isAutonomous()) {
+			return "Auto";
+		} else {
+			return "Teleop";
+		}
+	}
+
+	static String getDateTimeString() {
+		// Yes, I could have made this ISO, but I'm american and this format looks nicer
+		// to me.
+		DateFormat df = new SimpleDateFormat("dd-MMM-yyyy_hh.mm.ssa");
+		df.setTimeZone(TimeZone.getTimeZone("PST"));
+		return df.format(new Date());
+	}
+
+	/**
+	 * Determines a unique file name based on current timestamp, and opens a file in
+	 * the data captures directory and writes the initial lines to it. Timestamp
+	 * determination is done based on info received from the Driver station or FMS,
+	 * so improper time there will cause oddly-named log files. Takes no action if
+	 * log is already open.
+	 * 
+	 * @return 0 on successful log open, -1 on failure
+	 */
+	public int init() {
+
+		if (logOpen) {
+			DriverStation.reportWarning("Warning - log is already open!", false);
+			return 0;
+		}
+
+		logOpen = false;
+
+		// Determine a unique file name
+		logName = outputDir + name + "_" + getDateTimeString() + "_" + getOpModeName() + format.extension;
+		System.out.println("Initalizing Log file  " + logName);
+
+		try {
+			// Reset state variables
+			logWriteIndex = 0;
+
+			// create directories, if they don't exist
+			File tempPathObj = new File(outputDir);
+			tempPathObj.mkdirs();
+
+			// Open File and write the header
+			int[] decimals = new int[precisions.size()];
+			for (int i = 0; i < decimals.length; i++) {
+				decimals[i] = precisions.get(i);
+			}
+			logFile = format.createSink(logName, outputMode, decimals);
+			logFile.open(dataFieldNames.toArray(new String[0]), unitNames.toArray(new String[0]), 
+					fieldTypes.toArray(new LogFieldType[0]));
+
+		}
+		// Catch ALL the errors!!!
+		catch (IOException e) {
+			DriverStation.reportError("ERROR - cannot initalize log file: " + e.getMessage(), false);
+			return -1;
+		}
+
+		// Rows are written from here on by the writer thread
+		fields = samplers.toArray(new LongSupplier[0]);
+		types = fieldTypes.toArray(new LogFieldType[0]);
+		fieldDivisors = new int[fields.length];
+		fieldDeadbands = new double[fields.length];
+		lastLogged = new long[fields.length];
+		hasLogged = new boolean[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			fieldDivisors[i] = sampleDivisors.get(i);
+			fieldDeadbands[i] = deadbands.get(i);
+		}
+		ring = new LogRingBuffer(bufferRows, fields.length);
+		events = new LogEventQueue(eventBufferSize);
+		
+		telemetry = null;
+		if (telemetryHost != null) {
+			try {
+				telemetry = new TelemetrySink(telemetryHost, telemetryPort, telemetryProtocol);
+				telemetry.open(dataFieldNames.toArray(new String[0]), unitNames.toArray(new String[0]), types);
+			} catch (IOException e) {
+				// Still log to the file without the live stream
+				DriverStation.reportError("ERROR - cannot start telemetry: " + e.getMessage(), false);
+				telemetry = null;
+			}
+		}
+		
+		if (telemetry != null) {
+			writer = new LogWriter(ring, events, name, syncPolicy, logFile, telemetry);
+		} else {
+			writer = new LogWriter(ring, events, name, syncPolicy, logFile);
+		}
+		writer.start();
+		
+		logOpen = true;
+		return 0;
+
+	}
+
+	/**
+	 * Logs data for all stored method handles. Methods that are not considered
+	 * "simple" should be handled accordingly within this method. This method should
+	 * be called once per loop. The values are copied into the ring buffer and 
+	 * written to the file later by the writer thread.
+	 * 
+	 * @param forceSync
+	 *            set true if a forced write is desired (i.e. brownout conditions)
+	 * @return 0 if log successful, -1 if log is not open, -2 on other errors, and
+	 *         -3 if the buffer was full and the row was dropped
+	 */
+	public int logData(boolean forceSync) {
+		if (!logOpen) {
+			// System.out.println("ERROR - Log is not yet opened, cannot write!");
+			return -1;
+		}
+
+		int slot = ring.claim();
+		if (slot < 0) {
+			return -3;
+		}
+		
+		try {
+			long index = logWriteIndex++;
+			boolean anyLogged = false;
+			
+			ring.setTimestamp(slot, clock.getAsDouble());
+			ring.clearPresent(slot);
+			for (int i = 0; i < fields.length; i++) {
+				if (index % fieldDivisors[i] != 0) {
+					continue;
+				}
+				
+				long bits = fields[i].getAsLong();
+				// The first sample is always written
+				if (hasLogged[i] && fieldDeadbands[i] >= 0
+						&& (bits == lastLogged[i] || types[i].change(lastLogged[i], bits) <= fieldDeadbands[i])) {
+					continue;
+				}
+				
+				ring.set(slot, i, bits);
+				lastLogged[i] = bits;
+				hasLogged[i] = true;
+				anyLogged = true;
+			}
+			
+			// Leaving the slot unpublished lets the next row reuse it
+			if (anyLogged) {
+				ring.publish();
+			}
+		} catch (Exception ex) {
+			DriverStation.reportError("Error writing to log file: " + ex.getMessage(), false);
+			return -2;
+		}
+
+		if (forceSync)
+			forceSync();
+
+		return 0;
+	}
+
+	/**
+	 * Logs an event, such as a state change or an error, with the current time. It is
+	 * written between the rows sampled before and after it. Can be called from any 
+	 * thread, and never waits for the writer thread.
+	 * 
+	 * @param type
+	 *            Kind of event
+	 * @param source
+	 *            What the event came from, such as "Drive"
+	 * @param message
+	 *            Details of the event, such as the new state
+	 * @return 0 if logged, -1 if the log is not open, and -3 if the queue was full and
+	 *         the event was dropped
+	 */
+	public int logEvent(LogEvent.Type type, String source, String message) {
+		LogEventQueue queue = events;
+		if (!logOpen || queue == null) {
+			return -1;
+		}
+		return queue.offer(clock.getAsDouble(), type, source, message) ? 0 : -3;
+	}
+
+	/**
+	 * our wonderful attempt at optimization to do a "dry run" with all methods in
+	 * an attempt to cache the results and not bog down the first loop.
+	 */
+	public void preCacheAllMethods() {
+		try {
+			for (LongSupplier sampler : samplers) {
+				sampler.getAsLong();
+			}
+		} catch (Exception ex) {
+			// do nothing
+		}
+
+	}
+
+	/**
+	 * Add a field to be logged at each loop of the robot code. A method handle will
+	 * be created and stored. This method is for non-static methods which return a
+	 * data type of double.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data. Also used for
+	 *            determining what to do for "complex" methods
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param methodName
+	 *            Actual method name to be called for this field, such as
+	 *            "getRawButton"
+	 * @param reference
+	 *            A reference to the object whose method will be called. If static
+	 *            method, this should be null.
+	 * @param args
+	 *            Optional list of arguments that are passed to the method, such as
+	 *            0 in getRawButton(0)
+	 */
+	public void addLoggingFieldDouble(String dataFieldName, String unitName, String methodName, Object reference, Object... args) {
+		MethodType methodType = methodType(double.class);
+		
+		for (Object arg : args)
+			methodType = methodType.appendParameterTypes(arg.getClass());
+		
+		methodType = methodType.unwrap(); // assumes primitive wrappers should be primitives
+		addLoggingField(methodType, dataFieldName, unitName, reference.getClass(), methodName, reference, args);
+	}
+
+	/**
+	 * Add a field to be logged at each loop of the robot code. A method handle will
+	 * be created and stored. This method is for STATIC methods which return a data
+	 * type of double.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data. Also used for
+	 *            determining what to do for "complex" methods
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param methodName
+	 *            Actual method name to be called for this field, such as
+	 *            "getRawButton"
+	 * @param classRef
+	 *            Static Class where the method is held, such as Joystick.class for
+	 *            getRawButton()
+	 * @param args
+	 *            Optional list of arguments that are passed to the method, such as
+	 *            0 in getRawButton(0)
+	 */
+	public void addLoggingFieldDouble(String dataFieldName, String unitName, String methodName, Class<?> classRef, Object... args) {
+		MethodType methodType = methodType(double.class);
+		
+		for (Object arg : args)
+			methodType = methodType.appendParameterTypes(arg.getClass());
+		
+		methodType = methodType.unwrap(); // assumes primitive wrappers should be primitives
+		addLoggingField(methodType, dataFieldName, unitName, classRef, methodName, null, args);
+	}
+
+	/**
+	 * Add a field to be logged at each loop of the robot code. A method handle will
+	 * be created and stored. This method is for non-static methods which return a
+	 * data type of boolean.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data. Also used for
+	 *            determining what to do for "complex" methods
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param methodName
+	 *            Actual method name to be called for this field, such as
+	 *            "getRawButton"
+	 * @param reference
+	 *            A reference to the object whose method will be called. If static
+	 *            method, this should be null.
+	 * @param args
+	 *            Optional list of arguments that are passed to the method, such as
+	 *            0 in getRawButton(0)
+	 */
+	public void addLoggingFieldBoolean(String dataFieldName, String unitName, String methodName, Object reference, Object... args) {
+		MethodType methodType = methodType(boolean.class);
+		
+		for (Object arg : args)
+			methodType = methodType.appendParameterTypes(arg.getClass());
+		
+		methodType = methodType.unwrap(); // assumes primitive wrappers should be primitives
+		addLoggingField(methodType, dataFieldName, unitName, reference.getClass(), methodName, reference, args);
+	}
+
+	/**
+	 * Add a field to be logged at each loop of the robot code. A method handle will
+	 * be created and stored. This method is for STATIC methods which return a data
+	 * type of boolean.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data. Also used for
+	 *            determining what to do for "complex" methods
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param methodName
+	 *            Actual method name to be called for this field, such as
+	 *            "getRawButton"
+	 * @param classRef
+	 *            Class where the method is held, such as Joystick.class for
+	 *            getRawButton()
+	 * @param args
+	 *            Optional list of arguments that are passed to the method, such as
+	 *            0 in getRawButton(0)
+	 */
+	public void addLoggingFieldBoolean(String dataFieldName, String unitName, String methodName, Class<?> classRef, Object... args) {
+		MethodType methodType = methodType(boolean.class);
+		
+		for (Object arg : args)
+			methodType = methodType.appendParameterTypes(arg.getClass());
+		
+		methodType = methodType.unwrap(); // assumes primitive wrappers should be primitives
+		addLoggingField(methodType, dataFieldName, unitName, classRef, methodName, null, args);
+	}
+
+	/**
+	 * Add a field to be logged at each loop of the robot code. The supplier is called
+	 * directly each time data is logged, so this is the cheapest kind of field.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as drive::getLeftSpeed
+	 */
+	public void addLoggingFieldDouble(String dataFieldName, String unitName, DoubleSupplier supplier) {
+		addSampler(dataFieldName, unitName, LogFieldType.DOUBLE, () -> LogFieldType.bitsOf(supplier.getAsDouble()));
+	}
+
+	/**
+	 * Add a field to be logged at each loop of the robot code. The supplier is called
+	 * directly each time data is logged and logged as 1 for true or 0 for false, 
+	 * taking one byte in binary logs.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as () -> joystick.getRawButton(1)
+	 */
+	public void addLoggingFieldBoolean(String dataFieldName, String unitName, BooleanSupplier supplier) {
+		addSampler(dataFieldName, unitName, LogFieldType.BOOLEAN, () -> LogFieldType.bitsOf(supplier.getAsBoolean()));
+	}
+
+	/**
+	 * Add a field to be logged at each loop of the robot code. The supplier is called
+	 * directly each time data is logged, and the value is stored as an int, so counts
+	 * and IDs are written as whole numbers and take 4 bytes in binary logs.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as () -> talon.getSelectedSensorPosition(0)
+	 */
+	public void addLoggingFieldInt(String dataFieldName, String unitName, IntSupplier supplier) {
+		addSampler(dataFieldName, unitName, LogFieldType.INT, () -> LogFieldType.bitsOf(supplier.getAsInt()));
+	}
+
+	/**
+	 * Add a field to be logged at each loop of the robot code. The supplier is called
+	 * directly each time data is logged, and the value is stored as a long, so values
+	 * past 2^53 such as timestamps in nanoseconds keep every digit.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as System::nanoTime
+	 */
+	public void addLoggingFieldLong(String dataFieldName, String unitName, LongSupplier supplier) {
+		addSampler(dataFieldName, unitName, LogFieldType.LONG, supplier);
+	}
+
+	/**
+	 * Add a field to be logged at each loop of the robot code. The supplier is called
+	 * directly each time data is logged and the value is rounded to a float, which 
+	 * takes half the space of a double in binary logs and is written with only the 
+	 * digits a float holds in CSV logs. Java has no FloatSupplier, so the supplier 
+	 * returns a double.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as gyro::getAngle
+	 */
+	public void addLoggingFieldFloat(String dataFieldName, String unitName, DoubleSupplier supplier) {
+		addSampler(dataFieldName, unitName, LogFieldType.FLOAT, () -> LogFieldType.bitsOf((float) supplier.getAsDouble()));
+	}
+
+	/**
+	 * Add a field to be logged at each loop of the robot code. The supplier is called
+	 * directly each time data is logged and the ordinal of the constant it returns is
+	 * logged, or -1 for null, such as the state of a state machine.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field/column in the output data.
+	 * @param unitName
+	 *            Name of the units for field/column in the output data.
+	 * @param supplier
+	 *            Gets the value to log, such as drive::getControlState
+	 */
+	public void addLoggingFieldEnum(String dataFieldName, String unitName, Supplier<? extends Enum<?>> supplier) {
+		addSampler(dataFieldName, unitName, LogFieldType.ENUM, () -> {
+			Enum<?> value = supplier.get();
+			return LogFieldType.bitsOf(value == null ? -1 : value.ordinal());
+		});
+	}
+
+	/**
+	 * Add a fixed number of elements of an array to be logged at each loop of the 
+	 * robot code, as the fields name[0] to name[size - 1]. The supplier is called once
+	 * each time data is logged, and elements past the end of the array it returns are
+	 * logged as NaN. Return the same array each time to keep logging from allocating.
+	 * Passing the name of the array to setFieldSampleRate(), setFieldDeadband() or
+	 * setFieldPrecision() changes every element.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the array, each field/column is named with its index added
+	 * @param unitName
+	 *            Name of the units for every element.
+	 * @param size
+	 *            Number of elements to log
+	 * @param supplier
+	 *            Gets the array to log, such as pdp::getCurrents
+	 */
+	public void addLoggingFieldDoubleArray(String dataFieldName, String unitName, int size, Supplier<double[]> supplier) {
+		// The first element gets the array and the rest read the one it got
+		final double[][] array = new double[1][];
+		
+		for (int i = 0; i < size; i++) {
+			final int index = i;
+			LongSupplier sampler;
+			if (i == 0) {
+				sampler = () -> {
+					array[0] = supplier.get();
+					return LogFieldType.bitsOf(element(array[0], 0));
+				};
+			} else {
+				sampler = () -> LogFieldType.bitsOf(element(array[0], index));
+			}
+			addSampler(dataFieldName + "[" + i + "]", unitName, LogFieldType.DOUBLE, sampler);
+		}
+	}
+
+	/**
+	 * @return element of an array, or NaN if it is past the end or the array is null
+	 */
+	private static double element(double[] array, int index) {
+		return array != null && index < array.length ? array[index] : Double.NaN;
+	}
+
+	/*
+	 * Implementation of above convenience classes. Creates method handle and stores
+	 * relevant information in class level Vector objects.
+	 */
+	private void addLoggingField(MethodType methodType, String dataFieldName, String unitName, Class<?> classRef, String methodName, Object reference, Object... args) {
+		if (logOpen) {
+			DriverStation.reportError("Error: cannot add logging field while log file is open", false);
+			return;
+		}
+		Vector<Object> mhArgs = new Vector<Object>();
+		
+		if (reference != null) // will be null for static methods
+			mhArgs.add(reference);
+		
+		for (Object arg : args)
+			mhArgs.add(arg);
+		
+		MethodHandle methodHandle = null;
+		try {
+			methodHandle = MethodHandles.lookup().findVirtual(classRef, methodName, methodType);
+		} catch (NoSuchMethodException e) {
+			DriverStation.reportError("Error: Could not add logging field " + dataFieldName + " (no such method)", true);
+			e.printStackTrace();
+		} catch (IllegalAccessException e) {
+			try {
+				methodHandle = MethodHandles.lookup().findStatic(classRef, methodName, methodType);
+			} catch (Exception ex) {
+				DriverStation.reportError("Error: Could not add logging field " + dataFieldName, true);
+			}
+		}
+		
+		LogFieldType type = methodType.returnType() == boolean.class ? LogFieldType.BOOLEAN : LogFieldType.DOUBLE;
+		addSampler(dataFieldName, unitName, type, compileField(methodHandle, mhArgs, type, dataFieldName));
+	}
+
+	/*
+	 * Stores a compiled field, or replaces the sampler if a field with the same name
+	 * was already added.
+	 */
+	private void addSampler(String dataFieldName, String unitName, LogFieldType type, LongSupplier sampler) {
+		if (logOpen) {
+			DriverStation.reportError("Error: cannot add logging field while log file is open", false);
+			return;
+		}
+		int existing = dataFieldNames.indexOf(dataFieldName);
+		if (existing >= 0) {
+			fieldTypes.set(existing, type);
+			samplers.set(existing, sampler);
+			DriverStation.reportWarning("Warning: log field named " + dataFieldName + " already present. Reference updated", false);
+			return;
+		}
+		
+		dataFieldNames.add(dataFieldName);
+		unitNames.add(unitName);
+		fieldTypes.add(type);
+		samplers.add(sampler);
+		sampleDivisors.add(1);
+		deadbands.add(-1.0);
+		precisions.add(-1);
+	}
+
+	/**
+	 * Makes a field only be sampled every few calls to logData(), for signals that 
+	 * change slowly. Rows where it isn't sampled leave the field empty.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field, as passed when it was added, or the name of an
+	 *            array to change every element
+	 * @param divisor
+	 *            Field is sampled once every this many calls, 1 to sample every call
+	 */
+	public void setFieldSampleRate(String dataFieldName, int divisor) {
+		for (int index : findFields(dataFieldName)) {
+			sampleDivisors.set(index, Math.max(1, divisor));
+		}
+	}
+
+	/**
+	 * Makes a field only be written when it has changed by more than a threshold since
+	 * it was last written. Rows where it isn't written leave the field empty.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field, as passed when it was added, or the name of an
+	 *            array to change every element
+	 * @param deadband
+	 *            Smallest change that is written, 0 to write only when the value 
+	 *            changes, or negative to write every sample
+	 */
+	public void setFieldDeadband(String dataFieldName, double deadband) {
+		for (int index : findFields(dataFieldName)) {
+			deadbands.set(index, deadband);
+		}
+	}
+
+	/**
+	 * Rounds a field to a number of digits after the decimal point when it is written
+	 * to a CSV log. Binary logs always store the exact value.
+	 * 
+	 * @param dataFieldName
+	 *            Name of the field, as passed when it was added, or the name of an
+	 *            array to change every element
+	 * @param decimals
+	 *            Digits after the decimal point, up to DoubleFormatter.MAX_DECIMALS, or
+	 *            negative to write the shortest text that reads back as the exact value
+	 */
+	public void setFieldPrecision(String dataFieldName, int decimals) {
+		for (int index : findFields(dataFieldName)) {
+			precisions.set(index, decimals);
+		}
+	}
+
+	/*
+	 * Finds the index of a field for changing its settings, or of every element if it
+	 * is the name of an array, reporting an error if it doesn't exist or the log is 
+	 * open.
+	 */
+	private int[] findFields(String dataFieldName) {
+		if (logOpen) {
+			DriverStation.reportError("Error: cannot change logging field while log file is open", false);
+			return new int[0];
+		}
+		int index = dataFieldNames.indexOf(dataFieldName);
+		if (index >= 0) {
+			return new int[] { index };
+		}
+		
+		int elements = 0;
+		while (dataFieldNames.contains(dataFieldName + "[" + elements + "]")) {
+			elements++;
+		}
+		if (elements == 0) {
+			DriverStation.reportError("Error: no log field named " + dataFieldName, false);
+		}
+		int[] indexes = new int[elements];
+		for (int i = 0; i < elements; i++) {
+			indexes[i] = dataFieldNames.indexOf(dataFieldName + "[" + i + "]");
+		}
+		return indexes;
+	}
+
+	/***
+	 * Binds the receiver and arguments into a method handle and adapts it to return the
+	 * bits of its type in a long, so it can be called with invokeExact() and no boxing 
+	 * each time data is logged.
+	 * 
+	 * @param methodHandle
+	 *            A MethodHandle stored in the class level Vector
+	 * @param args
+	 *            Arguments for the given Method Handle
+	 * @param type
+	 *            Type of the field, BOOLEAN or DOUBLE
+	 * @param name 
+	 * 			  Name of the method
+	 * @return sampler that returns the bits of the double value for double return types,
+	 *         1 or 0 for boolean return types, or -1 (false for booleans) if the method 
+	 *         can't be called
+	 */
+	private static LongSupplier compileField(MethodHandle methodHandle, Vector<Object> args, LogFieldType type, String name) {
+		final long failed = type == LogFieldType.BOOLEAN ? LogFieldType.bitsOf(false) : LogFieldType.bitsOf(-1.0);
+		if (methodHandle == null) {
+			return () -> failed;
+		}
+		
+		final MethodHandle bound;
+		try {
+			MethodHandle handle = MethodHandles.insertArguments(methodHandle, 0, args.toArray());
+			
+			if (handle.type().returnType() == boolean.class)
+				handle = MethodHandles.filterReturnValue(handle, BOOLEAN_TO_BITS);
+			else
+				handle = MethodHandles.filterReturnValue(handle.asType(methodType(double.class)), DOUBLE_TO_BITS);
+			
+			bound = handle.asType(methodType(long.class));
+		} catch (RuntimeException e) {
+			DriverStation.reportError("Error: Could not bind arguments for logging field " + name, true);
+			return () -> failed;
+		}
+		
+		return () -> {
+			try {
+				return (long) bound.invokeExact();
+			} catch (Throwable e) {
+				DriverStation.reportError("Error running method " + name + " for data logging", true);
+			}
+			return failed;
+		};
+	}
+
+	/**
+	 * Convert the result of fields found by name to the bits of a BOOLEAN or a DOUBLE,
+	 * so every sampler returns a long
+	 */
+	private static final MethodHandle BOOLEAN_TO_BITS;
+	private static final MethodHandle DOUBLE_TO_BITS;
+	
+	static {
+		try {
+			BOOLEAN_TO_BITS = MethodHandles.lookup().findStatic(LogFieldType.class, "bitsOf", methodType(long.class, boolean.class));
+			DOUBLE_TO_BITS = MethodHandles.lookup().findStatic(LogFieldType.class, "bitsOf", methodType(long.class, double.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+}
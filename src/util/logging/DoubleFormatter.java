@@ -0,0 +1,447 @@
+package util.logging;
+
+import java.math.BigInteger;
+
+/**
+ * Writes doubles as ASCII text straight into a byte array, without creating any
+ * objects. Used by CsvSink so writing a row doesn't go through Double.toString() and
+ * a String for every cell.
+ * <br>
+ * <br>
+ * format(value, buf, pos) writes the shortest number that reads back as exactly the
+ * same double, using the Schubfach algorithm by Raffaello Giulietti. Numbers between
+ * 1e-6 and 1e21 are written without an exponent, such as 0.25 or 1500, and others
+ * like 1.5E-9. format(value, decimals, buf, pos) rounds to a fixed number of digits
+ * after the decimal point instead, such as 3.14 for 2 decimals. NaN and infinity are
+ * written the same as Double.toString(). Floats are written as the shortest number
+ * that reads back as the same float, so 0.1f is 0.1 and not 0.10000000149011612, and
+ * longs as whole numbers. Everything written can be read back with
+ * Double.parseDouble() or by excel.
+ */
+public final class DoubleFormatter {
+
+	/**
+	 * Most bytes a single call can write
+	 */
+	public static final int MAX_LENGTH = 32;
+
+	/**
+	 * Most digits after the decimal point format(value, decimals, buf, pos) can round to
+	 */
+	public static final int MAX_DECIMALS = 17;
+
+	private static final int Q_MIN = -1074;
+	private static final int P = 53;
+	private static final long C_MIN = 1L << (P - 1);
+	private static final long T_MASK = C_MIN - 1;
+	private static final int BQ_MASK = 0x7FF;
+	private static final long C_TINY = 3;
+	private static final int K_MIN = -324;
+	private static final int K_MAX = 292;
+	private static final long MASK_63 = 0x7FFFFFFFFFFFFFFFL;
+
+	/**
+	 * Powers of ten that fit in a long, POW10[i] = 10^i
+	 */
+	private static final long[] POW10 = new long[19];
+
+	/**
+	 * Powers of ten for rounding to a number of decimals, exact up to 10^22
+	 */
+	private static final double[] SCALE = new double[MAX_DECIMALS + 1];
+
+	/**
+	 * Every power of ten that is exact as a double, EXACT_POW10[i] = 10^i
+	 */
+	private static final double[] EXACT_POW10 = new double[23];
+
+	private static final byte[] LONG_MIN = Long.toString(Long.MIN_VALUE).getBytes();
+
+	/**
+	 * For each k from K_MIN to K_MAX, 10^-k scaled by a power of two to between 2^125
+	 * and 2^126, plus one. Stored as the upper 63 bits at index 2 * (k - K_MIN) and the
+	 * lower 63 bits right after it
+	 */
+	private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+	private static final byte[] NAN = { 'N', 'a', 'N' };
+	private static final byte[] INFINITY = { 'I', 'n', 'f', 'i', 'n', 'i', 't', 'y' };
+
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = POW10[i - 1] * 10;
+		}
+
+		for (int i = 0; i < SCALE.length; i++) {
+			SCALE[i] = POW10[i];
+		}
+		EXACT_POW10[0] = 1;
+		for (int i = 1; i < EXACT_POW10.length; i++) {
+			EXACT_POW10[i] = EXACT_POW10[i - 1] * 10;
+		}
+
+		BigInteger mask = BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE);
+		for (int k = K_MIN; k <= K_MAX; k++) {
+			int shift = 125 - flog2pow10(-k);
+			BigInteger beta;
+
+			if (k <= 0) {
+				BigInteger pow = BigInteger.TEN.pow(-k);
+				beta = shift >= 0 ? pow.shiftLeft(shift) : pow.shiftRight(-shift);
+			} else {
+				beta = BigInteger.ONE.shiftLeft(shift).divide(BigInteger.TEN.pow(k));
+			}
+			BigInteger g = beta.add(BigInteger.ONE);
+
+			G[2 * (k - K_MIN)] = g.shiftRight(63).longValue();
+			G[2 * (k - K_MIN) + 1] = g.and(mask).longValue();
+		}
+	}
+
+	private DoubleFormatter() {
+	}
+
+	/**
+	 * Writes the shortest text that reads back as exactly the same double
+	 *
+	 * @param value Number to write
+	 * @param buf Array to write into, needs MAX_LENGTH bytes free after pos
+	 * @param pos Index to start writing at
+	 * @return index after the last byte written
+	 */
+	public static int format(double value, byte[] buf, int pos) {
+		long bits = Double.doubleToRawLongBits(value);
+		long t = bits & T_MASK;
+		int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+
+		if (bq == BQ_MASK) {
+			if (t != 0) {
+				return copy(NAN, buf, pos);
+			}
+			if (bits < 0) {
+				buf[pos++] = '-';
+			}
+			return copy(INFINITY, buf, pos);
+		}
+
+		if (bits < 0) {
+			buf[pos++] = '-';
+		}
+
+		if (bq != 0) {
+			// Normal number, value = c * 2^-mq
+			int mq = -Q_MIN + 1 - bq;
+			long c = C_MIN | t;
+
+			// Whole numbers below 2^53 are written as they are
+			if (0 < mq && mq < P) {
+				long f = c >> mq;
+				if (f << mq == c) {
+					return toChars(f, 0, buf, pos);
+				}
+			}
+			return toDecimal(-mq, c, 0, buf, pos);
+		}
+
+		if (t != 0) {
+			// Subnormal number
+			return t < C_TINY ? toDecimal(Q_MIN, 10 * t, -1, buf, pos) : toDecimal(Q_MIN, t, 0, buf, pos);
+		}
+
+		buf[pos++] = '0';
+		return pos;
+	}
+
+	/**
+	 * Writes a number rounded to a fixed number of digits after the decimal point.
+	 * Numbers too large to round that way, NaN and infinity are written the same as
+	 * format(value, buf, pos)
+	 *
+	 * @param value Number to write
+	 * @param decimals Digits after the decimal point, from 0 to MAX_DECIMALS. Negative
+	 *        to write the shortest text instead, like format(value, buf, pos)
+	 * @param buf Array to write into, needs MAX_LENGTH bytes free after pos
+	 * @param pos Index to start writing at
+	 * @return index after the last byte written
+	 */
+	public static int format(double value, int decimals, byte[] buf, int pos) {
+		if (decimals < 0) {
+			return format(value, buf, pos);
+		}
+		decimals = Math.min(decimals, MAX_DECIMALS);
+
+		double scaled = Math.abs(value) * SCALE[decimals];
+		// Also false for NaN
+		if (!(scaled < 9e18)) {
+			return format(value, buf, pos);
+		}
+
+		long m = Math.round(scaled);
+		// Don't write -0.00 for small negative numbers
+		if (value < 0 && m != 0) {
+			buf[pos++] = '-';
+		}
+
+		long whole = m / POW10[decimals];
+		pos = writeDigits(whole, digitCount(whole), buf, pos);
+
+		if (decimals > 0) {
+			buf[pos++] = '.';
+			long fraction = m - whole * POW10[decimals];
+			pos = writeDigits(fraction, decimals, buf, pos);
+		}
+		return pos;
+	}
+
+	/**
+	 * Writes the shortest text that reads back as exactly the same float
+	 *
+	 * @param value Number to write
+	 * @param buf Array to write into, needs MAX_LENGTH bytes free after pos
+	 * @param pos Index to start writing at
+	 * @return index after the last byte written
+	 */
+	public static int format(float value, byte[] buf, int pos) {
+		double exact = value;
+		double magnitude = Math.abs(exact);
+		if (magnitude == 0 || Float.isNaN(value) || Float.isInfinite(value)) {
+			return format(exact, buf, pos);
+		}
+
+		// Round to more and more significant digits until it reads back as the same
+		// float. The double nearest a decimal of 9 digits or less is written as that
+		// decimal, as long as the power of ten used to round is exact
+		int exponent = (int) Math.floor(Math.log10(magnitude));
+		for (int digits = 1; digits <= 9; digits++) {
+			int shift = digits - 1 - exponent;
+			double rounded;
+			if (shift >= 0 && shift < EXACT_POW10.length) {
+				rounded = Math.rint(magnitude * EXACT_POW10[shift]) / EXACT_POW10[shift];
+			} else if (shift < 0 && -shift < EXACT_POW10.length) {
+				rounded = Math.rint(magnitude / EXACT_POW10[-shift]) * EXACT_POW10[-shift];
+			} else {
+				break;
+			}
+			if ((float) rounded == (float) magnitude) {
+				return format(value < 0 ? -rounded : rounded, buf, pos);
+			}
+		}
+		return format(exact, buf, pos);
+	}
+
+	/**
+	 * Writes a whole number
+	 *
+	 * @param value Number to write
+	 * @param buf Array to write into, needs MAX_LENGTH bytes free after pos
+	 * @param pos Index to start writing at
+	 * @return index after the last byte written
+	 */
+	public static int format(long value, byte[] buf, int pos) {
+		if (value == Long.MIN_VALUE) {
+			return copy(LONG_MIN, buf, pos);
+		}
+		if (value < 0) {
+			buf[pos++] = '-';
+			value = -value;
+		}
+		return writeDigits(value, digitCount(value), buf, pos);
+	}
+
+	/**
+	 * Finds the shortest decimal in the rounding interval of c * 2^q, see section 9
+	 * of "The Schubfach way to render doubles"
+	 */
+	private static int toDecimal(int q, long c, int dk, byte[] buf, int pos) {
+		long out = c & 1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+
+		// The interval is narrower below a power of two
+		if (c != C_MIN || q == Q_MIN) {
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else {
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+		int h = q + flog2pow10(-k) + 2;
+
+		long g1 = G[2 * (k - K_MIN)];
+		long g0 = G[2 * (k - K_MIN) + 1];
+
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+
+		long s = vb >> 2;
+		if (s >= 100) {
+			// Try one digit less first, s / 10 * 10 and the next multiple of 10
+			long sp10 = 10 * multiplyHigh(s, 115292150460684698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if (upin != wpin) {
+				return toChars(upin ? sp10 : tp10, k, buf, pos);
+			}
+		}
+
+		long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if (uin != win) {
+			return toChars(uin ? s : t, k + dk, buf, pos);
+		}
+
+		// Both are in the interval, take the closer one, or the even one on a tie
+		long cmp = vb - ((s + t) << 1);
+		return toChars(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk, buf, pos);
+	}
+
+	/**
+	 * Writes f * 10^e
+	 */
+	private static int toChars(long f, int e, byte[] buf, int pos) {
+		if (f == 0) {
+			buf[pos++] = '0';
+			return pos;
+		}
+
+		while (f % 10 == 0) {
+			f /= 10;
+			e++;
+		}
+
+		int len = digitCount(f);
+		// Digits before the decimal point
+		int point = len + e;
+
+		if (point > 0 && point <= 21) {
+			if (len <= point) {
+				// Whole number, pad with zeros
+				pos = writeDigits(f, len, buf, pos);
+				for (int i = len; i < point; i++) {
+					buf[pos++] = '0';
+				}
+				return pos;
+			}
+
+			writeDigits(f, len, buf, pos + 1);
+			System.arraycopy(buf, pos + 1, buf, pos, point);
+			buf[pos + point] = '.';
+			return pos + len + 1;
+		}
+
+		if (point <= 0 && point > -6) {
+			buf[pos++] = '0';
+			buf[pos++] = '.';
+			for (int i = point; i < 0; i++) {
+				buf[pos++] = '0';
+			}
+			return writeDigits(f, len, buf, pos);
+		}
+
+		// d.dddE-x, leaving a gap after the first digit for the decimal point
+		writeDigits(f, len, buf, pos + 1);
+		buf[pos] = buf[pos + 1];
+		if (len > 1) {
+			buf[pos + 1] = '.';
+			pos += len + 1;
+		} else {
+			pos++;
+		}
+
+		buf[pos++] = 'E';
+		int exponent = point - 1;
+		if (exponent < 0) {
+			buf[pos++] = '-';
+			exponent = -exponent;
+		}
+		return writeDigits(exponent, digitCount(exponent), buf, pos);
+	}
+
+	/**
+	 * Writes the last count digits of a positive number, padding with zeros on the left
+	 */
+	private static int writeDigits(long value, int count, byte[] buf, int pos) {
+		int end = pos + count;
+
+		for (int i = end - 1; i >= pos; i--) {
+			long next = value / 10;
+			buf[i] = (byte) ('0' + (value - next * 10));
+			value = next;
+		}
+		return end;
+	}
+
+	/**
+	 * @return digits in a positive number, 1 for 0
+	 */
+	private static int digitCount(long value) {
+		int count = 1;
+
+		while (count < POW10.length && value >= POW10[count]) {
+			count++;
+		}
+		return count;
+	}
+
+	private static int copy(byte[] text, byte[] buf, int pos) {
+		System.arraycopy(text, 0, buf, pos, text.length);
+		return pos + text.length;
+	}
+
+	/**
+	 * Upper 64 bits of the rounded to odd product of g and cp, where g is the 126 bit
+	 * number g1 * 2^63 + g0
+	 */
+	private static long rop(long g1, long g0, long cp) {
+		long x1 = multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | ((z & MASK_63) + MASK_63) >>> 63;
+	}
+
+	/**
+	 * Upper 64 bits of the 128 bit product of two longs, Math.multiplyHigh() isn't in
+	 * Java 8
+	 */
+	private static long multiplyHigh(long x, long y) {
+		long x1 = x >> 32;
+		long x2 = x & 0xFFFFFFFFL;
+		long y1 = y >> 32;
+		long y2 = y & 0xFFFFFFFFL;
+
+		long z2 = x2 * y2;
+		long t = x1 * y2 + (z2 >>> 32);
+		long z1 = (t & 0xFFFFFFFFL) + x2 * y1;
+		long z0 = t >> 32;
+		return x1 * y1 + z0 + (z1 >> 32);
+	}
+
+	/**
+	 * @return floor(log10(2^e))
+	 */
+	private static int flog10pow2(int e) {
+		return (int) (e * 661971961083L >> 41);
+	}
+
+	/**
+	 * @return floor(log10(3/4 * 2^e))
+	 */
+	private static int flog10threeQuartersPow2(int e) {
+		return (int) (e * 661971961083L - 274743187321L >> 41);
+	}
+
+	/**
+	 * @return floor(log2(10^e))
+	 */
+	private static int flog2pow10(int e) {
+		return (int) (e * 913124641741L >> 38);
+	}
+}
@@ -0,0 +1,628 @@
+package util.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import util.loops.Loop;
+import util.loops.LoopFaultListener;
+import util.loops.LoopHangReport;
+import util.loops.Looper;
+
+/**
+ * Keeps the last few seconds of every field of a DataLogger in memory, sampled every
+ * Looper tick, and writes them to a file when something goes wrong. Unlike the
+ * DataLogger it doesn't need a log to be open, so it also covers what happened while
+ * disabled or before init(), and it never writes to disk until it is triggered. <br>
+ * <br>
+ * A dump is triggered by:
+ * <ul>
+ * <li>The robot browning out, unless turned off with setDumpOnBrownout()</li>
+ * <li>A loop throwing an exception or being found hung by the Looper's watchdog,
+ * once the recorder is registered with register()</li>
+ * <li>A trigger added with addTrigger() becoming true, such as a driver button</li>
+ * <li>Calling dump()</li>
+ * </ul>
+ * The recorder keeps sampling for setPostTrigger() seconds after the trigger, then
+ * copies its buffer and writes it on a background thread, so the loop never waits on
+ * the disk. Triggers while a dump is being written are put off until it is done. 
+ * Loops that throw or hang are dumped straight away from the thread that reports 
+ * them, without the post trigger time, since the Looper may never tick again. Each
+ * loop and phase only causes one fault dump until rearmFaultDumps() is called or the
+ * loop starts again, and fault dumps are at least setFaultDumpInterval() apart, so a
+ * loop that throws every tick can't fill the disk. Fault dumps that are left out are
+ * counted in getSuppressedFaultDumps().
+ * Each dump goes in the DataLogger's output directory, named like
+ * name_flight_01-Jan-2018_01.02.03PM_1_brownout.csv, counting up from 1 for each
+ * dump so two in the same second don't share a file. <br>
+ * <br>
+ * All of the memory is allocated when the loop starts. Fields added to the DataLogger
+ * after that are picked up the next time it is started.
+ */
+public class FlightRecorder implements LoopFaultListener {
+
+	/**
+	 * Most characters of the reason put in the name of a dump
+	 */
+	private static final int MAX_REASON_LENGTH = 32;
+
+	/**
+	 * Time in milliseconds a fault waits for the loop to finish adding a row before
+	 * leaving the dump to the next tick
+	 */
+	private static final long LOCK_WAIT = 20;
+
+	/**
+	 * Logger whose fields are recorded
+	 */
+	private final DataLogger source;
+
+	/**
+	 * Time in seconds the buffer holds
+	 */
+	private final double history;
+
+	/**
+	 * Time in seconds between samples
+	 */
+	private final double period;
+
+	private LogFormat format = LogFormat.CSV;
+	private boolean dumpOnBrownout = true;
+	private double postTrigger = 0;
+
+	/**
+	 * Time in seconds that samples are stamped with
+	 */
+	private volatile DoubleSupplier clock = () -> Timer.getFPGATimestamp();
+
+	/**
+	 * Least time in nanoseconds between two fault dumps
+	 */
+	private long faultDumpInterval = 5000000000L;
+
+	/**
+	 * Phases of each loop that have already caused a fault dump, and when the last 
+	 * fault dump was. Only used while synchronized
+	 */
+	private final IdentityHashMap<Loop, Set<String>> faultsDumped = new IdentityHashMap<Loop, Set<String>>();
+	private long lastFaultDump = 0;
+	private boolean hasFaultDumped = false;
+
+	private volatile int suppressedFaultDumps = 0;
+
+	private final Vector<String> triggerNames = new Vector<String>();
+	private final Vector<BooleanSupplier> triggerSuppliers = new Vector<BooleanSupplier>();
+
+	/**
+	 * Copies made by the loop's onStart(), only used from the loop's thread
+	 */
+	private BooleanSupplier[] triggers = new BooleanSupplier[0];
+	private String[] triggerReasons = new String[0];
+	private boolean[] triggerWasSet = new boolean[0];
+	private boolean wasBrownedOut = false;
+
+	private LongSupplier[] fields = new LongSupplier[0];
+	private String[] fieldNames = new String[0];
+	private String[] unitNames = new String[0];
+	private LogFieldType[] types = new LogFieldType[0];
+	private String fileStart = null;
+
+	/**
+	 * Bits of the last samples, slot i uses indexes i * width to (i + 1) * width - 1. 
+	 * Overwritten oldest first once it is full
+	 */
+	private long[] samples = new long[0];
+	private double[] timestamps = new double[0];
+	private int capacity = 0;
+
+	/**
+	 * Number of rows ever recorded since the loop started
+	 */
+	private long recorded = 0;
+
+	/**
+	 * Held while a row is added to the buffer or the buffer is handed to the dump
+	 * thread, so a fault on another thread can take a dump without waiting for a tick
+	 */
+	private final ReentrantLock bufferLock = new ReentrantLock();
+
+	/**
+	 * Fields are sampled into this before being added to the buffer, so the lock is
+	 * never held while a field's code runs
+	 */
+	private long[] row = new long[0];
+
+	/**
+	 * Rows copied out of the buffer for the dump thread, oldest first. Only written
+	 * while dumping is null
+	 */
+	private long[] dumpSamples = new long[0];
+	private double[] dumpTimestamps = new double[0];
+	private int dumpRows = 0;
+
+	/**
+	 * Reason for a dump that was asked for from any thread and hasn't been taken yet,
+	 * or null
+	 */
+	private volatile String requested = null;
+
+	/**
+	 * Reason for the dump the loop is recording the post trigger time for, or null
+	 */
+	private String triggered = null;
+	private double triggerTime = 0;
+
+	/**
+	 * Reason for the dump handed to the dump thread, cleared once it has been written
+	 */
+	private volatile String dumping = null;
+
+	/**
+	 * Thread writing dumps, null while the loop isn't running
+	 */
+	private volatile Thread dumpThread = null;
+
+	private volatile int dumpCount = 0;
+	private volatile String lastDump = null;
+
+	/**
+	 * Loop that samples every field and checks the triggers each tick
+	 */
+	private final Loop loop = new Loop() {
+
+		@Override
+		public void onStart() {
+			start();
+		}
+
+		@Override
+		public void onLoop() {
+			record();
+		}
+
+		@Override
+		public void onStop() {
+			stop();
+		}
+
+		@Override
+		public int getPriority() {
+			return PRIORITY_LOW;
+		}
+
+		@Override
+		public String[] getReads() {
+			// The same fields as the logger
+			return source.reads;
+		}
+
+		@Override
+		public String[] getWrites() {
+			return new String[0];
+		}
+	};
+
+	/**
+	 * Creates a recorder for every field of a logger
+	 *
+	 * @param source Logger whose fields are recorded
+	 * @param history Time in seconds of samples to keep
+	 * @param period Time in seconds between samples, usually the Looper's loopDt
+	 */
+	public FlightRecorder(DataLogger source, double history, double period) {
+		this.source = source;
+		this.history = history;
+		this.period = period;
+	}
+
+	/**
+	 * Use for starting loop through Looper class
+	 * @return loop that records the fields
+	 */
+	public Loop getLoop() {
+		return loop;
+	}
+
+	/**
+	 * Registers the loop with a Looper at the recorder's period, and listens for
+	 * loops that throw or hang so they trigger a dump. Samples are then stamped with
+	 * the time from the Looper's scheduler
+	 *
+	 * @param looper Looper to run the recorder
+	 */
+	public void register(Looper looper) {
+		clock = looper.getScheduler()::getTimestamp;
+		looper.register(loop, period);
+		looper.addFaultListener(this);
+	}
+
+	/**
+	 * Sets where the time samples are stamped with comes from. The FPGA clock is used
+	 * until this is called or the recorder is registered with a Looper
+	 *
+	 * @param clock Time in seconds, such as a LoopScheduler's getTimestamp()
+	 */
+	public void setClock(DoubleSupplier clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Sets the format dumps are written in. Takes effect on the next dump.
+	 *
+	 * @param newFormat Format of the dump files
+	 */
+	public void setFormat(LogFormat newFormat) {
+		format = newFormat;
+	}
+
+	/**
+	 * @param dump True to dump when the robot browns out
+	 */
+	public void setDumpOnBrownout(boolean dump) {
+		dumpOnBrownout = dump;
+	}
+
+	/**
+	 * Sets how long to keep recording after a trigger before dumping, so the dump
+	 * shows what happened after the fault as well as before it
+	 *
+	 * @param seconds Time in seconds, 0 to dump on the tick of the trigger
+	 */
+	public void setPostTrigger(double seconds) {
+		postTrigger = seconds;
+	}
+
+	/**
+	 * Sets the least time between two dumps caused by loops throwing or hanging
+	 *
+	 * @param seconds Time in seconds, 5 by default
+	 */
+	public synchronized void setFaultDumpInterval(double seconds) {
+		faultDumpInterval = (long) (seconds * 1e9);
+	}
+
+	/**
+	 * Lets every loop and phase cause a fault dump again, such as after the problem
+	 * that caused the last one has been fixed. Also done each time the loop starts
+	 */
+	public synchronized void rearmFaultDumps() {
+		faultsDumped.clear();
+	}
+
+	/**
+	 * @return number of fault dumps left out because the loop and phase had already 
+	 *         caused one, or the last one was too recent
+	 */
+	public int getSuppressedFaultDumps() {
+		return suppressedFaultDumps;
+	}
+
+	/**
+	 * Adds a condition that triggers a dump each time it becomes true, such as
+	 * () -> joystick.getRawButton(8). Takes effect the next time the loop starts.
+	 *
+	 * @param reason Name of the trigger, put in the name of the dump
+	 * @param trigger Condition checked every tick
+	 */
+	public void addTrigger(String reason, BooleanSupplier trigger) {
+		triggerNames.add(reason);
+		triggerSuppliers.add(trigger);
+	}
+
+	/**
+	 * Asks for the buffer to be written to a file. Can be called from any thread,
+	 * the dump is taken by the recorder's loop
+	 *
+	 * @param reason Why the dump was taken, put in the name of the dump
+	 */
+	public void dump(String reason) {
+		if (requested == null) {
+			requested = reason;
+		}
+	}
+
+	/**
+	 * @return number of dumps written since the recorder was created
+	 */
+	public int getDumpCount() {
+		return dumpCount;
+	}
+
+	/**
+	 * @return path of the last dump written, or null if there hasn't been one
+	 */
+	public String getLastDump() {
+		return lastDump;
+	}
+
+	@Override
+	public void loopHung(LoopHangReport report) {
+		if (allowFaultDump(report.getLoop(), report.getPhase())) {
+			dumpNow("hang");
+		}
+	}
+
+	@Override
+	public void loopThrew(Loop loop, String phase, Throwable thrown) {
+		if (allowFaultDump(loop, phase)) {
+			dumpNow("exception");
+		}
+	}
+
+	/**
+	 * Checks if a fault should be dumped, counting it as suppressed if not
+	 *
+	 * @return false if the loop and phase already caused a dump or the last fault 
+	 *         dump was too recent
+	 */
+	private synchronized boolean allowFaultDump(Loop loop, String phase) {
+		long now = System.nanoTime();
+		Set<String> phases = faultsDumped.get(loop);
+		
+		if ((phases != null && phases.contains(phase)) || (hasFaultDumped && now - lastFaultDump < faultDumpInterval)) {
+			suppressedFaultDumps++;
+			return false;
+		}
+		if (phases == null) {
+			phases = new HashSet<String>();
+			faultsDumped.put(loop, phases);
+		}
+		phases.add(phase);
+		lastFaultDump = now;
+		hasFaultDumped = true;
+		return true;
+	}
+
+	/**
+	 * Hands the buffer to the dump thread right away, or asks the loop for a dump if
+	 * it can't, such as while another dump is being written
+	 */
+	private void dumpNow(String reason) {
+		boolean locked;
+		try {
+			locked = bufferLock.tryLock(LOCK_WAIT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			locked = false;
+		}
+		if (!locked) {
+			dump(reason);
+			return;
+		}
+		
+		try {
+			if (!handOff(reason)) {
+				dump(reason);
+			}
+		} finally {
+			bufferLock.unlock();
+		}
+	}
+
+	/**
+	 * Copies the buffer for the dump thread and wakes it up, called with the lock held
+	 *
+	 * @return false if the dump thread isn't running or is still writing a dump
+	 */
+	private boolean handOff(String reason) {
+		Thread thread = dumpThread;
+		if (thread == null || dumping != null) {
+			return false;
+		}
+		copyForDump();
+		dumping = reason;
+		LockSupport.unpark(thread);
+		return true;
+	}
+
+	/**
+	 * Allocates the buffers for the current fields and starts the dump thread
+	 */
+	private void start() {
+		rearmFaultDumps();
+		fields = source.samplers.toArray(new LongSupplier[0]);
+		types = source.fieldTypes.toArray(new LogFieldType[0]);
+		fieldNames = source.dataFieldNames.toArray(new String[0]);
+		unitNames = source.unitNames.toArray(new String[0]);
+		fileStart = source.outputDir + source.getName() + "_flight_";
+
+		triggers = triggerSuppliers.toArray(new BooleanSupplier[0]);
+		triggerReasons = triggerNames.toArray(new String[0]);
+		triggerWasSet = new boolean[triggers.length];
+		wasBrownedOut = false;
+
+		capacity = (int) Math.max(1, Math.ceil(history / period));
+		row = new long[fields.length];
+		samples = new long[capacity * fields.length];
+		timestamps = new double[capacity];
+		dumpSamples = new long[capacity * fields.length];
+		dumpTimestamps = new double[capacity];
+		recorded = 0;
+		triggered = null;
+
+		dumpThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeDumps();
+			}
+		}, "FlightRecorder " + source.getName());
+		dumpThread.setDaemon(true);
+		dumpThread.start();
+	}
+
+	/**
+	 * Stops the dump thread once it has written any dump it was given
+	 */
+	private void stop() {
+		Thread thread = dumpThread;
+		dumpThread = null;
+
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Samples every field into the buffer, checks the triggers, and hands the buffer
+	 * to the dump thread once a trigger's post trigger time is up
+	 */
+	private void record() {
+		double now = clock.getAsDouble();
+		int slot = (int) (recorded % capacity);
+		int width = fields.length;
+
+		try {
+			for (int i = 0; i < width; i++) {
+				row[i] = fields[i].getAsLong();
+			}
+		} catch (Exception e) {
+			DriverStation.reportError("Error recording field: " + e.getMessage(), false);
+		}
+		
+		bufferLock.lock();
+		try {
+			System.arraycopy(row, 0, samples, slot * width, width);
+			timestamps[slot] = now;
+			recorded++;
+		} finally {
+			bufferLock.unlock();
+		}
+
+		checkTriggers();
+
+		if (triggered == null && requested != null) {
+			triggered = requested;
+			requested = null;
+			triggerTime = now;
+		}
+
+		// Hold the trigger while the last dump is still being written
+		if (triggered != null && dumping == null && now - triggerTime >= postTrigger) {
+			bufferLock.lock();
+			try {
+				if (handOff(triggered)) {
+					triggered = null;
+				}
+			} finally {
+				bufferLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Asks for a dump for each trigger that became true since the last tick
+	 */
+	private void checkTriggers() {
+		if (dumpOnBrownout) {
+			boolean brownedOut = DriverStation.getInstance().isBrownedOut();
+			if (brownedOut && !wasBrownedOut) {
+				dump("brownout");
+			}
+			wasBrownedOut = brownedOut;
+		}
+
+		for (int i = 0; i < triggers.length; i++) {
+			boolean set;
+			try {
+				set = triggers[i].getAsBoolean();
+			} catch (Exception e) {
+				set = false;
+			}
+			if (set && !triggerWasSet[i]) {
+				dump(triggerReasons[i]);
+			}
+			triggerWasSet[i] = set;
+		}
+	}
+
+	/**
+	 * Copies every row in the buffer to the dump buffer, oldest first. Called with the
+	 * lock held
+	 */
+	private void copyForDump() {
+		int width = fields.length;
+		int rows = (int) Math.min(recorded, capacity);
+		int oldest = (int) ((recorded - rows) % capacity);
+		// Rows from the oldest to the end of the buffer, then from the start
+		int first = Math.min(rows, capacity - oldest);
+
+		System.arraycopy(timestamps, oldest, dumpTimestamps, 0, first);
+		System.arraycopy(timestamps, 0, dumpTimestamps, first, rows - first);
+		System.arraycopy(samples, oldest * width, dumpSamples, 0, first * width);
+		System.arraycopy(samples, 0, dumpSamples, first * width, (rows - first) * width);
+		dumpRows = rows;
+	}
+
+	/**
+	 * Runs on the dump thread, writing each dump handed to it until the loop stops
+	 */
+	private void writeDumps() {
+		Thread self = Thread.currentThread();
+
+		while (true) {
+			String reason = dumping;
+			if (reason != null) {
+				writeDump(reason);
+				dumping = null;
+			} else if (dumpThread != self) {
+				return;
+			} else {
+				LockSupport.park(this);
+			}
+		}
+	}
+
+	/**
+	 * Writes the dump buffer to a new file
+	 */
+	private void writeDump(String reason) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < reason.length() && i < MAX_REASON_LENGTH; i++) {
+			char c = reason.charAt(i);
+			name.append(Character.isLetterOrDigit(c) ? c : '-');
+		}
+		String path = fileStart + DataLogger.getDateTimeString() + "_" + (dumpCount + 1) + "_" + name + format.extension;
+
+		int width = fields.length;
+		long[] row = new long[width];
+
+		try {
+			new File(path).getAbsoluteFile().getParentFile().mkdirs();
+			LogSink sink = format.createSink(path);
+
+			try {
+				sink.open(fieldNames, unitNames, types);
+				for (int i = 0; i < dumpRows; i++) {
+					System.arraycopy(dumpSamples, i * width, row, 0, width);
+					sink.writeRow(dumpTimestamps[i], row, null);
+				}
+				sink.sync();
+			} finally {
+				sink.close();
+			}
+
+			dumpCount++;
+			lastDump = path;
+			DriverStation.reportWarning("Flight recorder dumped " + dumpRows + " rows for " + reason + " to " + path, false);
+		} catch (IOException e) {
+			DriverStation.reportError("ERROR - cannot write flight recorder dump: " + e.getMessage(), false);
+		}
+	}
+}
@@ -0,0 +1,607 @@
+package util.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Summarizes every log in a directory, such as the logFiles folder after a match or a
+ * whole season. Each log is read by its own task on a fork-join pool, one row at a
+ * time, so memory use depends on the number of columns and not the length of the
+ * logs. For each log a summary table is written with, for every column:
+ * <ul>
+ * <li>number of samples, min, max, mean and standard deviation</li>
+ * <li>percentiles, estimated with PercentileSketch</li>
+ * </ul>
+ * followed by every threshold that was set, such as a current spike, with how many
+ * times it was crossed, for how long and the worst value.
+ * <br>
+ * <br>
+ * USAGE:
+ * <ol>
+ * <li>Create a LogAnalyzer, then call setPercentiles(), addThreshold() and
+ * setOutputDir() as needed</li>
+ * <li>Call analyzeDirectory() or analyze()</li>
+ * </ol>
+ * Can also be run from the command line: <br>
+ * java util.logging.LogAnalyzer directory [-o outputDir] [-p 50,90,99] [-j threads]
+ * [-t "column&gt;value"]...
+ */
+public class LogAnalyzer {
+
+	/**
+	 * A limit on a column, crossed when a value goes from not meeting it to meeting it
+	 */
+	public static class Threshold {
+		private static final Pattern CONDITION = Pattern.compile("(.+?)\\s*(>=|<=|>|<)\\s*(\\S+)");
+
+		/**
+		 * Name of the column, can contain * to match any text, such as "*Current"
+		 */
+		public final String column;
+		public final boolean above;
+		public final boolean inclusive;
+		public final double value;
+
+		private final Pattern names;
+
+		/**
+		 * Creates a threshold
+		 *
+		 * @param column Name of the column, can contain * to match any text
+		 * @param above true if the threshold is met above the value, false if below
+		 * @param inclusive true if the threshold is met at the value
+		 * @param value Value of the threshold
+		 */
+		public Threshold(String column, boolean above, boolean inclusive, double value) {
+			this.column = column;
+			this.above = above;
+			this.inclusive = inclusive;
+			this.value = value;
+
+			String[] parts = column.split("\\*", -1);
+			StringBuilder regex = new StringBuilder();
+			for (int i = 0; i < parts.length; i++) {
+				if (i > 0) {
+					regex.append(".*");
+				}
+				regex.append(Pattern.quote(parts[i]));
+			}
+			names = Pattern.compile(regex.toString());
+		}
+
+		/**
+		 * Reads a threshold written like "Drive Current &gt; 40" or "Battery &lt;= 7.5"
+		 *
+		 * @param condition Text of the threshold
+		 * @return the threshold
+		 * @throws IllegalArgumentException if the text can't be read
+		 */
+		public static Threshold parse(String condition) {
+			Matcher matcher = CONDITION.matcher(condition.trim());
+			if (!matcher.matches()) {
+				throw new IllegalArgumentException("Threshold should look like column>value: " + condition);
+			}
+			String operator = matcher.group(2);
+			try {
+				return new Threshold(matcher.group(1), operator.charAt(0) == '>', operator.length() == 2,
+						Double.parseDouble(matcher.group(3)));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Bad threshold value: " + condition);
+			}
+		}
+
+		/**
+		 * @param name Name of a column
+		 * @return true if this threshold applies to the column
+		 */
+		public boolean matches(String name) {
+			return names.matcher(name).matches();
+		}
+
+		/**
+		 * @param sample Value of the column
+		 * @return true if the value meets the threshold
+		 */
+		public boolean isMet(double sample) {
+			if (inclusive && sample == value) {
+				return true;
+			}
+			return above ? sample > value : sample < value;
+		}
+
+		@Override
+		public String toString() {
+			return (above ? ">" : "<") + (inclusive ? "=" : "") + value;
+		}
+	}
+
+	/**
+	 * Statistics of one column of a log
+	 */
+	public static class ColumnSummary {
+		public final String name;
+		public final String unit;
+
+		public long count = 0;
+		public double min = Double.NaN;
+		public double max = Double.NaN;
+		public double mean = Double.NaN;
+
+		/**
+		 * Sum of squared differences from the mean, see getStandardDeviation()
+		 */
+		private double squares = 0;
+
+		/**
+		 * Distribution of the column, use get() to find any percentile
+		 */
+		public final PercentileSketch percentiles = new PercentileSketch();
+
+		ColumnSummary(String name, String unit) {
+			this.name = name;
+			this.unit = unit;
+		}
+
+		void add(double value) {
+			if (count++ == 0) {
+				min = value;
+				max = value;
+				mean = value;
+			} else {
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+				// Welford's method, which doesn't lose precision over long logs
+				double difference = value - mean;
+				mean += difference / count;
+				squares += difference * (value - mean);
+			}
+			percentiles.add(value);
+		}
+
+		/**
+		 * @return standard deviation of the column, NaN if it has no samples
+		 */
+		public double getStandardDeviation() {
+			return count == 0 ? Double.NaN : Math.sqrt(squares / count);
+		}
+	}
+
+	/**
+	 * How often a threshold was met by one column of a log
+	 */
+	public static class ThresholdSummary {
+		public final Threshold threshold;
+		public final String column;
+
+		/**
+		 * Number of times the column started meeting the threshold
+		 */
+		public long crossings = 0;
+
+		/**
+		 * Number of rows meeting the threshold
+		 */
+		public long rows = 0;
+
+		/**
+		 * Time in seconds spent meeting the threshold, not valid for logs without times
+		 */
+		public double seconds = 0;
+
+		/**
+		 * Time of the first crossing, NaN if it never happened or the log has no times
+		 */
+		public double firstTime = Double.NaN;
+
+		/**
+		 * Row of the first crossing counting from 0, -1 if it never happened
+		 */
+		public long firstRow = -1;
+
+		/**
+		 * Furthest past the threshold the column went, NaN if it never met it
+		 */
+		public double worst = Double.NaN;
+
+		private boolean met = false;
+		private double lastTime = Double.NaN;
+
+		ThresholdSummary(Threshold threshold, String column) {
+			this.threshold = threshold;
+			this.column = column;
+		}
+
+		void add(long row, double time, double value) {
+			if (!threshold.isMet(value)) {
+				met = false;
+				return;
+			}
+			if (met) {
+				seconds += time - lastTime;
+			} else {
+				crossings++;
+				if (firstRow < 0) {
+					firstRow = row;
+					firstTime = time;
+				}
+			}
+			met = true;
+			lastTime = time;
+			rows++;
+			if (Double.isNaN(worst) || (threshold.above ? value > worst : value < worst)) {
+				worst = value;
+			}
+		}
+	}
+
+	/**
+	 * Everything found in one log
+	 */
+	public static class Summary {
+		public final String path;
+
+		/**
+		 * Why the log couldn't be read, or null if it was read
+		 */
+		public String error = null;
+
+		public long rows = 0;
+		public long events = 0;
+		public long errorEvents = 0;
+		public double startTime = Double.NaN;
+		public double endTime = Double.NaN;
+
+		public final List<ColumnSummary> columns = new ArrayList<ColumnSummary>();
+		public final List<ThresholdSummary> thresholds = new ArrayList<ThresholdSummary>();
+
+		Summary(String path) {
+			this.path = path;
+		}
+
+		/**
+		 * @return total number of times any threshold was crossed
+		 */
+		public long getCrossings() {
+			long crossings = 0;
+			for (ThresholdSummary threshold : thresholds) {
+				crossings += threshold.crossings;
+			}
+			return crossings;
+		}
+	}
+
+	private double[] percentiles = { 50, 90, 99 };
+	private final List<Threshold> thresholds = new ArrayList<Threshold>();
+	private String outputDir = null;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Sets which percentiles of each column are estimated, 50, 90 and 99 by default
+	 *
+	 * @param percentiles Percentiles from 0 to 100
+	 */
+	public void setPercentiles(double... percentiles) {
+		this.percentiles = percentiles.clone();
+	}
+
+	/**
+	 * Adds a threshold to look for in every log
+	 *
+	 * @param threshold Threshold to look for
+	 */
+	public void addThreshold(Threshold threshold) {
+		thresholds.add(threshold);
+	}
+
+	/**
+	 * Adds a threshold to look for in every log
+	 *
+	 * @param condition Threshold written like "Drive Current &gt; 40", see Threshold.parse()
+	 */
+	public void addThreshold(String condition) {
+		addThreshold(Threshold.parse(condition));
+	}
+
+	/**
+	 * Sets where the summary of each log is written by analyzeDirectory(). By default
+	 * it is a folder called summary in the directory of the logs
+	 *
+	 * @param directory Directory to write to, null for the default
+	 */
+	public void setOutputDir(String directory) {
+		outputDir = directory;
+	}
+
+	/**
+	 * Sets how many logs are read at the same time, the number of processors by default
+	 *
+	 * @param threads Number of logs to read at once
+	 */
+	public void setParallelism(int threads) {
+		parallelism = Math.max(1, threads);
+	}
+
+	/**
+	 * Summarizes every log in a directory at the same time, writing a summary table for
+	 * each one, named after the log such as foo.bin_summary.csv. Logs that can't be 
+	 * read are reported in their summary and don't stop the others
+	 *
+	 * @param directory Directory holding the logs, subdirectories aren't read
+	 * @return summary of each log, sorted by file name
+	 * @throws IOException if the directory can't be read
+	 */
+	public List<Summary> analyzeDirectory(String directory) throws IOException {
+		File[] files = new File(directory).listFiles(file -> file.isFile() && isLog(file.getName()));
+		if (files == null) {
+			throw new IOException("Can't read directory " + directory);
+		}
+		Arrays.sort(files);
+
+		File output = new File(outputDir != null ? outputDir : new File(directory, "summary").getPath());
+		if (!output.isDirectory() && !output.mkdirs()) {
+			throw new IOException("Can't create directory " + output);
+		}
+
+		List<File> logs = Arrays.asList(files);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			// Running the stream inside the pool makes its tasks use the pool's threads
+			return pool.submit(() -> logs.parallelStream().map(log -> {
+				Summary summary = analyzeQuietly(log.getPath());
+				// Keep the extension, so foo.bin and foo.csv don't write the same table
+				File table = new File(output, log.getName() + "_summary.csv");
+				try {
+					writeSummary(summary, table.getPath());
+				} catch (IOException e) {
+					if (summary.error == null) {
+						summary.error = "Can't write " + table + ": " + e.getMessage();
+					}
+				}
+				return summary;
+			}).collect(Collectors.toList())).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * @return true if the file is a log, and not an index or a summary
+	 */
+	private static boolean isLog(String name) {
+		if (name.endsWith("_summary.csv")) {
+			return false;
+		}
+		for (LogFormat format : LogFormat.values()) {
+			if (name.endsWith(format.extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Summary analyzeQuietly(String path) {
+		try {
+			return analyze(path);
+		} catch (IOException | RuntimeException e) {
+			Summary summary = new Summary(path);
+			summary.error = e.toString();
+			return summary;
+		}
+	}
+
+	/**
+	 * Summarizes one log, reading it one row at a time
+	 *
+	 * @param path Path of the log
+	 * @return summary of the log
+	 * @throws IOException if the log can't be read
+	 */
+	public Summary analyze(String path) throws IOException {
+		Summary summary = new Summary(path);
+
+		try (LogFileReader reader = LogFileReader.open(path)) {
+			String[] names = reader.getFieldNames();
+			String[] units = reader.getUnitNames();
+
+			ColumnSummary[] columns = new ColumnSummary[names.length];
+			for (int i = 0; i < names.length; i++) {
+				columns[i] = new ColumnSummary(names[i], units[i]);
+				summary.columns.add(columns[i]);
+			}
+
+			// Thresholds for each column, found once so rows don't match names
+			List<List<ThresholdSummary>> limits = new ArrayList<List<ThresholdSummary>>();
+			for (int i = 0; i < names.length; i++) {
+				List<ThresholdSummary> forColumn = new ArrayList<ThresholdSummary>();
+				for (Threshold threshold : thresholds) {
+					if (threshold.matches(names[i])) {
+						ThresholdSummary limit = new ThresholdSummary(threshold, names[i]);
+						forColumn.add(limit);
+						summary.thresholds.add(limit);
+					}
+				}
+				limits.add(forColumn);
+			}
+
+			while (true) {
+				boolean more = reader.next();
+				for (LogEvent event : reader.getEvents()) {
+					summary.events++;
+					if (event.type == LogEvent.Type.ERROR) {
+						summary.errorEvents++;
+					}
+				}
+				if (!more) {
+					break;
+				}
+
+				double time = reader.getTimestamp();
+				if (summary.rows == 0) {
+					summary.startTime = time;
+				}
+				summary.endTime = time;
+
+				double[] values = reader.getValues();
+				for (int i = 0; i < values.length; i++) {
+					if (!reader.isPresent(i) || Double.isNaN(values[i])) {
+						continue;
+					}
+					columns[i].add(values[i]);
+					for (ThresholdSummary limit : limits.get(i)) {
+						limit.add(summary.rows, time, values[i]);
+					}
+				}
+				summary.rows++;
+			}
+		}
+		return summary;
+	}
+
+	/**
+	 * Writes the summary of a log as a CSV table that can be opened in excel
+	 *
+	 * @param summary Summary of a log
+	 * @param path Path of the file to write
+	 * @throws IOException if the file can't be written
+	 */
+	public void writeSummary(Summary summary, String path) throws IOException {
+		try (PrintWriter out = new PrintWriter(path, StandardCharsets.UTF_8.name())) {
+			out.println("log, " + new File(summary.path).getName());
+			if (summary.error != null) {
+				out.println("error, " + summary.error.replace(',', ';'));
+				return;
+			}
+			out.println("rows, " + summary.rows);
+			out.println("seconds, " + cell(summary.endTime - summary.startTime));
+			out.println("events, " + summary.events);
+			out.println("error events, " + summary.errorEvents);
+			out.println();
+
+			out.print("column, unit, samples, min, max, mean, std dev");
+			for (double percentile : percentiles) {
+				out.print(", p" + cell(percentile));
+			}
+			out.println();
+			for (ColumnSummary column : summary.columns) {
+				out.print(column.name + ", " + column.unit + ", " + column.count + ", " + cell(column.min) + ", "
+						+ cell(column.max) + ", " + cell(column.mean) + ", " + cell(column.getStandardDeviation()));
+				for (double percentile : percentiles) {
+					out.print(", " + cell(column.percentiles.get(percentile)));
+				}
+				out.println();
+			}
+
+			if (!summary.thresholds.isEmpty()) {
+				out.println();
+				boolean timed = !Double.isNaN(summary.startTime);
+				out.println("column, threshold, crossings, rows, seconds, first row, first time, worst");
+				for (ThresholdSummary limit : summary.thresholds) {
+					out.println(limit.column + ", " + limit.threshold + ", " + limit.crossings + ", " + limit.rows + ", "
+							+ cell(timed ? limit.seconds : Double.NaN) + ", " + (limit.firstRow < 0 ? "" : limit.firstRow) + ", "
+							+ cell(limit.firstTime) + ", " + cell(limit.worst));
+				}
+			}
+			if (out.checkError()) {
+				throw new IOException("Can't write " + path);
+			}
+		}
+	}
+
+	/**
+	 * @return text of a number for a table, empty if it is NaN
+	 */
+	private static String cell(double value) {
+		if (Double.isNaN(value)) {
+			return "";
+		}
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+
+	public static void main(String[] args) {
+		LogAnalyzer analyzer = new LogAnalyzer();
+		String directory = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].startsWith("-") && i + 1 == args.length) {
+					throw new IllegalArgumentException("Missing value after " + args[i]);
+				}
+				switch (args[i]) {
+					case "-o":
+						analyzer.setOutputDir(args[++i]);
+						break;
+					case "-j":
+						analyzer.setParallelism(Integer.parseInt(args[++i]));
+						break;
+					case "-t":
+						analyzer.addThreshold(args[++i]);
+						break;
+					case "-p":
+						String[] parts = args[++i].split(",");
+						double[] percentiles = new double[parts.length];
+						for (int p = 0; p < parts.length; p++) {
+							percentiles[p] = Double.parseDouble(parts[p].trim());
+						}
+						analyzer.setPercentiles(percentiles);
+						break;
+					default:
+						if (directory != null || args[i].startsWith("-")) {
+							throw new IllegalArgumentException("Unknown argument " + args[i]);
+						}
+						directory = args[i];
+						break;
+				}
+			}
+			if (directory == null) {
+				throw new IllegalArgumentException("No directory given");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java util.logging.LogAnalyzer directory [-o outputDir] [-p 50,90,99] "
+					+ "[-j threads] [-t \"column>value\"]...");
+			System.exit(1);
+		}
+
+		try {
+			long start = System.nanoTime();
+			List<Summary> summaries = analyzer.analyzeDirectory(directory);
+			boolean failed = false;
+
+			for (Summary summary : summaries) {
+				String name = new File(summary.path).getName();
+				if (summary.error != null) {
+					System.err.println(name + ": " + summary.error);
+					failed = true;
+				} else {
+					System.out.println(name + ": " + summary.rows + " rows, " + summary.events + " events, "
+							+ summary.getCrossings() + " threshold crossings");
+				}
+			}
+			System.out.printf("Analyzed %d logs in %.1f s%n", summaries.size(), (System.nanoTime() - start) / 1e9);
+			if (failed) {
+				System.exit(1);
+			}
+		} catch (IOException e) {
+			System.err.println("Error analyzing " + directory + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package util.logging;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Command line tool that turns any log a DataLogger writes into a CSV file with the
+ * same layout a DataLogger writes, so it can be opened in excel.
+ * <br>
+ * <br>
+ * USAGE: java util.logging.LogConverter input.bin|input.rlz|input.csv [output.csv] <br>
+ * If no output is given, the input path is used with its extension changed to .csv.
+ * The output is replaced if it already exists, and can't be the input
+ */
+public class LogConverter {
+	
+	/**
+	 * Converts a log to a CSV file
+	 * 
+	 * @param inputPath Path of the log
+	 * @param outputPath Path of the CSV file to write, replaced if it exists
+	 * @return number of rows converted
+	 * @throws IOException if either file can't be read or written, or they are the
+	 *         same file
+	 */
+	public static long toCsv(String inputPath, String outputPath) throws IOException {
+		// Checked before opening either, since opening the output empties it
+		if (new File(inputPath).getCanonicalFile().equals(new File(outputPath).getCanonicalFile())) {
+			throw new IOException("Output " + outputPath + " is the same file as the input");
+		}
+		long rows = 0;
+		
+		try (LogFileReader reader = LogFileReader.open(inputPath)) {
+			CsvSink sink = new CsvSink(new StreamLogOutput(outputPath, false));
+			
+			try {
+				sink.open(reader.getFieldNames(), reader.getUnitNames(), reader.getFieldTypes());
+				while (reader.next()) {
+					writeEvents(sink, reader);
+					sink.writeRow(reader.getTimestamp(), reader.getRawValues(), reader.getPresent());
+					rows++;
+				}
+				// Events after the last row
+				writeEvents(sink, reader);
+			} finally {
+				sink.close();
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Writes the events the reader found before its current row
+	 */
+	private static void writeEvents(LogSink sink, LogFileReader reader) throws IOException {
+		for (LogEvent event : reader.getEvents()) {
+			sink.writeEvent(event.timestamp, event.type, event.source, event.message);
+		}
+	}
+
+	/**
+	 * Changes the extension of a path to .csv
+	 */
+	static String csvPath(String path) {
+		int dot = path.lastIndexOf('.');
+		int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+		return (dot > slash ? path.substring(0, dot) : path) + ".csv";
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: java util.logging.LogConverter input.bin|input.rlz|input.csv [output.csv]");
+			System.exit(1);
+		}
+		
+		String output = args.length == 2 ? args[1] : csvPath(args[0]);
+		try {
+			long rows = toCsv(args[0], output);
+			System.out.println("Wrote " + rows + " rows to " + output);
+		} catch (IOException e) {
+			System.err.println("Error converting " + args[0] + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package util.logging;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Something that happened at a single point in time, such as a state change or an
+ * error, logged between the rows of a log with DataLogger.logEvent(). Readers return
+ * these from LogFileReader.getEvents().
+ * <br>
+ * <br>
+ * In binary logs and telemetry an event is stored as an 8 byte timestamp in seconds,
+ * a 1 byte type, then the source and the message, each as a 2 byte length followed
+ * by UTF-8 bytes.
+ */
+public class LogEvent {
+
+	/**
+	 * Kinds of events
+	 */
+	public enum Type {
+		/**
+		 * Anything that doesn't fit another type
+		 */
+		INFO,
+
+		/**
+		 * A state machine changed state, the message is the new state
+		 */
+		STATE,
+
+		/**
+		 * An action or command started, the message is its name
+		 */
+		ACTION_START,
+
+		/**
+		 * An action or command finished, the message is its name
+		 */
+		ACTION_END,
+
+		/**
+		 * Something went wrong, the message says what
+		 */
+		ERROR
+	}
+
+	private static final Type[] TYPES = Type.values();
+
+	/**
+	 * Time in seconds the event happened, on the same clock as the rows of the log
+	 */
+	public final double timestamp;
+
+	public final Type type;
+
+	/**
+	 * What the event came from, such as "Drive"
+	 */
+	public final String source;
+
+	public final String message;
+
+	/**
+	 * Creates an event
+	 *
+	 * @param timestamp Time in seconds the event happened
+	 * @param type Kind of event
+	 * @param source What the event came from
+	 * @param message Details of the event
+	 */
+	public LogEvent(double timestamp, Type type, String source, String message) {
+		this.timestamp = timestamp;
+		this.type = type;
+		this.source = source;
+		this.message = message;
+	}
+
+	@Override
+	public String toString() {
+		return timestamp + " " + type + " " + source + ": " + message;
+	}
+
+	/**
+	 * Writes an event in the binary layout
+	 *
+	 * @param out Stream to write to
+	 * @return number of bytes written
+	 * @throws IOException if the stream can't be written
+	 */
+	static int write(OutputStream out, double timestamp, Type type, String source, String message) throws IOException {
+		ByteBuffer fixed = ByteBuffer.allocate(9).order(ByteOrder.LITTLE_ENDIAN);
+		fixed.putDouble(timestamp).put((byte) type.ordinal());
+		out.write(fixed.array());
+
+		return fixed.capacity() + LogHeader.writeString(out, source == null ? "" : source)
+				+ LogHeader.writeString(out, message == null ? "" : message);
+	}
+
+	/**
+	 * Reads an event in the binary layout
+	 *
+	 * @param in Stream positioned at the start of the event
+	 * @return the event
+	 * @throws IOException if the stream can't be read
+	 */
+	static LogEvent read(DataInputStream in) throws IOException {
+		ByteBuffer fixed = LogHeader.readBytes(in, 9);
+		double timestamp = fixed.getDouble();
+		int type = fixed.get() & 0xFF;
+
+		String source = LogHeader.readString(in);
+		String message = LogHeader.readString(in);
+		// Types added by a newer version are read as INFO
+		return new LogEvent(timestamp, type < TYPES.length ? TYPES[type] : Type.INFO, source, message);
+	}
+}
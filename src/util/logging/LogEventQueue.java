@@ -0,0 +1,177 @@
+package util.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size queue of events, added from any number of threads and taken out by one
+ * thread that writes them to the log. Neither side ever takes a lock, so posting an
+ * event from a control loop or auto mode never waits on the writer or on another
+ * thread posting at the same time. If every slot is full the event is dropped and
+ * counted instead of waiting.
+ *
+ * Each slot has a sequence number that says whose turn it is to use it. A thread
+ * adding an event claims the next slot by moving the head forward with a
+ * compare-and-set, fills it in, then sets the slot's sequence so the writer can see
+ * it. The writing thread calls peek() to get the oldest event, reads it, then calls
+ * release() to give the slot back, like LogRingBuffer.
+ */
+public class LogEventQueue {
+
+	private final int capacity;
+
+	private final double[] timestamps;
+	private final LogEvent.Type[] types;
+	private final String[] sources;
+	private final String[] messages;
+
+	/**
+	 * Slot i can be claimed for the event numbered n when its sequence is n, and read
+	 * when it is n + 1
+	 */
+	private final AtomicLongArray sequences;
+
+	/**
+	 * Number of events ever claimed, written by every adding thread
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * Number of events ever released, only used by the writing thread
+	 */
+	private long tail = 0;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Creates an empty queue
+	 *
+	 * @param capacity Maximum number of events that can be waiting to be written
+	 */
+	public LogEventQueue(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		timestamps = new double[this.capacity];
+		types = new LogEvent.Type[this.capacity];
+		sources = new String[this.capacity];
+		messages = new String[this.capacity];
+		sequences = new AtomicLongArray(this.capacity);
+
+		for (int i = 0; i < this.capacity; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Adds an event. Can be called from any thread
+	 *
+	 * @param timestamp Time in seconds the event happened
+	 * @param type Kind of event
+	 * @param source What the event came from
+	 * @param message Details of the event
+	 * @return true if the event was added, false if the queue was full and it was dropped
+	 */
+	public boolean offer(double timestamp, LogEvent.Type type, String source, String message) {
+		long next = head.get();
+		int slot;
+
+		while (true) {
+			slot = (int) (next % capacity);
+			long difference = sequences.get(slot) - next;
+
+			if (difference == 0) {
+				if (head.compareAndSet(next, next + 1)) {
+					break;
+				}
+				next = head.get();
+			} else if (difference < 0) {
+				// The writer hasn't released this slot from the last time around
+				dropped.incrementAndGet();
+				return false;
+			} else {
+				// Another thread claimed this slot first
+				next = head.get();
+			}
+		}
+
+		timestamps[slot] = timestamp;
+		types[slot] = type;
+		sources[slot] = source;
+		messages[slot] = message;
+		// Ordered write, so the writer sees every field before it sees the sequence
+		sequences.lazySet(slot, next + 1);
+		return true;
+	}
+
+	/**
+	 * Gets the oldest event that has not been written yet. Called from the writing thread
+	 *
+	 * @return index of the slot, or -1 if there are no events waiting. An event that
+	 *         is still being added holds back any added after it
+	 */
+	public int peek() {
+		int slot = (int) (tail % capacity);
+
+		if (sequences.get(slot) != tail + 1) {
+			return -1;
+		}
+		return slot;
+	}
+
+	/**
+	 * @param slot Slot from peek()
+	 * @return time in seconds the event happened
+	 */
+	public double getTimestamp(int slot) {
+		return timestamps[slot];
+	}
+
+	/**
+	 * @param slot Slot from peek()
+	 * @return kind of event
+	 */
+	public LogEvent.Type getType(int slot) {
+		return types[slot];
+	}
+
+	/**
+	 * @param slot Slot from peek()
+	 * @return what the event came from
+	 */
+	public String getSource(int slot) {
+		return sources[slot];
+	}
+
+	/**
+	 * @param slot Slot from peek()
+	 * @return details of the event
+	 */
+	public String getMessage(int slot) {
+		return messages[slot];
+	}
+
+	/**
+	 * Gives the slot from peek() back so it can be used again. Called from the writing
+	 * thread once it is done with the event
+	 */
+	public void release() {
+		int slot = (int) (tail % capacity);
+		sources[slot] = null;
+		messages[slot] = null;
+		sequences.lazySet(slot, tail + capacity);
+		tail++;
+	}
+
+	/**
+	 * @return maximum number of events that can be waiting to be written
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return number of events dropped because the queue was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+}
@@ -0,0 +1,188 @@
+package util.logging;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Type of a logged field, which sets how many bytes each value takes in the binary
+ * formats and how it is written in a CSV. Values are passed from the sampling thread
+ * to the sinks as the bits of the type in a long, so no type is converted or boxed
+ * on the way:
+ * <ul>
+ * <li>DOUBLE: Double.doubleToRawLongBits()</li>
+ * <li>FLOAT: Float.floatToRawIntBits() in the low 32 bits</li>
+ * <li>LONG: the value</li>
+ * <li>INT and ENUM: the value, or the ordinal of the enum, in the low 32 bits</li>
+ * <li>BOOLEAN: 1 for true, 0 for false</li>
+ * </ul>
+ * The ordinal of each type is stored in log headers, so new types must be added at
+ * the end.
+ */
+public enum LogFieldType {
+	DOUBLE(8),
+	FLOAT(4),
+	LONG(8),
+	INT(4),
+	BOOLEAN(1),
+
+	/**
+	 * Ordinal of an enum constant, -1 for null
+	 */
+	ENUM(4);
+
+	private static final LogFieldType[] TYPES = values();
+
+	/**
+	 * Bytes each value takes in a binary log
+	 */
+	public final int bytes;
+
+	LogFieldType(int bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * @param ordinal Ordinal stored in a log header
+	 * @return the type, or null if it isn't known
+	 */
+	static LogFieldType fromOrdinal(int ordinal) {
+		return ordinal >= 0 && ordinal < TYPES.length ? TYPES[ordinal] : null;
+	}
+
+	/**
+	 * @param types Types of each column, or null if every column is a double
+	 * @param count Number of columns
+	 * @return the types, or an array of DOUBLE if types is null
+	 */
+	static LogFieldType[] orDouble(LogFieldType[] types, int count) {
+		if (types != null) {
+			return types;
+		}
+		LogFieldType[] doubles = new LogFieldType[count];
+		java.util.Arrays.fill(doubles, DOUBLE);
+		return doubles;
+	}
+
+	/**
+	 * @param bits Bits of a value of this type
+	 * @return the value as a double, which is exact for every type except longs past
+	 *         2^53
+	 */
+	public double toDouble(long bits) {
+		switch (this) {
+			case DOUBLE:
+				return Double.longBitsToDouble(bits);
+			case FLOAT:
+				return Float.intBitsToFloat((int) bits);
+			case INT:
+			case ENUM:
+				return (int) bits;
+			default:
+				return bits;
+		}
+	}
+
+	/**
+	 * @param bits Bits of a value of this type
+	 * @return the value as a long, rounded towards zero for DOUBLE and FLOAT
+	 */
+	public long toLong(long bits) {
+		switch (this) {
+			case DOUBLE:
+				return (long) Double.longBitsToDouble(bits);
+			case FLOAT:
+				return (long) Float.intBitsToFloat((int) bits);
+			case INT:
+			case ENUM:
+				return (int) bits;
+			default:
+				return bits;
+		}
+	}
+
+	/**
+	 * @param from Bits of a value of this type
+	 * @param to Bits of another value of this type
+	 * @return size of the change from one value to the other, exact for longs past 2^53
+	 *         unless it is that large itself
+	 */
+	double change(long from, long to) {
+		if (this == LONG) {
+			long difference = to - from;
+			// Overflowed, so the change is too big to fit in a long
+			if (((to ^ from) & (to ^ difference)) < 0) {
+				return Double.POSITIVE_INFINITY;
+			}
+			return Math.abs((double) difference);
+		}
+		return Math.abs(toDouble(to) - toDouble(from));
+	}
+
+	/**
+	 * @param value A double
+	 * @return bits of the value as a DOUBLE
+	 */
+	public static long bitsOf(double value) {
+		return Double.doubleToRawLongBits(value);
+	}
+
+	/**
+	 * @param value A float
+	 * @return bits of the value as a FLOAT
+	 */
+	public static long bitsOf(float value) {
+		return Float.floatToRawIntBits(value) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * @param value An int
+	 * @return bits of the value as an INT
+	 */
+	public static long bitsOf(int value) {
+		return value & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * @param value A boolean
+	 * @return bits of the value as a BOOLEAN
+	 */
+	public static long bitsOf(boolean value) {
+		return value ? 1 : 0;
+	}
+
+	/**
+	 * Writes a value in bytes little-endian, taking this type's number of bytes
+	 *
+	 * @param buffer Buffer to write to, must be little-endian
+	 * @param bits Bits of the value
+	 */
+	void put(ByteBuffer buffer, long bits) {
+		switch (bytes) {
+			case 1:
+				buffer.put((byte) bits);
+				break;
+			case 4:
+				buffer.putInt((int) bits);
+				break;
+			default:
+				buffer.putLong(bits);
+				break;
+		}
+	}
+
+	/**
+	 * Reads a value written by put()
+	 *
+	 * @param buffer Buffer to read from, must be little-endian
+	 * @return bits of the value
+	 */
+	long get(ByteBuffer buffer) {
+		switch (bytes) {
+			case 1:
+				return buffer.get() & 0xFF;
+			case 4:
+				return buffer.getInt() & 0xFFFFFFFFL;
+			default:
+				return buffer.getLong();
+		}
+	}
+}
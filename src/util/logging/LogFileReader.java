@@ -0,0 +1,147 @@
+package util.logging;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a log file one row at a time, whatever format it was written in. Only the 
+ * current row is held in memory, so any size of log can be read.
+ * 
+ * USAGE:
+ * <ol>
+ * <li>Call open() with the path of the log and use getFieldNames() and getUnitNames() 
+ * to find the columns</li>
+ * <li>Call next() until it returns false, using getTimestamp() and get() to read each row</li>
+ * <li>Call close()</li>
+ * </ol>
+ */
+public interface LogFileReader extends AutoCloseable {
+	
+	/**
+	 * Opens a CSV, binary or compressed log. CSV logs are found by their extension,
+	 * the others from the start of the file
+	 * 
+	 * @param path Path of the file to read
+	 * @return reader for the file
+	 * @throws IOException if the file can't be read or is not a known format
+	 */
+	public static LogFileReader open(String path) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(path), 65536);
+		
+		try {
+			if (path.toLowerCase().endsWith(LogFormat.CSV.extension)) {
+				return new CsvLogReader(in);
+			}
+
+			in.mark(4);
+			byte[] magic = new byte[4];
+			int read = in.read(magic);
+			in.reset();
+			
+			if (read == 4 && Arrays.equals(magic, CompressedSink.MAGIC)) {
+				return new CompressedLogReader(in);
+			}
+			return new BinaryLogReader(in);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Moves to the next row in the log
+	 * 
+	 * @return true if there was another row, false at the end of the log
+	 * @throws IOException if the file can't be read
+	 */
+	public boolean next() throws IOException;
+
+	/**
+	 * @return names of each column
+	 */
+	public String[] getFieldNames();
+
+	/**
+	 * @return units of each column
+	 */
+	public String[] getUnitNames();
+
+	/**
+	 * @return time in seconds the current row was sampled
+	 */
+	public double getTimestamp();
+
+	/**
+	 * @param column Column to get
+	 * @return value of the column in the current row, or NaN if it isn't present
+	 */
+	public double get(int column);
+
+	/**
+	 * @return values of every column in the current row, only valid until next() is 
+	 *         called. Columns that aren't present in the row are NaN
+	 */
+	public double[] getValues();
+
+	/**
+	 * @return type of each column, every column of logs from before there were types
+	 *         and of CSV logs is a double
+	 */
+	public default LogFieldType[] getFieldTypes() {
+		return LogFieldType.orDouble(null, getFieldNames().length);
+	}
+
+	/**
+	 * @return bits of the value of every column in the current row as described in
+	 *         LogFieldType, only valid until next() is called. Columns that aren't 
+	 *         present in the row are 0
+	 */
+	public default long[] getRawValues() {
+		double[] values = getValues();
+		long[] bits = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bits[i] = isPresent(i) ? Double.doubleToRawLongBits(values[i]) : 0;
+		}
+		return bits;
+	}
+
+	/**
+	 * @param column Column to get
+	 * @return value of the column in the current row as a long, which is exact for 
+	 *         LONG columns past 2^53 where get() isn't. 0 if it isn't present
+	 */
+	public default long getLong(int column) {
+		return getFieldTypes()[column].toLong(getRawValues()[column]);
+	}
+
+	/**
+	 * @return which columns were logged in the current row, column i is present if bit 
+	 *         i % 64 of the value at i / 64 is set. Only valid until next() is called
+	 */
+	public long[] getPresent();
+
+	/**
+	 * @param column Column to check
+	 * @return true if the column was logged in the current row
+	 */
+	public default boolean isPresent(int column) {
+		return (getPresent()[column >> 6] & (1L << column)) != 0;
+	}
+
+	/**
+	 * @return events logged after the previous row and before the current one, oldest
+	 *         first. Once next() has returned false, the events after the last row. 
+	 *         Only valid until next() is called
+	 */
+	public default List<LogEvent> getEvents() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void close() throws IOException;
+}
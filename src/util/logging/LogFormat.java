@@ -0,0 +1,88 @@
+package util.logging;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * File formats that a DataLogger can write
+ */
+public enum LogFormat {
+	/**
+	 * Text file with one line per row that can be opened in excel. A time index is 
+	 * written next to it, with the time of every row, so LogReader can jump to a time
+	 */
+	CSV(".csv"),
+	
+	/**
+	 * Compact binary file, see BinarySink. Much smaller and cheaper to write than CSV,
+	 * use LogConverter to turn it into a CSV afterwards. A time index is written next 
+	 * to it so LogReader can jump to a time
+	 */
+	BINARY(".bin"),
+	
+	/**
+	 * Binary file compressed column by column, see CompressedSink. Usually several
+	 * times smaller than BINARY, use LogConverter to turn it into a CSV afterwards. A
+	 * time index is written next to it so LogReader can jump to a time
+	 */
+	COMPRESSED(".rlz");
+	
+	/**
+	 * Extension used for files in this format
+	 */
+	public final String extension;
+	
+	LogFormat(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * Creates a sink that writes this format to a file
+	 * 
+	 * @param path Path of the file to write
+	 * @return sink for the file
+	 * @throws IOException if the file can't be opened
+	 */
+	public LogSink createSink(String path) throws IOException {
+		return createSink(path, LogOutput.Mode.STREAM);
+	}
+
+	/**
+	 * Creates a sink that writes this format to a file
+	 * 
+	 * @param path Path of the file to write
+	 * @param mode How the file is written
+	 * @return sink for the file
+	 * @throws IOException if the file can't be opened
+	 */
+	public LogSink createSink(String path, LogOutput.Mode mode) throws IOException {
+		return createSink(path, mode, null);
+	}
+
+	/**
+	 * Creates a sink that writes this format to a file
+	 * 
+	 * @param path Path of the file to write
+	 * @param mode How the file is written
+	 * @param decimals Digits after the decimal point to round each column to, negative
+	 *        or null to write the exact value. Only used by CSV, the binary formats 
+	 *        always store the exact value
+	 * @return sink for the file
+	 * @throws IOException if the file can't be opened
+	 */
+	public LogSink createSink(String path, LogOutput.Mode mode, int[] decimals) throws IOException {
+		switch (this) {
+			case BINARY:
+				return new BinarySink(mode.open(path, false), new StreamLogOutput(LogIndex.pathFor(path), false));
+			case COMPRESSED:
+				return new CompressedSink(mode.open(path, false), new StreamLogOutput(LogIndex.pathFor(path), false),
+						CompressedSink.DEFAULT_BLOCK_ROWS);
+			case CSV:
+			default:
+				// Rows are added to the end of an existing log, so carry on its index too
+				long existing = new File(path).length();
+				return new CsvSink(mode.open(path, true), decimals, 
+						new StreamLogOutput(LogIndex.pathFor(path), existing > 0), existing);
+		}
+	}
+}
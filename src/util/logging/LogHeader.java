@@ -0,0 +1,183 @@
+package util.logging;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Header at the start of the binary log formats. Holds the bytes that identify the
+ * format, its version and the name and units of each field.
+ * <br>
+ * <br>
+ * FORMAT (all numbers little-endian): 4 magic bytes, a 4 byte version number, a 4 
+ * byte field count, then for each field its name and units, each as a 2 byte length
+ * followed by UTF-8 bytes. From BinarySink and CompressedSink version 4 and 
+ * TelemetrySink version 2 on, this is followed by the ordinal of each field's 
+ * LogFieldType as 1 byte, older logs only have doubles.
+ */
+final class LogHeader {
+	
+	final byte[] magic;
+	final int version;
+	final String[] fieldNames;
+	final String[] unitNames;
+	final LogFieldType[] fieldTypes;
+
+	/**
+	 * @param fieldTypes Type of each field, or null if they are all doubles
+	 */
+	LogHeader(byte[] magic, int version, String[] fieldNames, String[] unitNames, LogFieldType[] fieldTypes) {
+		this.magic = magic;
+		this.version = version;
+		this.fieldNames = fieldNames;
+		this.unitNames = unitNames;
+		this.fieldTypes = LogFieldType.orDouble(fieldTypes, fieldNames.length);
+	}
+
+	/**
+	 * @return true if a header of this format and version has the type of each field
+	 */
+	private static boolean hasTypes(byte[] magic, int version) {
+		if (java.util.Arrays.equals(magic, BinarySink.MAGIC)) {
+			return version >= 4;
+		}
+		if (java.util.Arrays.equals(magic, CompressedSink.MAGIC)) {
+			return version >= 4;
+		}
+		return version >= 2;
+	}
+
+	/**
+	 * Writes the header to a stream
+	 * 
+	 * @return number of bytes written
+	 */
+	int write(OutputStream out) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(magic).putInt(version).putInt(fieldNames.length);
+		out.write(header.array());
+		
+		int length = header.capacity();
+		for (int i = 0; i < fieldNames.length; i++) {
+			length += writeString(out, fieldNames[i]);
+			length += writeString(out, unitNames[i]);
+		}
+		if (hasTypes(magic, version)) {
+			for (LogFieldType type : fieldTypes) {
+				out.write(type.ordinal());
+			}
+			length += fieldTypes.length;
+		}
+		return length;
+	}
+
+	/**
+	 * Reads the header of any binary log format, working out the format from the magic
+	 * bytes
+	 * 
+	 * @param in Stream positioned at the start of the log
+	 * @return the header
+	 * @throws IOException if the stream can't be read or is not a known format
+	 */
+	static LogHeader read(DataInputStream in) throws IOException {
+		in.mark(4);
+		byte[] fileMagic = new byte[4];
+		in.readFully(fileMagic);
+		in.reset();
+		
+		if (java.util.Arrays.equals(fileMagic, CompressedSink.MAGIC)) {
+			return read(in, CompressedSink.MAGIC, 1, CompressedSink.VERSION);
+		}
+		return read(in, BinarySink.MAGIC, 1, BinarySink.VERSION);
+	}
+
+	/**
+	 * @return true if this is the header of a compressed log
+	 */
+	boolean isCompressed() {
+		return java.util.Arrays.equals(magic, CompressedSink.MAGIC);
+	}
+
+	/**
+	 * Reads a header from a stream and checks that it is the expected format and version
+	 * 
+	 * @param in Stream positioned at the start of the log
+	 * @param magic Bytes the log should start with
+	 * @param oldestVersion Oldest version of the format that can be read
+	 * @param newestVersion Newest version of the format that can be read
+	 * @return the header
+	 * @throws IOException if the stream can't be read or is not the expected format
+	 */
+	static LogHeader read(DataInputStream in, byte[] magic, int oldestVersion, int newestVersion) throws IOException {
+		byte[] fileMagic = new byte[4];
+		in.readFully(fileMagic);
+		if (!java.util.Arrays.equals(fileMagic, magic)) {
+			throw new IOException("Not a " + new String(magic, StandardCharsets.US_ASCII) + " log file");
+		}
+		
+		ByteBuffer fixed = readBytes(in, 8);
+		int fileVersion = fixed.getInt();
+		if (fileVersion < oldestVersion || fileVersion > newestVersion) {
+			throw new IOException("Unsupported log version " + fileVersion);
+		}
+		
+		int fieldCount = fixed.getInt();
+		String[] fieldNames = new String[fieldCount];
+		String[] unitNames = new String[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			fieldNames[i] = readString(in);
+			unitNames[i] = readString(in);
+		}
+		
+		LogFieldType[] fieldTypes = null;
+		if (hasTypes(magic, fileVersion)) {
+			fieldTypes = new LogFieldType[fieldCount];
+			byte[] ordinals = new byte[fieldCount];
+			in.readFully(ordinals);
+			for (int i = 0; i < fieldCount; i++) {
+				fieldTypes[i] = LogFieldType.fromOrdinal(ordinals[i]);
+				if (fieldTypes[i] == null) {
+					throw new IOException("Unknown type " + ordinals[i] + " for field " + fieldNames[i]);
+				}
+			}
+		}
+		return new LogHeader(magic, fileVersion, fieldNames, unitNames, fieldTypes);
+	}
+
+	/**
+	 * Writes a string as a 2 byte length followed by its UTF-8 bytes
+	 * 
+	 * @return number of bytes written
+	 */
+	static int writeString(OutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		// Anything past what the length can hold is cut off
+		int length = Math.min(bytes.length, 0xFFFF);
+		out.write(length & 0xFF);
+		out.write((length >> 8) & 0xFF);
+		out.write(bytes, 0, length);
+		return 2 + length;
+	}
+
+	/**
+	 * Reads a string written as a 2 byte length followed by its UTF-8 bytes
+	 */
+	static String readString(DataInputStream in) throws IOException {
+		int length = readBytes(in, 2).getShort() & 0xFFFF;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the given number of bytes into a little-endian buffer
+	 */
+	static ByteBuffer readBytes(DataInputStream in, int count) throws IOException {
+		byte[] bytes = new byte[count];
+		in.readFully(bytes);
+		return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
@@ -0,0 +1,128 @@
+package util.logging;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Sparse time index of a log written by LogIndexWriter, loaded into memory
+ */
+final class LogIndex {
+	
+	private final double[] timestamps;
+	private final long[] offsets;
+
+	private LogIndex(double[] timestamps, long[] offsets) {
+		this.timestamps = timestamps;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * @param logPath Path of a log
+	 * @return path of the index that goes with the log
+	 */
+	static String pathFor(String logPath) {
+		return logPath + ".idx";
+	}
+
+	/**
+	 * Loads the index that goes with a log. An entry that was cut off at the end of the
+	 * index is ignored
+	 * 
+	 * @param logPath Path of the log
+	 * @return the index, or null if the log has no index or it can't be read
+	 */
+	static LogIndex load(String logPath) {
+		File file = new File(pathFor(logPath));
+		if (!file.isFile()) {
+			return null;
+		}
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			byte[] magic = new byte[4];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, LogIndexWriter.MAGIC) || LogHeader.readBytes(in, 4).getInt() != LogIndexWriter.VERSION) {
+				return null;
+			}
+			
+			int count = (int) ((file.length() - 8) / 16);
+			double[] timestamps = new double[count];
+			long[] offsets = new long[count];
+			
+			for (int i = 0; i < count; i++) {
+				ByteBuffer entry = LogHeader.readBytes(in, 16);
+				timestamps[i] = entry.getDouble();
+				offsets[i] = entry.getLong();
+			}
+			return new LogIndex(timestamps, offsets);
+		} catch (EOFException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Finds where to start reading to get to a time
+	 * 
+	 * @param timestamp Time in seconds to find
+	 * @return byte offset of the last entry at or before the time, or -1 if the time is
+	 *         before the first entry
+	 */
+	long find(double timestamp) {
+		int found = findEntry(timestamp);
+		return found < 0 ? -1 : offsets[found];
+	}
+
+	/**
+	 * Finds the entry to start reading from to get to a time
+	 * 
+	 * @param timestamp Time in seconds to find
+	 * @return index of the last entry at or before the time, or -1 if the time is 
+	 *         before the first entry
+	 */
+	int findEntry(double timestamp) {
+		int low = 0;
+		int high = timestamps.length - 1;
+		int found = -1;
+		
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (timestamps[middle] <= timestamp) {
+				found = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @param entry Index of an entry
+	 * @return time in seconds of the entry's row
+	 */
+	double getTimestamp(int entry) {
+		return timestamps[entry];
+	}
+
+	/**
+	 * @param entry Index of an entry
+	 * @return byte offset of the entry's row
+	 */
+	long getOffset(int entry) {
+		return offsets[entry];
+	}
+
+	/**
+	 * @return number of entries in the index
+	 */
+	int size() {
+		return timestamps.length;
+	}
+}
@@ -0,0 +1,86 @@
+package util.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes the sparse time index that sits next to a log. Every so often the sink adds
+ * an entry with the timestamp of a row and the byte offset it starts at, so LogReader
+ * can jump close to a time without reading the whole log. CsvSink adds an entry for
+ * every row, since CSV rows don't hold their own times.
+ * <br>
+ * <br>
+ * FORMAT (all numbers little-endian): the bytes "RIDX", a 4 byte version number, then
+ * entries of an 8 byte timestamp in seconds and an 8 byte offset from the start of 
+ * the log
+ */
+final class LogIndexWriter {
+	
+	/**
+	 * Bytes at the start of every index
+	 */
+	static final byte[] MAGIC = { 'R', 'I', 'D', 'X' };
+	
+	/**
+	 * Version of the format written by this class
+	 */
+	static final int VERSION = 1;
+	
+	private final OutputStream out;
+	private final ByteBuffer entry = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * Starts an index and writes its header
+	 * 
+	 * @param out Stream to write to, it is closed when the index is closed
+	 */
+	LogIndexWriter(OutputStream out) throws IOException {
+		this(out, true);
+	}
+
+	/**
+	 * Starts or carries on an index
+	 * 
+	 * @param out Stream to write to, it is closed when the index is closed
+	 * @param header False if out is added to the end of an index that already has its
+	 *        header
+	 */
+	LogIndexWriter(OutputStream out, boolean header) throws IOException {
+		this.out = out;
+		
+		if (header) {
+			ByteBuffer bytes = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			bytes.put(MAGIC).putInt(VERSION);
+			out.write(bytes.array());
+		}
+	}
+
+	/**
+	 * Adds an entry for a row or block
+	 * 
+	 * @param timestamp Time in seconds of the first row at the offset
+	 * @param offset Byte offset from the start of the log of the record
+	 */
+	void add(double timestamp, long offset) throws IOException {
+		entry.clear();
+		entry.putDouble(timestamp).putLong(offset);
+		out.write(entry.array());
+	}
+
+	void flush() throws IOException {
+		out.flush();
+	}
+
+	void sync() throws IOException {
+		out.flush();
+		if (out instanceof LogOutput) {
+			((LogOutput) out).sync();
+		}
+	}
+
+	void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,55 @@
+package util.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A log file that can be written like a stream and also made durable on disk with
+ * sync(). Sinks write to one of these so the LogWriter can flush data to disk on a
+ * LogSyncPolicy without knowing how the file is written.
+ */
+public abstract class LogOutput extends OutputStream {
+	
+	/**
+	 * Ways a log file can be written
+	 */
+	public enum Mode {
+		/**
+		 * Buffered writes to a FileOutputStream
+		 */
+		STREAM,
+		
+		/**
+		 * Rows are copied into preallocated memory-mapped segments of the file, see 
+		 * MappedLogOutput
+		 */
+		MAPPED;
+		
+		/**
+		 * Opens a file in this mode
+		 * 
+		 * @param path Path of the file
+		 * @param append If true, writing starts at the end of an existing file. If false,
+		 *        an existing file is replaced
+		 * @return output for the file
+		 * @throws IOException if the file can't be opened
+		 */
+		public LogOutput open(String path, boolean append) throws IOException {
+			switch (this) {
+				case MAPPED:
+					return new MappedLogOutput(path, append);
+				case STREAM:
+				default:
+					return new StreamLogOutput(path, append);
+			}
+		}
+	}
+
+	/**
+	 * Writes anything buffered to the file and waits for the operating system to
+	 * put it on disk, so it survives a power loss
+	 * 
+	 * @throws IOException if the data can't be written
+	 */
+	public abstract void sync() throws IOException;
+}
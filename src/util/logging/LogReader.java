@@ -0,0 +1,288 @@
+package util.logging;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads part of a log without reading the whole file. The time index written next to
+ * the log is used to jump to a time, and only the columns that are selected are 
+ * returned. If a binary or compressed log has no index it is read from the start. 
+ * CSV rows don't record when they were sampled, so a CSV log can only be read with 
+ * its index, which holds the time of every row.
+ * 
+ * USAGE:
+ * <ol>
+ * <li>Create a reader for the log</li>
+ * <li>Optionally call select() with the names of the columns wanted</li>
+ * <li>Call seek() with the time range wanted</li>
+ * <li>Call next() until it returns false, using getTimestamp() and get() to read each row</li>
+ * <li>Call close()</li>
+ * </ol>
+ */
+public class LogReader implements AutoCloseable {
+	
+	private final String path;
+	private final LogHeader header;
+	
+	/**
+	 * True if the log is a CSV, which is read through CsvLogReader
+	 */
+	private final boolean csv;
+	
+	/**
+	 * Time index of the log, or null if it doesn't have one
+	 */
+	private final LogIndex index;
+	
+	/**
+	 * Reader for the rows, or null before seek() is called
+	 */
+	private LogFileReader rows = null;
+	
+	/**
+	 * Columns of the log returned by get(), in order
+	 */
+	private int[] columns;
+	
+	private double startTime = Double.NEGATIVE_INFINITY;
+	private double endTime = Double.POSITIVE_INFINITY;
+	
+	/**
+	 * Events returned by getEvents(), reused for every row
+	 */
+	private final List<LogEvent> events = new ArrayList<LogEvent>();
+
+	/**
+	 * Opens a log and its time index
+	 * 
+	 * @param path Path of the log
+	 * @throws IOException if the log can't be read, is not a known format, or is a CSV
+	 *         log without an index
+	 */
+	public LogReader(String path) throws IOException {
+		this.path = path;
+		csv = path.toLowerCase().endsWith(LogFormat.CSV.extension);
+		index = LogIndex.load(path);
+		
+		if (csv) {
+			if (index == null) {
+				throw new IOException("CSV log " + path + " has no time index");
+			}
+			try (CsvLogReader in = new CsvLogReader(path)) {
+				header = new LogHeader(null, 0, in.getFieldNames(), in.getUnitNames(), null);
+			}
+		} else {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+				header = LogHeader.read(in);
+			}
+		}
+		
+		columns = new int[header.fieldNames.length];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = i;
+		}
+	}
+
+	/**
+	 * @return names of every column in the log
+	 */
+	public String[] getFieldNames() {
+		return header.fieldNames.clone();
+	}
+
+	/**
+	 * @return units of every column in the log
+	 */
+	public String[] getUnitNames() {
+		return header.unitNames.clone();
+	}
+
+	/**
+	 * @param name Name of a column
+	 * @return index of the column in the log, or -1 if there is no column with that name
+	 */
+	public int getColumn(String name) {
+		for (int i = 0; i < header.fieldNames.length; i++) {
+			if (header.fieldNames[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Chooses which columns are returned by get() and in what order. Every column is
+	 * returned until this is called
+	 * 
+	 * @param names Names of the columns
+	 * @throws IllegalArgumentException if the log has no column with one of the names
+	 */
+	public void select(String... names) {
+		int[] selected = new int[names.length];
+		
+		for (int i = 0; i < names.length; i++) {
+			selected[i] = getColumn(names[i]);
+			if (selected[i] < 0) {
+				throw new IllegalArgumentException("Log has no column named " + names[i]);
+			}
+		}
+		columns = selected;
+	}
+
+	/**
+	 * @return names of the columns returned by get(), in order
+	 */
+	public String[] getSelectedNames() {
+		String[] names = new String[columns.length];
+		
+		for (int i = 0; i < columns.length; i++) {
+			names[i] = header.fieldNames[columns[i]];
+		}
+		return names;
+	}
+
+	/**
+	 * Jumps to the start of a time range. next() then returns the rows sampled between
+	 * the two times
+	 * 
+	 * @param start Time in seconds of the first row wanted
+	 * @param end Time in seconds of the last row wanted
+	 * @throws IOException if the log can't be read
+	 */
+	public void seek(double start, double end) throws IOException {
+		if (rows != null) {
+			rows.close();
+			rows = null;
+		}
+		startTime = start;
+		endTime = end;
+		
+		if (csv) {
+			seekCsv(start);
+			return;
+		}
+		
+		long offset = index == null ? -1 : index.find(start);
+		if (offset < 0) {
+			rows = LogFileReader.open(path);
+			return;
+		}
+		
+		FileInputStream file = new FileInputStream(path);
+		try {
+			file.getChannel().position(offset);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		
+		DataInputStream in = new DataInputStream(new BufferedInputStream(file, 65536));
+		if (header.isCompressed()) {
+			rows = new CompressedLogReader(in, header);
+		} else {
+			rows = new BinaryLogReader(in, header);
+		}
+	}
+
+	/**
+	 * Opens the CSV log at the row the index has at or before a time. Rows before the
+	 * first entry have no time, so the log is never read from before it
+	 */
+	private void seekCsv(double start) throws IOException {
+		int entry = Math.max(0, index.findEntry(start));
+		long offset = entry < index.size() ? index.getOffset(entry) : new File(path).length();
+		
+		FileInputStream file = new FileInputStream(path);
+		try {
+			file.getChannel().position(offset);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		rows = new CsvLogReader(file, header.fieldNames, header.unitNames, index, entry);
+	}
+
+	/**
+	 * Moves to the next row in the time range, seeking to the start of the log first
+	 * if seek() hasn't been called
+	 * 
+	 * @return true if there was another row, false once the end of the range is reached
+	 * @throws IOException if the log can't be read
+	 */
+	public boolean next() throws IOException {
+		if (rows == null) {
+			seek(startTime, endTime);
+		}
+		events.clear();
+		
+		while (rows.next()) {
+			addEvents();
+			double timestamp = rows.getTimestamp();
+			
+			if (timestamp > endTime) {
+				return false;
+			}
+			if (timestamp >= startTime) {
+				return true;
+			}
+		}
+		addEvents();
+		return false;
+	}
+
+	/**
+	 * Keeps the events from the underlying reader that are in the time range
+	 */
+	private void addEvents() {
+		for (LogEvent event : rows.getEvents()) {
+			if (event.timestamp >= startTime && event.timestamp <= endTime) {
+				events.add(event);
+			}
+		}
+	}
+
+	/**
+	 * @return events in the time range logged after the previous row and before the
+	 *         current one, oldest first. Once next() has returned false, the events 
+	 *         after the last row in the range. Only valid until next() is called
+	 */
+	public List<LogEvent> getEvents() {
+		return events;
+	}
+
+	/**
+	 * @return time in seconds the current row was sampled
+	 */
+	public double getTimestamp() {
+		return rows.getTimestamp();
+	}
+
+	/**
+	 * @param column Index of the column among the selected columns
+	 * @return value of the column in the current row, or NaN if it isn't present
+	 */
+	public double get(int column) {
+		return rows.get(columns[column]);
+	}
+
+	/**
+	 * @param column Index of the column among the selected columns
+	 * @return true if the column was logged in the current row
+	 */
+	public boolean isPresent(int column) {
+		return rows.isPresent(columns[column]);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (rows != null) {
+			rows.close();
+			rows = null;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package util.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size ring buffer of log rows, passed from one thread that samples data to 
+ * one thread that writes it out. All of the memory is allocated when the buffer is 
+ * created, and neither side ever takes a lock or allocates.
+ * 
+ * The sampling thread calls claim() to get a free slot, fills in each column, then
+ * calls publish(). If every slot is full the row is dropped and counted instead of
+ * waiting. The writing thread calls peek() to get the oldest published row, reads 
+ * it, then calls release() to give the slot back.
+ * 
+ * Values are stored as the bits of their LogFieldType in a long, so fields of every
+ * type share the same slots without being converted.
+ */
+public class LogRingBuffer {
+	
+	private final int capacity;
+	private final int width;
+	
+	/**
+	 * Values for every slot, slot i uses indexes i * width to (i + 1) * width - 1
+	 */
+	private final long[] data;
+	
+	/**
+	 * Time in seconds each slot was sampled
+	 */
+	private final double[] timestamps;
+	
+	/**
+	 * Which columns were set in each slot, slot i uses indexes i * words to 
+	 * (i + 1) * words - 1 with one bit per column
+	 */
+	private final long[] present;
+	private final int words;
+	
+	/**
+	 * Number of rows ever published, only written by the sampling thread
+	 */
+	private final AtomicLong head = new AtomicLong();
+	
+	/**
+	 * Number of rows ever released, only written by the writing thread
+	 */
+	private final AtomicLong tail = new AtomicLong();
+	
+	private volatile long dropped = 0;
+	private volatile int highWaterMark = 0;
+
+	/**
+	 * Creates an empty buffer
+	 * 
+	 * @param capacity Maximum number of rows that can be waiting to be written
+	 * @param width Number of columns in each row
+	 */
+	public LogRingBuffer(int capacity, int width) {
+		this.capacity = Math.max(1, capacity);
+		this.width = width;
+		data = new long[this.capacity * width];
+		timestamps = new double[this.capacity];
+		words = (width + 63) / 64;
+		present = new long[this.capacity * words];
+	}
+
+	/**
+	 * Gets a free slot to fill in. Called from the sampling thread
+	 * 
+	 * @return index of the slot, or -1 if the buffer is full and the row was dropped
+	 */
+	public int claim() {
+		long next = head.get();
+		
+		if (next - tail.get() >= capacity) {
+			dropped++;
+			return -1;
+		}
+		return (int) (next % capacity);
+	}
+
+	/**
+	 * Sets one column of a claimed slot and marks it as present
+	 * 
+	 * @param slot Slot from claim()
+	 * @param column Column to set
+	 * @param bits Bits of the value of the column, see LogFieldType
+	 */
+	public void set(int slot, int column, long bits) {
+		data[slot * width + column] = bits;
+		present[slot * words + (column >> 6)] |= 1L << column;
+	}
+
+	/**
+	 * Marks every column of a claimed slot as not present, call before setting the
+	 * columns of a row that doesn't set all of them
+	 * 
+	 * @param slot Slot from claim()
+	 */
+	public void clearPresent(int slot) {
+		for (int i = 0; i < words; i++) {
+			present[slot * words + i] = 0;
+		}
+	}
+
+	/**
+	 * Sets the time a claimed slot was sampled
+	 * 
+	 * @param slot Slot from claim()
+	 * @param timestamp Time in seconds
+	 */
+	public void setTimestamp(int slot, double timestamp) {
+		timestamps[slot] = timestamp;
+	}
+
+	/**
+	 * Makes the claimed slot available to the writing thread. Called from the sampling
+	 * thread after every column has been set
+	 */
+	public void publish() {
+		long next = head.get() + 1;
+		// Ordered write, so the writer sees every column before it sees the new head
+		head.lazySet(next);
+		
+		int used = (int) (next - tail.get());
+		if (used > highWaterMark) {
+			highWaterMark = used;
+		}
+	}
+
+	/**
+	 * Gets the oldest row that has not been written yet. Called from the writing thread
+	 * 
+	 * @return index of the slot, or -1 if there are no rows waiting
+	 */
+	public int peek() {
+		long next = tail.get();
+		
+		if (next == head.get()) {
+			return -1;
+		}
+		return (int) (next % capacity);
+	}
+
+	/**
+	 * Gets one column of a row from peek()
+	 * 
+	 * @param slot Slot from peek()
+	 * @param column Column to get
+	 * @return bits of the value of the column, see LogFieldType
+	 */
+	public long get(int slot, int column) {
+		return data[slot * width + column];
+	}
+
+	/**
+	 * Gets the time a row from peek() was sampled
+	 * 
+	 * @param slot Slot from peek()
+	 * @return time in seconds
+	 */
+	public double getTimestamp(int slot) {
+		return timestamps[slot];
+	}
+
+	/**
+	 * Copies every column of a row from peek() into an array
+	 * 
+	 * @param slot Slot from peek()
+	 * @param row Array to copy into, at least getWidth() long
+	 */
+	public void copyRow(int slot, long[] row) {
+		System.arraycopy(data, slot * width, row, 0, width);
+	}
+
+	/**
+	 * Copies which columns of a row from peek() are present into an array
+	 * 
+	 * @param slot Slot from peek()
+	 * @param mask Array to copy into, at least (getWidth() + 63) / 64 long. Column i is 
+	 *        present if bit i % 64 of mask[i / 64] is set
+	 */
+	public void copyPresent(int slot, long[] mask) {
+		System.arraycopy(present, slot * words, mask, 0, words);
+	}
+
+	/**
+	 * Gives the slot from peek() back so it can be claimed again. Called from the 
+	 * writing thread once it is done with the row
+	 */
+	public void release() {
+		tail.lazySet(tail.get() + 1);
+	}
+
+	/**
+	 * @return number of rows waiting to be written
+	 */
+	public int size() {
+		return (int) (head.get() - tail.get());
+	}
+
+	/**
+	 * @return maximum number of rows that can be waiting to be written
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return number of columns in each row
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return number of rows dropped because the buffer was full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return largest number of rows that have been waiting to be written at once
+	 */
+	public int getHighWaterMark() {
+		return highWaterMark;
+	}
+}
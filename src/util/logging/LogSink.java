@@ -0,0 +1,78 @@
+package util.logging;
+
+import java.io.IOException;
+
+/**
+ * Interface for a destination that log rows are written to, such as a CSV or binary
+ * file. A sink is only ever used from one thread at a time, normally the LogWriter's.
+ */
+public interface LogSink {
+	
+	/**
+	 * Starts a log where every column is a double
+	 * 
+	 * @param fieldNames Name of each column
+	 * @param unitNames Units of each column
+	 * @throws IOException if the log can't be written
+	 */
+	public default void open(String[] fieldNames, String[] unitNames) throws IOException {
+		open(fieldNames, unitNames, null);
+	}
+	
+	/**
+	 * Starts the log and writes anything that comes before the rows, such as a header
+	 * 
+	 * @param fieldNames Name of each column
+	 * @param unitNames Units of each column
+	 * @param fieldTypes Type of each column, or null if every column is a double
+	 * @throws IOException if the log can't be written
+	 */
+	public void open(String[] fieldNames, String[] unitNames, LogFieldType[] fieldTypes) throws IOException;
+	
+	/**
+	 * Writes a single row
+	 * 
+	 * @param timestamp Time in seconds the row was sampled
+	 * @param values Bits of each column's value as described in LogFieldType, only 
+	 *        valid until this returns
+	 * @param present Which columns were logged in this row, column i is present if bit
+	 *        i % 64 of present[i / 64] is set. Values of other columns should not be
+	 *        written. Null if every column is present
+	 * @throws IOException if the row can't be written
+	 */
+	public void writeRow(double timestamp, long[] values, long[] present) throws IOException;
+	
+	/**
+	 * Writes an event between rows. Events are written in between the rows sampled
+	 * before and after them. Sinks that can't store events ignore them
+	 * 
+	 * @param timestamp Time in seconds the event happened
+	 * @param type Kind of event
+	 * @param source What the event came from
+	 * @param message Details of the event
+	 * @throws IOException if the event can't be written
+	 */
+	public default void writeEvent(double timestamp, LogEvent.Type type, String source, String message) throws IOException {
+	}
+	
+	/**
+	 * Pushes anything buffered in memory out to the file
+	 * 
+	 * @throws IOException if the data can't be written
+	 */
+	public void flush() throws IOException;
+	
+	/**
+	 * Flushes and waits for the data to be put on disk, so it survives a power loss
+	 * 
+	 * @throws IOException if the data can't be written
+	 */
+	public void sync() throws IOException;
+	
+	/**
+	 * Flushes and closes the log. Nothing can be written after this
+	 * 
+	 * @throws IOException if the log can't be closed
+	 */
+	public void close() throws IOException;
+}
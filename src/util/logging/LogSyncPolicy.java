@@ -0,0 +1,26 @@
+package util.logging;
+
+/**
+ * Decides when the LogWriter forces a log to disk. Syncing is done on the writer's
+ * thread, so it never slows down the thread that samples the data. Anything not yet
+ * synced can be lost if the robot loses power, so these set how much data that can be.
+ * Change the fields and pass it to DataLogger.setSyncPolicy().
+ */
+public class LogSyncPolicy {
+	
+	/**
+	 * Time in seconds between syncs, 0 to not sync on a timer
+	 */
+	public double period = 1.0;
+	
+	/**
+	 * Number of rows between syncs, 0 to not sync on a row count
+	 */
+	public int rows = 0;
+	
+	/**
+	 * If true, the log is synced as soon as the robot browns out and after every 
+	 * write while it stays browned out
+	 */
+	public boolean onBrownout = true;
+}
@@ -0,0 +1,275 @@
+package util.logging;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Background thread that takes rows out of a LogRingBuffer and writes them to one
+ * or more LogSinks, such as a file and a live telemetry stream. This keeps formatting,
+ * disk and network access off of the thread that samples the data. The sinks are 
+ * synced on the writer's thread whenever the LogSyncPolicy says to. If one sink fails
+ * the others keep being written to.
+ * 
+ * Events from a LogEventQueue are written in between the rows, each one before the 
+ * first row sampled after it, so they line up with the rows when the log is read.
+ */
+class LogWriter implements Runnable {
+	
+	/**
+	 * Time in nanoseconds to wait before checking for more rows when the buffer is empty
+	 */
+	private static final long IDLE_WAIT = 5000000;
+	
+	private final LogRingBuffer ring;
+	
+	/**
+	 * Queue of events to write between the rows, or null if there isn't one
+	 */
+	private final LogEventQueue events;
+	private final LogSink[] sinks;
+	private final Thread thread;
+	
+	/**
+	 * Set for each sink that failed, nothing more is written to it after that. Only
+	 * used by the writer's thread
+	 */
+	private final boolean[] sinkFailed;
+	
+	/**
+	 * Reused to hand each row to the sink
+	 */
+	private final long[] row;
+	private final long[] present;
+	
+	private final long syncPeriod;
+	private final int syncRows;
+	private final boolean syncOnBrownout;
+	
+	/**
+	 * Rows written since the last sync
+	 */
+	private int unsyncedRows = 0;
+	
+	/**
+	 * System.nanoTime() of the last sync
+	 */
+	private long lastSync;
+	
+	/**
+	 * Set when the file should be synced the next time the writer runs
+	 */
+	private volatile boolean syncRequested = false;
+	
+	/**
+	 * Set when the writer should write any rows left in the buffer and close the file
+	 */
+	private volatile boolean closing = false;
+	
+	/**
+	 * Set if writing to any sink failed
+	 */
+	private volatile boolean failed = false;
+
+	/**
+	 * Creates a writer, call start() to start writing
+	 * 
+	 * @param ring Buffer to take rows from
+	 * @param events Queue to take events from, or null to only write rows
+	 * @param name Name of the log, used to name the thread
+	 * @param policy When to sync the sinks, copied when the writer is created
+	 * @param sinks Sinks to write every row to, already opened. They are closed by the writer
+	 */
+	LogWriter(LogRingBuffer ring, LogEventQueue events, String name, LogSyncPolicy policy, LogSink... sinks) {
+		this.ring = ring;
+		this.events = events;
+		this.sinks = sinks;
+		sinkFailed = new boolean[sinks.length];
+		row = new long[ring.getWidth()];
+		present = new long[(ring.getWidth() + 63) / 64];
+		syncPeriod = (long) (policy.period * 1e9);
+		syncRows = policy.rows;
+		syncOnBrownout = policy.onBrownout;
+		thread = new Thread(this, "LogWriter " + name);
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts the background thread
+	 */
+	void start() {
+		lastSync = System.nanoTime();
+		thread.start();
+	}
+
+	/**
+	 * Asks the writer to sync the file to disk. Returns right away, the sync happens
+	 * on the writer's thread
+	 */
+	void requestSync() {
+		syncRequested = true;
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Writes any rows left in the buffer, closes the file and stops the thread. Waits 
+	 * for the thread to finish
+	 * 
+	 * @return 0 on success, -1 if anything failed to be written
+	 */
+	int close() {
+		closing = true;
+		LockSupport.unpark(thread);
+		
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return failed ? -1 : 0;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			// Read closing before draining so no rows published before close() are missed
+			boolean finish = closing;
+			
+			int written = writeRows();
+			// Anything left happened after the last row, so it goes before the next one
+			written += writeEvents(Double.POSITIVE_INFINITY);
+			unsyncedRows += written;
+			
+			if (syncRequested || finish || shouldSync()) {
+				syncRequested = false;
+				syncSinks();
+				unsyncedRows = 0;
+				lastSync = System.nanoTime();
+			}
+			
+			if (finish) {
+				closeSinks();
+				return;
+			}
+			
+			if (written == 0) {
+				LockSupport.parkNanos(this, IDLE_WAIT);
+			}
+		}
+	}
+
+	/**
+	 * Stops writing to a sink that threw an exception
+	 */
+	private void fail(int sink, IOException e) {
+		if (!sinkFailed[sink]) {
+			DriverStation.reportError("Error writing to log: " + e.getMessage(), false);
+		}
+		sinkFailed[sink] = true;
+		failed = true;
+	}
+
+	private void syncSinks() {
+		for (int i = 0; i < sinks.length; i++) {
+			if (!sinkFailed[i]) {
+				try {
+					sinks[i].sync();
+				} catch (IOException e) {
+					fail(i, e);
+				}
+			}
+		}
+	}
+
+	private void closeSinks() {
+		for (int i = 0; i < sinks.length; i++) {
+			try {
+				sinks[i].close();
+			} catch (IOException e) {
+				fail(i, e);
+			}
+		}
+	}
+
+	/**
+	 * Checks the sync policy for whether the rows written since the last sync should
+	 * be synced now
+	 */
+	private boolean shouldSync() {
+		if (unsyncedRows == 0) {
+			return false;
+		}
+		if (syncRows > 0 && unsyncedRows >= syncRows) {
+			return true;
+		}
+		if (syncPeriod > 0 && System.nanoTime() - lastSync >= syncPeriod) {
+			return true;
+		}
+		return syncOnBrownout && DriverStation.getInstance().isBrownedOut();
+	}
+
+	/**
+	 * Writes every waiting event that happened up to a time to every sink that hasn't
+	 * failed
+	 * 
+	 * @param until Time in seconds to write events up to
+	 * @return number of events written
+	 */
+	private int writeEvents(double until) {
+		if (events == null) {
+			return 0;
+		}
+		
+		int written = 0;
+		int slot;
+		
+		while ((slot = events.peek()) >= 0 && events.getTimestamp(slot) <= until) {
+			for (int i = 0; i < sinks.length; i++) {
+				if (!sinkFailed[i]) {
+					try {
+						sinks[i].writeEvent(events.getTimestamp(slot), events.getType(slot), events.getSource(slot),
+								events.getMessage(slot));
+					} catch (IOException e) {
+						fail(i, e);
+					}
+				}
+			}
+			events.release();
+			written++;
+		}
+		return written;
+	}
+
+	/**
+	 * Writes every row waiting in the buffer to every sink that hasn't failed. Rows
+	 * are still taken out of the buffer if every sink failed, so the sampling side 
+	 * doesn't count every row as dropped
+	 * 
+	 * @return number of rows taken out of the buffer
+	 */
+	private int writeRows() {
+		int written = 0;
+		int slot;
+		
+		while ((slot = ring.peek()) >= 0) {
+			ring.copyRow(slot, row);
+			ring.copyPresent(slot, present);
+			double timestamp = ring.getTimestamp(slot);
+			writeEvents(timestamp);
+			
+			for (int i = 0; i < sinks.length; i++) {
+				if (!sinkFailed[i]) {
+					try {
+						sinks[i].writeRow(timestamp, row, present);
+					} catch (IOException e) {
+						fail(i, e);
+					}
+				}
+			}
+			ring.release();
+			written++;
+		}
+		return written;
+	}
+}
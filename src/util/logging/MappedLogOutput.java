@@ -0,0 +1,134 @@
+package util.logging;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * LogOutput that writes into memory-mapped segments of the file. Each segment is
+ * preallocated when it is mapped, so writing a row is just a copy into memory and
+ * the operating system writes the pages out in the background. sync() forces the 
+ * mapped pages to disk.
+ * <br>
+ * <br>
+ * The file is truncated to the data written when it is closed. If the robot loses
+ * power first, the end of the file is left filled with zeros up to the end of the
+ * segment, which BinaryLogReader treats as the end of the log.
+ */
+public class MappedLogOutput extends LogOutput {
+	
+	/**
+	 * Default number of bytes mapped at a time
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+	
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int segmentSize;
+	
+	private MappedByteBuffer segment = null;
+	
+	/**
+	 * File position of the start of the current segment
+	 */
+	private long segmentStart;
+	private boolean closed = false;
+
+	/**
+	 * Opens a file to write to using the default segment size
+	 * 
+	 * @param path Path of the file
+	 * @param append If true, writing starts at the end of an existing file. If false,
+	 *        an existing file is replaced
+	 * @throws IOException if the file can't be opened
+	 */
+	public MappedLogOutput(String path, boolean append) throws IOException {
+		this(path, append, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Opens a file to write to
+	 * 
+	 * @param path Path of the file
+	 * @param append If true, writing starts at the end of an existing file. If false,
+	 *        an existing file is replaced
+	 * @param segmentSize Number of bytes to preallocate and map at a time
+	 * @throws IOException if the file can't be opened
+	 */
+	public MappedLogOutput(String path, boolean append, int segmentSize) throws IOException {
+		file = new RandomAccessFile(path, "rw");
+		channel = file.getChannel();
+		this.segmentSize = Math.max(4096, segmentSize);
+		
+		if (!append) {
+			channel.truncate(0);
+		}
+		segmentStart = channel.size();
+		map();
+	}
+
+	/**
+	 * Maps the segment starting at segmentStart, growing the file to fit it
+	 */
+	private void map() throws IOException {
+		segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, segmentSize);
+	}
+
+	/**
+	 * Moves on to the next segment once the current one is full
+	 */
+	private void nextSegment() throws IOException {
+		segment.force();
+		segmentStart += segmentSize;
+		map();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (!segment.hasRemaining()) {
+			nextSegment();
+		}
+		segment.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (!segment.hasRemaining()) {
+				nextSegment();
+			}
+			int count = Math.min(len, segment.remaining());
+			segment.put(b, off, count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	/**
+	 * @return number of bytes written to the file so far
+	 */
+	public long getPosition() {
+		return segmentStart + segment.position();
+	}
+
+	@Override
+	public void sync() throws IOException {
+		segment.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		
+		try {
+			segment.force();
+			channel.truncate(getPosition());
+		} finally {
+			file.close();
+		}
+	}
+}
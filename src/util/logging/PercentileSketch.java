@@ -0,0 +1,189 @@
+package util.logging;
+
+/**
+ * Estimates percentiles of a stream of values without keeping them. Values are
+ * counted in buckets whose width grows with the size of the value, so every estimate
+ * is within a set fraction of the true value, 1% by default, whatever the spread of
+ * the data. Memory depends only on the range of the values and not how many there
+ * are: values from 0.001 to 1000 at 1% use about 700 counts.
+ * <br>
+ * <br>
+ * Buckets that have only been given one value, such as from booleans or counts,
+ * return it exactly. Values closer to zero than 1e-9 are counted as zero.
+ */
+public class PercentileSketch {
+
+	private static final double MIN_MAGNITUDE = 1e-9;
+
+	private final double gamma;
+	private final double logGamma;
+
+	private final Buckets positive = new Buckets();
+	private final Buckets negative = new Buckets();
+	private long zeros = 0;
+	private long count = 0;
+
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+
+	/**
+	 * Counts of values in a range of buckets, grown as values outside it are added
+	 */
+	private static class Buckets {
+		long[] counts = new long[0];
+
+		/**
+		 * Magnitude of the values in each bucket if they have all been the same, NaN if not
+		 */
+		double[] values = new double[0];
+
+		/**
+		 * Bucket number of counts[0]
+		 */
+		int offset = 0;
+
+		void add(int bucket, double magnitude) {
+			if (counts.length == 0) {
+				counts = new long[64];
+				values = new double[64];
+				offset = bucket - 32;
+			} else if (bucket < offset || bucket >= offset + counts.length) {
+				int low = Math.min(offset, bucket);
+				int high = Math.max(offset + counts.length, bucket + 1);
+				// Leave room to grow the same way again without copying every time
+				int margin = (high - low) / 2;
+				long[] grown = new long[high - low + 2 * margin];
+				double[] grownValues = new double[grown.length];
+				System.arraycopy(counts, 0, grown, offset - low + margin, counts.length);
+				System.arraycopy(values, 0, grownValues, offset - low + margin, values.length);
+				counts = grown;
+				values = grownValues;
+				offset = low - margin;
+			}
+			int i = bucket - offset;
+			if (counts[i]++ == 0) {
+				values[i] = magnitude;
+			} else if (values[i] != magnitude) {
+				values[i] = Double.NaN;
+			}
+		}
+	}
+
+	/**
+	 * Creates a sketch accurate to 1%
+	 */
+	public PercentileSketch() {
+		this(0.01);
+	}
+
+	/**
+	 * Creates an empty sketch
+	 *
+	 * @param accuracy Largest error of an estimate as a fraction of the true value,
+	 *        such as 0.01 for 1%. Smaller uses more memory
+	 */
+	public PercentileSketch(double accuracy) {
+		accuracy = Math.min(0.5, Math.max(1e-4, accuracy));
+		gamma = (1 + accuracy) / (1 - accuracy);
+		logGamma = Math.log(gamma);
+	}
+
+	/**
+	 * Adds a value
+	 *
+	 * @param value Value to add, NaN is ignored
+	 */
+	public void add(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		if (count++ == 0) {
+			min = value;
+			max = value;
+		} else {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		double magnitude = Math.abs(value);
+		if (magnitude < MIN_MAGNITUDE) {
+			zeros++;
+		} else {
+			// Infinity is counted with the largest finite values
+			int bucket = (int) Math.ceil(Math.log(Math.min(magnitude, Double.MAX_VALUE)) / logGamma);
+			(value > 0 ? positive : negative).add(bucket, magnitude);
+		}
+	}
+
+	/**
+	 * @param buckets Buckets of one sign
+	 * @param i Index of the bucket in buckets
+	 * @return the value in the bucket if there is only one, otherwise the value in the
+	 *         middle of the bucket, within the accuracy of every value in it
+	 */
+	private double valueOf(Buckets buckets, int i) {
+		if (!Double.isNaN(buckets.values[i])) {
+			return buckets.values[i];
+		}
+		return 2 * Math.pow(gamma, i + buckets.offset) / (gamma + 1);
+	}
+
+	/**
+	 * Estimates a percentile of the values added
+	 *
+	 * @param percentile Percentile from 0 to 100
+	 * @return estimate of the percentile, NaN if no values have been added
+	 */
+	public double get(double percentile) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		long rank = (long) (Math.min(1, Math.max(0, percentile / 100)) * (count - 1));
+		double estimate;
+
+		// Most negative first, so the largest negative buckets
+		long seen = 0;
+		int bucket = negative.counts.length - 1;
+		for (; bucket >= 0; bucket--) {
+			seen += negative.counts[bucket];
+			if (seen > rank) {
+				break;
+			}
+		}
+		if (bucket >= 0) {
+			estimate = -valueOf(negative, bucket);
+		} else if ((seen += zeros) > rank) {
+			estimate = 0;
+		} else {
+			for (bucket = 0; bucket < positive.counts.length - 1; bucket++) {
+				seen += positive.counts[bucket];
+				if (seen > rank) {
+					break;
+				}
+			}
+			estimate = valueOf(positive, bucket);
+		}
+		return Math.min(max, Math.max(min, estimate));
+	}
+
+	/**
+	 * @return number of values added
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return smallest value added, NaN if none have been added
+	 */
+	public double getMin() {
+		return min;
+	}
+
+	/**
+	 * @return largest value added, NaN if none have been added
+	 */
+	public double getMax() {
+		return max;
+	}
+}
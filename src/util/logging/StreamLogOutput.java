@@ -0,0 +1,53 @@
+package util.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * LogOutput that writes through a buffered FileOutputStream
+ */
+public class StreamLogOutput extends LogOutput {
+	
+	private final FileOutputStream file;
+	private final BufferedOutputStream out;
+
+	/**
+	 * Opens a file to write to
+	 * 
+	 * @param path Path of the file
+	 * @param append If true, writing starts at the end of an existing file. If false,
+	 *        an existing file is replaced
+	 * @throws IOException if the file can't be opened
+	 */
+	public StreamLogOutput(String path, boolean append) throws IOException {
+		file = new FileOutputStream(path, append);
+		out = new BufferedOutputStream(file, 65536);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void sync() throws IOException {
+		out.flush();
+		file.getFD().sync();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
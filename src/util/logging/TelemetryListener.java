@@ -0,0 +1,317 @@
+package util.logging;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Receives rows sent by a TelemetrySink. Rows are read one at a time with the same
+ * methods used to read a log file, and events with getEvents(). Rows that arrive before
+ * their schema are skipped, and rows that never arrive are counted in getLost().
+ * <br>
+ * <br>
+ * Can also be run from the command line to print the rows as CSV: <br>
+ * java util.logging.TelemetryListener port [udp|tcp]
+ */
+public class TelemetryListener implements LogFileReader {
+	
+	private final TelemetrySink.Protocol protocol;
+	private final DatagramSocket udp;
+	private final ServerSocket server;
+	private Socket client = null;
+	private DataInputStream clientIn = null;
+	
+	private final byte[] buffer = new byte[65536];
+	
+	private int session = 0;
+	private boolean hasSchema = false;
+	private boolean schemaChanged = false;
+	private String[] fieldNames = new String[0];
+	private String[] unitNames = new String[0];
+	private LogFieldType[] fieldTypes = new LogFieldType[0];
+	private long[] rawValues = new long[0];
+	private double[] values = new double[0];
+	private long[] present = new long[0];
+	private double timestamp = 0;
+	
+	/**
+	 * Events received since the last row
+	 */
+	private final List<LogEvent> events = new ArrayList<LogEvent>();
+	
+	private int nextSequence = 0;
+	private long lost = 0;
+
+	/**
+	 * Starts listening on a port
+	 * 
+	 * @param port Port to listen on
+	 * @param protocol Protocol the sink is sending with
+	 * @throws IOException if the port can't be opened
+	 */
+	public TelemetryListener(int port, TelemetrySink.Protocol protocol) throws IOException {
+		this.protocol = protocol;
+		
+		if (protocol == TelemetrySink.Protocol.UDP) {
+			udp = new DatagramSocket(port);
+			server = null;
+		} else {
+			udp = null;
+			server = new ServerSocket(port);
+		}
+	}
+
+	/**
+	 * Sets how long next() waits for a row before giving up
+	 * 
+	 * @param milliseconds Time to wait, 0 to wait forever
+	 * @throws IOException if the socket can't be changed
+	 */
+	public void setTimeout(int milliseconds) throws IOException {
+		if (udp != null) {
+			udp.setSoTimeout(milliseconds);
+		} else {
+			server.setSoTimeout(milliseconds);
+			if (client != null) {
+				client.setSoTimeout(milliseconds);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the next row
+	 * 
+	 * @return true when a row is received, false if the timeout ran out first
+	 * @throws IOException if the socket fails
+	 */
+	@Override
+	public boolean next() throws IOException {
+		events.clear();
+		try {
+			while (true) {
+				int length = receive();
+				if (length > 0 && read(ByteBuffer.wrap(buffer, 0, length).order(ByteOrder.LITTLE_ENDIAN))) {
+					return true;
+				}
+			}
+		} catch (SocketTimeoutException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Receives one message into the buffer
+	 * 
+	 * @return length of the message, or 0 if nothing was received
+	 */
+	private int receive() throws IOException {
+		if (udp != null) {
+			DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+			udp.receive(packet);
+			return packet.getLength();
+		}
+		
+		if (client == null) {
+			client = server.accept();
+			client.setSoTimeout(server.getSoTimeout());
+			clientIn = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+		}
+		try {
+			int length = LogHeader.readBytes(clientIn, 4).getInt();
+			if (length <= 0 || length > buffer.length) {
+				throw new IOException("Bad telemetry message length " + length);
+			}
+			clientIn.readFully(buffer, 0, length);
+			return length;
+		} catch (SocketTimeoutException e) {
+			throw e;
+		} catch (IOException e) {
+			// Sender went away, wait for it to connect again
+			client.close();
+			client = null;
+			if (!(e instanceof EOFException)) {
+				throw e;
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Reads a message
+	 * 
+	 * @return true if it was a row that can be read
+	 */
+	private boolean read(ByteBuffer data) throws IOException {
+		byte type = data.get();
+		int messageSession = data.getInt();
+		
+		if (type == TelemetrySink.MESSAGE_EVENT) {
+			if (hasSchema && messageSession == session) {
+				events.add(LogEvent.read(new DataInputStream(new ByteArrayInputStream(data.array(), data.position(), data.remaining()))));
+			}
+			return false;
+		}
+		
+		if (type == TelemetrySink.MESSAGE_SCHEMA) {
+			if (!hasSchema || messageSession != session) {
+				DataInputStream header = new DataInputStream(new ByteArrayInputStream(data.array(), data.position(), data.remaining()));
+				LogHeader schema = LogHeader.read(header, TelemetrySink.MAGIC, 1, TelemetrySink.VERSION);
+				
+				session = messageSession;
+				hasSchema = true;
+				schemaChanged = true;
+				fieldNames = schema.fieldNames;
+				unitNames = schema.unitNames;
+				fieldTypes = schema.fieldTypes;
+				rawValues = new long[fieldNames.length];
+				values = new double[fieldNames.length];
+				present = new long[(fieldNames.length + 63) / 64];
+				nextSequence = -1;
+			}
+			return false;
+		}
+		
+		if (type != TelemetrySink.MESSAGE_ROW || !hasSchema || messageSession != session) {
+			return false;
+		}
+		
+		int sequence = data.getInt();
+		if (nextSequence >= 0 && sequence > nextSequence) {
+			lost += sequence - nextSequence;
+		}
+		nextSequence = sequence + 1;
+		timestamp = data.getDouble();
+		
+		Arrays.fill(present, 0);
+		for (int i = 0; i < values.length; i += 8) {
+			present[i >> 6] |= (long) (data.get() & 0xFF) << (i & 63);
+		}
+		for (int i = 0; i < values.length; i++) {
+			if (isPresent(i)) {
+				rawValues[i] = fieldTypes[i].get(data);
+				values[i] = fieldTypes[i].toDouble(rawValues[i]);
+			} else {
+				rawValues[i] = 0;
+				values[i] = Double.NaN;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of rows that were sent but never received
+	 */
+	public long getLost() {
+		return lost;
+	}
+
+	/**
+	 * @return true if a new schema has been received since the last call, such as when
+	 *         the robot starts a new log
+	 */
+	public boolean schemaChanged() {
+		boolean changed = schemaChanged;
+		schemaChanged = false;
+		return changed;
+	}
+
+	@Override
+	public String[] getFieldNames() {
+		return fieldNames.clone();
+	}
+
+	@Override
+	public String[] getUnitNames() {
+		return unitNames.clone();
+	}
+
+	@Override
+	public double getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public double get(int column) {
+		return values[column];
+	}
+
+	@Override
+	public double[] getValues() {
+		return values;
+	}
+
+	@Override
+	public LogFieldType[] getFieldTypes() {
+		return fieldTypes.clone();
+	}
+
+	@Override
+	public long[] getRawValues() {
+		return rawValues;
+	}
+
+	@Override
+	public long getLong(int column) {
+		return fieldTypes[column].toLong(rawValues[column]);
+	}
+
+	@Override
+	public long[] getPresent() {
+		return present;
+	}
+
+	@Override
+	public List<LogEvent> getEvents() {
+		return events;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (udp != null) {
+			udp.close();
+		}
+		if (client != null) {
+			client.close();
+		}
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: java util.logging.TelemetryListener port [udp|tcp]");
+			System.exit(1);
+		}
+		
+		TelemetrySink.Protocol protocol = args.length == 2 && args[1].equalsIgnoreCase("tcp") 
+				? TelemetrySink.Protocol.TCP : TelemetrySink.Protocol.UDP;
+		
+		try (TelemetryListener listener = new TelemetryListener(Integer.parseInt(args[0]), protocol)) {
+			CsvSink out = new CsvSink(System.out);
+			
+			while (listener.next()) {
+				if (listener.schemaChanged()) {
+					out.open(listener.getFieldNames(), listener.getUnitNames(), listener.getFieldTypes());
+				}
+				for (LogEvent event : listener.getEvents()) {
+					out.writeEvent(event.timestamp, event.type, event.source, event.message);
+				}
+				out.writeRow(listener.getTimestamp(), listener.getRawValues(), listener.getPresent());
+				out.flush();
+			}
+		}
+	}
+}
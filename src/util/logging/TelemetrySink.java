@@ -0,0 +1,347 @@
+package util.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sends every logged row over the network as it is written, so a live viewer sees 
+ * the same data that goes to the log file. Each row is sent as one small binary 
+ * message over UDP or TCP. Sending never blocks: if the network or the receiver can't
+ * keep up, rows are dropped and counted in getDropped() instead of slowing down the
+ * LogWriter. Network errors are never thrown, so they can't stop the log file from
+ * being written. Use TelemetryListener to receive the rows.
+ * <br>
+ * <br>
+ * MESSAGES (all numbers little-endian, over TCP each is preceded by its 4 byte length):
+ * <ul>
+ * <li>Schema: a 1 byte type (1), a 4 byte session id and then a LogHeader with the
+ * magic bytes "RTLM". Sent when the sink is opened and every second after that over 
+ * UDP, or whenever the connection is made over TCP</li>
+ * <li>Row: a 1 byte type (2), a 4 byte session id, a 4 byte sequence number, an 8 byte
+ * timestamp, a presence bitmask and the present values, laid out like a BinarySink row</li>
+ * <li>Event: a 1 byte type (3), a 4 byte session id and then an event laid out as 
+ * described in LogEvent. Events that can't be sent without waiting are dropped</li>
+ * </ul>
+ */
+public class TelemetrySink implements LogSink {
+	
+	/**
+	 * Ways rows can be sent
+	 */
+	public enum Protocol {
+		/**
+		 * Each row is a datagram, rows that are lost are not resent
+		 */
+		UDP,
+		
+		/**
+		 * Rows are sent over a connection that is remade if it drops
+		 */
+		TCP
+	}
+	
+	static final byte[] MAGIC = { 'R', 'T', 'L', 'M' };
+	static final int VERSION = 2;
+	static final byte MESSAGE_SCHEMA = 1;
+	static final byte MESSAGE_ROW = 2;
+	static final byte MESSAGE_EVENT = 3;
+	
+	/**
+	 * Default number of bytes that can be waiting to be sent over TCP
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 65536;
+	
+	/**
+	 * Time in nanoseconds between schemas over UDP and between attempts to connect over TCP
+	 */
+	private static final long RETRY_PERIOD = 1000000000L;
+	
+	private final String host;
+	private final int port;
+	private final Protocol protocol;
+	private final int bufferSize;
+	private final int session = ThreadLocalRandom.current().nextInt();
+	
+	private InetSocketAddress address;
+	private DatagramChannel udp = null;
+	private SocketChannel tcp = null;
+	
+	private ByteBuffer schema;
+	private ByteBuffer message;
+	
+	/**
+	 * Messages waiting to be sent over TCP
+	 */
+	private ByteBuffer pending;
+	
+	private int fieldCount;
+	private LogFieldType[] types;
+	private int sequence = 0;
+	private long lastSchema;
+	private long lastConnect;
+	
+	private volatile long sent = 0;
+	private volatile long dropped = 0;
+
+	/**
+	 * Creates a sink that sends to a host, with the default buffer size
+	 * 
+	 * @param host Name or address of the computer to send to, such as the driver station
+	 * @param port Port the listener is on
+	 * @param protocol How to send the rows
+	 */
+	public TelemetrySink(String host, int port, Protocol protocol) {
+		this(host, port, protocol, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a sink that sends to a host
+	 * 
+	 * @param host Name or address of the computer to send to, such as the driver station
+	 * @param port Port the listener is on
+	 * @param protocol How to send the rows
+	 * @param bufferSize Number of bytes that can be waiting to be sent over TCP before
+	 *        rows are dropped
+	 */
+	public TelemetrySink(String host, int port, Protocol protocol, int bufferSize) {
+		this.host = host;
+		this.port = port;
+		this.protocol = protocol;
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	public void open(String[] fieldNames, String[] unitNames, LogFieldType[] fieldTypes) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ByteBuffer start = ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN);
+		start.put(MESSAGE_SCHEMA).putInt(session);
+		bytes.write(start.array());
+		LogHeader header = new LogHeader(MAGIC, VERSION, fieldNames, unitNames, fieldTypes);
+		header.write(bytes);
+		schema = ByteBuffer.wrap(bytes.toByteArray());
+		
+		fieldCount = fieldNames.length;
+		types = header.fieldTypes;
+		int rowBytes = 0;
+		for (LogFieldType type : types) {
+			rowBytes += type.bytes;
+		}
+		message = ByteBuffer.allocate(1 + 4 + 4 + 8 + (fieldCount + 7) / 8 + rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+		pending = ByteBuffer.allocate(Math.max(bufferSize, 4 + Math.max(schema.capacity(), message.capacity())))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		
+		address = new InetSocketAddress(host, port);
+		lastConnect = System.nanoTime() - RETRY_PERIOD;
+		if (protocol == Protocol.UDP) {
+			sendSchema();
+		} else {
+			connect();
+		}
+	}
+
+	@Override
+	public void writeRow(double timestamp, long[] values, long[] present) {
+		message.clear();
+		message.put(MESSAGE_ROW).putInt(session).putInt(sequence++).putDouble(timestamp);
+		
+		for (int i = 0; i < fieldCount; i += 8) {
+			int bits = present == null ? 0xFF : (int) (present[i >> 6] >>> (i & 63)) & 0xFF;
+			if (fieldCount - i < 8) {
+				bits &= (1 << (fieldCount - i)) - 1;
+			}
+			message.put((byte) bits);
+		}
+		for (int i = 0; i < fieldCount; i++) {
+			if (present == null || (present[i >> 6] & (1L << i)) != 0) {
+				types[i].put(message, values[i]);
+			}
+		}
+		message.flip();
+		
+		if (protocol == Protocol.UDP) {
+			if (System.nanoTime() - lastSchema >= RETRY_PERIOD) {
+				sendSchema();
+			}
+			if (sendDatagram(message)) {
+				sent++;
+			} else {
+				dropped++;
+			}
+		} else {
+			if (queue(message)) {
+				sent++;
+			} else {
+				dropped++;
+			}
+		}
+	}
+
+	@Override
+	public void writeEvent(double timestamp, LogEvent.Type type, String source, String message) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ByteBuffer start = ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN);
+		start.put(MESSAGE_EVENT).putInt(session);
+		bytes.write(start.array());
+		LogEvent.write(bytes, timestamp, type, source, message);
+		ByteBuffer event = ByteBuffer.wrap(bytes.toByteArray());
+		
+		if (protocol == Protocol.UDP) {
+			sendDatagram(event);
+		} else if (event.remaining() + 4 <= pending.capacity()) {
+			queue(event);
+		}
+	}
+
+	/**
+	 * Sends the schema so listeners that started late can read the rows
+	 */
+	private void sendSchema() {
+		lastSchema = System.nanoTime();
+		schema.rewind();
+		sendDatagram(schema);
+	}
+
+	/**
+	 * Sends a datagram without waiting
+	 * 
+	 * @return false if there was no room to send it or it failed
+	 */
+	private boolean sendDatagram(ByteBuffer data) {
+		try {
+			if (udp == null) {
+				udp = DatagramChannel.open();
+				udp.configureBlocking(false);
+			}
+			return udp.send(data, address) > 0;
+		} catch (IOException | UnresolvedAddressException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Starts connecting over TCP if there is no connection and it has been long enough
+	 * since the last try, and queues the schema to be sent first
+	 */
+	private void connect() {
+		if (tcp != null || System.nanoTime() - lastConnect < RETRY_PERIOD) {
+			return;
+		}
+		lastConnect = System.nanoTime();
+		
+		try {
+			tcp = SocketChannel.open();
+			tcp.configureBlocking(false);
+			tcp.connect(address);
+			
+			pending.clear();
+			schema.rewind();
+			pending.putInt(schema.remaining()).put(schema);
+		} catch (IOException | UnresolvedAddressException e) {
+			disconnect();
+		}
+	}
+
+	private void disconnect() {
+		if (tcp != null) {
+			try {
+				tcp.close();
+			} catch (IOException e) {
+				// Already broken
+			}
+			tcp = null;
+		}
+	}
+
+	/**
+	 * Adds a message to the TCP buffer and sends as much of the buffer as the 
+	 * connection will take without waiting
+	 * 
+	 * @return false if the message was dropped because there is no connection or
+	 *         the buffer is full
+	 */
+	private boolean queue(ByteBuffer data) {
+		if (!sendPending()) {
+			return false;
+		}
+		if (pending.remaining() < 4 + data.remaining()) {
+			return false;
+		}
+		
+		pending.putInt(data.remaining()).put(data);
+		sendPending();
+		return true;
+	}
+
+	/**
+	 * Sends as much of the TCP buffer as the connection will take without waiting
+	 * 
+	 * @return true if connected
+	 */
+	private boolean sendPending() {
+		connect();
+		if (tcp == null) {
+			return false;
+		}
+		
+		try {
+			if (!tcp.isConnected() && !tcp.finishConnect()) {
+				return false;
+			}
+			pending.flip();
+			tcp.write(pending);
+			pending.compact();
+			return true;
+		} catch (IOException e) {
+			disconnect();
+			return false;
+		}
+	}
+
+	/**
+	 * @return number of rows sent, or queued to be sent over TCP
+	 */
+	public long getSent() {
+		return sent;
+	}
+
+	/**
+	 * @return number of rows dropped because they couldn't be sent without waiting
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	@Override
+	public void flush() {
+		if (protocol == Protocol.TCP && tcp != null) {
+			sendPending();
+		}
+	}
+
+	@Override
+	public void sync() {
+		flush();
+	}
+
+	@Override
+	public void close() {
+		flush();
+		disconnect();
+		
+		if (udp != null) {
+			try {
+				udp.close();
+			} catch (IOException e) {
+				// Nothing else to do
+			}
+			udp = null;
+		}
+	}
+}
@@ -9,13 +9,31 @@ package util.loops;
  * @author Trevor
  */
 public interface Loop {
+	
+	/**
+	 * Priority for loops that can be skipped when the looper is running late, such as logging
+	 */
+	public static final int PRIORITY_LOW = 0;
+	
+	/**
+	 * Default priority for loops
+	 */
+	public static final int PRIORITY_NORMAL = 5;
+	
+	/**
+	 * Priority for loops that should always run on time, such as drive
+	 */
+	public static final int PRIORITY_CRITICAL = 10;
+	
 	/**
 	 * Code here will be run when the loop first starts
 	 */
     public void onStart();
 
     /**
-     * Code here will be run periodically at a rate given in the looper
+     * Code here will be run periodically at a rate given in the looper. This is the
+     * compute phase of the tick, it runs after every loop's read() and before any
+     * loop's write()
      */
     public void onLoop();
 
@@ -23,5 +41,71 @@ public interface Loop {
      * Code here will be run when the loop is stopped
      */
     public void onStop();
+
+    /**
+     * Read phase of the tick. Runs for every loop that is due before any loop's 
+     * onLoop(), and is the place to read anything that isn't in the looper's 
+     * SensorSnapshot. Loops that don't split up their work can leave this empty
+     */
+    public default void read() {
+    }
+
+    /**
+     * Write phase of the tick. Runs for every loop that ran onLoop() this tick, after
+     * all of them have finished, so outputs such as talon set() calls should be done
+     * here to send them all out together at the end of the tick. Loops that don't 
+     * split up their work can leave this empty
+     */
+    public default void write() {
+    }
+
+    /**
+     * Names of everything this loop reads from that another loop might write to,
+     * such as "drive" or "joystick". Used by the Looper to decide which loops can
+     * run at the same time
+     * 
+     * @return names of what the loop reads, or null if the loop doesn't declare them,
+     * in which case it never runs at the same time as any other loop
+     */
+    public default String[] getReads() {
+        return null;
+    }
+
+    /**
+     * Names of everything this loop writes to or changes. Any two loops where one
+     * writes something the other reads or writes are run one after the other, in 
+     * the order they were registered
+     * 
+     * @return names of what the loop writes, or null if the loop doesn't declare them,
+     * in which case it never runs at the same time as any other loop
+     */
+    public default String[] getWrites() {
+        return null;
+    }
+
+    /**
+     * Priority of the loop. When a tick is running late, loops with a priority below
+     * shedPriority in the looper's config are put off so that higher priority loops
+     * still run on time. Priority only orders loops that can run at the same time, 
+     * highest first. It never moves a loop ahead of an earlier registered loop it 
+     * has to run after, so a loop that doesn't declare its reads and writes always
+     * runs in the order it was registered
+     * 
+     * @return priority of the loop, such as PRIORITY_LOW or PRIORITY_CRITICAL
+     */
+    public default int getPriority() {
+        return PRIORITY_NORMAL;
+    }
+
+    /**
+     * Time the loop is expected to take to run. A low priority loop is put off if 
+     * running it would make the tick go over loopDt, and runs that take longer than 
+     * this are counted in the loop's stats
+     * 
+     * @return time in seconds, or 0 if the loop has no budget
+     */
+    public default double getBudget() {
+        return 0;
+    }
 }
 
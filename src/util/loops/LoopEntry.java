@@ -0,0 +1,135 @@
+package util.loops;
+
+/**
+ * Holds a registered loop along with the information the Looper needs to 
+ * schedule it
+ */
+class LoopEntry {
+	
+	/**
+	 * The loop that is being run
+	 */
+    final Loop loop;
+    
+    /**
+     * Number of base ticks between each run of the loop
+     */
+    final int divisor;
+    
+    /**
+     * Base tick (mod divisor) that the loop runs on
+     */
+    final int offset;
+    
+    /**
+     * Timing information for the loop
+     */
+    final LoopStats stats;
+    
+    /**
+     * Priority of the loop, read once when it is registered
+     */
+    final int priority;
+    
+    /**
+     * Expected run time of the loop in nanoseconds, 0 if it has no budget
+     */
+    final long budgetNanos;
+    
+    /**
+     * Set when the loop was shed on a tick and should run on the next one, even if 
+     * it is not due then. Only used by the thread running the loop
+     */
+    boolean postponed = false;
+    
+    /**
+     * Set when onLoop() ran during the current tick, so that write() should run
+     */
+    boolean ranThisTick = false;
+    
+    /**
+     * Time in nanoseconds spent in this loop's phases during the current tick
+     */
+    long tickNanos = 0;
+    
+    /**
+     * Thread running one of the loop's phases, and the value of System.nanoTime() 
+     * when it started, or 0 when the loop is not running. Read by the watchdog
+     */
+    volatile Thread runningThread = null;
+    volatile long runningSince = 0;
+    
+    /**
+     * Name of the phase that is running
+     */
+    volatile String runningPhase = null;
+    
+    /**
+     * Set once the watchdog has reported the current hang, so it is only reported once
+     */
+    volatile boolean hangReported = false;
+    
+    /**
+     * Set when the watchdog has found the loop stuck and taken it out of the schedule
+     */
+    volatile boolean quarantined = false;
+
+    /**
+     * Creates an entry for a loop that runs every divisor ticks, offset by the given
+     * number of ticks
+     * 
+     * @param loop Loop to be run
+     * @param divisor Number of base ticks between each run, 1 runs every tick
+     * @param offset Tick that the loop runs on, from 0 to divisor - 1
+     * @param stats Object to record the loop's timing in
+     */
+    LoopEntry(Loop loop, int divisor, int offset, LoopStats stats) {
+        this.loop = loop;
+        this.divisor = divisor;
+        this.offset = offset;
+        this.stats = stats;
+        priority = loop.getPriority();
+        budgetNanos = (long) (loop.getBudget() * 1e9);
+    }
+
+    /**
+     * Checks if the loop should be run on the given tick
+     * 
+     * @param tick Number of base ticks since the looper was started
+     * @return true if the loop is due on this tick
+     */
+    boolean isDue(long tick) {
+        return tick % divisor == offset;
+    }
+
+    /**
+     * Checks if the loop should be run on the given tick, either because it is due
+     * or because it was put off from an earlier tick
+     * 
+     * @param tick Number of base ticks since the looper was started
+     * @return true if the loop should run on this tick
+     */
+    boolean shouldRun(long tick) {
+        return !quarantined && (postponed || isDue(tick));
+    }
+
+    /**
+     * Marks the loop as running a phase on the current thread, for the watchdog
+     * 
+     * @param phase Name of the phase
+     * @param now Current value of System.nanoTime()
+     */
+    void enter(String phase, long now) {
+        runningThread = Thread.currentThread();
+        runningPhase = phase;
+        runningSince = now;
+    }
+
+    /**
+     * Marks the loop as no longer running a phase
+     */
+    void exit() {
+        runningSince = 0;
+        hangReported = false;
+    }
+}
@@ -0,0 +1,323 @@
+package util.loops;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a group of loops split across a small, fixed set of threads, and waits for
+ * all of them to finish before returning. Normally the thread calling run() does 
+ * its share of the work too, so with one thread everything runs on the caller in 
+ * order. When the executor is isolated, every loop runs on a worker instead, so a
+ * worker that gets stuck can be abandoned and replaced without holding up the caller.
+ * 
+ * Loops are handed out round robin, so loop k in a group runs on thread k % threads.
+ * Each worker is given its work through its own volatile fields, and nothing is 
+ * allocated after the executor is created unless a worker is replaced.
+ */
+class LoopExecutor {
+	
+	/**
+	 * Code that is run for each loop
+	 */
+    interface Task {
+        /**
+         * Runs a single loop
+         * @param entry Loop to run
+         */
+        public void run(LoopEntry entry);
+    }
+	
+    private final Task task;
+    private final String name;
+    
+    /**
+     * True if the calling thread never runs loops itself
+     */
+    private final boolean isolated;
+    
+    /**
+     * Worker threads, a worker is swapped out when it is abandoned
+     */
+    private final AtomicReferenceArray<Worker> workers;
+    
+    /**
+     * Number of threads loops are split across, including the caller when not isolated
+     */
+    private final int threads;
+    
+    /**
+     * Number of workers that have not finished the current group yet
+     */
+    private final AtomicInteger remaining = new AtomicInteger();
+    
+    /**
+     * Thread waiting in run() for the workers to finish
+     */
+    private volatile Thread waiter;
+    
+    /**
+     * First exception thrown by a loop on a worker during the current group
+     */
+    private volatile Throwable failure = null;
+
+    /**
+     * Creates an executor and starts its worker threads
+     * 
+     * @param task Code to run for each loop
+     * @param threads Total number of threads to use, including the thread calling run()
+     * unless the executor is isolated
+     * @param isolated True to run every loop on a worker so stuck workers can be replaced
+     * @param name Name used for the worker threads
+     */
+    LoopExecutor(Task task, int threads, boolean isolated, String name) {
+        this.task = task;
+        this.name = name;
+        this.isolated = isolated;
+        this.threads = Math.max(1, threads);
+        
+        int workerCount = isolated ? this.threads : this.threads - 1;
+        workers = new AtomicReferenceArray<>(workerCount);
+        
+        for (int i = 0; i < workerCount; i++) {
+            Worker worker = createWorker(i);
+            workers.set(i, worker);
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Creates a worker, its thread is not started
+     * 
+     * @param slot Position of the worker in the workers array
+     */
+    private Worker createWorker(int slot) {
+        // When the caller runs loops it takes share 0, so workers start at 1
+        Worker worker = new Worker(isolated ? slot : slot + 1);
+        Thread thread = new Thread(worker, name + " worker " + (slot + 1));
+        thread.setDaemon(true);
+        worker.thread = thread;
+        return worker;
+    }
+
+    /**
+     * Checks if the given thread is one of the executor's workers
+     * 
+     * @param thread Thread to check
+     * @return true if the thread is a worker
+     */
+    boolean isWorker(Thread thread) {
+        for (int i = 0; i < workers.length(); i++) {
+            if (workers.get(i).thread == thread) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives up on a worker that is stuck running a loop. A new worker takes its place,
+     * and the group it was running is treated as finished so run() can return. Any
+     * loops later in the stuck worker's share of the group are not run, by it or 
+     * anyone else. The old thread is interrupted, and exits as soon as it returns
+     * from the loop without touching the group again
+     * 
+     * @param thread Thread of the worker to abandon
+     * @return true if the thread was a worker and it was abandoned
+     */
+    boolean abandon(Thread thread) {
+        for (int i = 0; i < workers.length(); i++) {
+            Worker worker = workers.get(i);
+            if (worker.thread != thread) {
+                continue;
+            }
+            
+            // Only start the replacement once it is in place, so a lost race leaks nothing
+            Worker replacement = createWorker(i);
+            if (workers.compareAndSet(i, worker, replacement)) {
+                worker.abandoned = true;
+                replacement.thread.start();
+                worker.finish();
+                thread.interrupt();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the task for every loop in the group and waits for all of them to finish
+     * 
+     * @param group Loops that are safe to run at the same time
+     * @param count Number of loops from the start of the array to run
+     */
+    void run(LoopEntry[] group, int count) {
+        if (!isolated && (count <= 1 || threads == 1)) {
+            for (int i = 0; i < count; i++) {
+                task.run(group[i]);
+            }
+            return;
+        }
+        
+        if (count == 0) {
+            return;
+        }
+        
+        int used = Math.min(workers.length(), isolated ? count : count - 1);
+        waiter = Thread.currentThread();
+        remaining.set(used);
+        
+        for (int i = 0; i < used; i++) {
+            workers.get(i).assign(group, count, threads);
+        }
+        
+        try {
+            if (!isolated) {
+                runShare(group, count, 0, threads);
+            }
+        } catch (RuntimeException | Error e) {
+            // Always wait, so no worker is still running when the next group is assigned
+            awaitWorkers();
+            
+            // Take any worker's failure along too, so it can't be thrown by a later group
+            Throwable other = failure;
+            failure = null;
+            if (other != null && other != e) {
+                e.addSuppressed(other);
+            }
+            throw e;
+        }
+        awaitWorkers();
+        
+        Throwable thrown = failure;
+        if (thrown != null) {
+            // Rethrow on the calling thread, the same as if the loop had run there
+            failure = null;
+            if (thrown instanceof RuntimeException) {
+                throw (RuntimeException) thrown;
+            } else if (thrown instanceof Error) {
+                throw (Error) thrown;
+            }
+            throw new RuntimeException(thrown);
+        }
+    }
+
+    /**
+     * Waits until every worker has finished the current group
+     */
+    private void awaitWorkers() {
+        while (remaining.get() > 0) {
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Runs every loop in the group that is assigned to the given thread
+     */
+    private void runShare(LoopEntry[] group, int count, int index, int threads) {
+        for (int i = index; i < count; i += threads) {
+            task.run(group[i]);
+        }
+    }
+
+    /**
+     * Worker thread that waits for groups to be assigned to it and runs its share
+     */
+    private class Worker implements Runnable {
+    	
+        private final int index;
+        private volatile Thread thread;
+        
+        /**
+         * Set once the worker has been replaced, the thread exits when it sees this
+         */
+        private volatile boolean abandoned = false;
+        
+        /**
+         * Set once the current group has been counted as finished, by either the 
+         * worker or abandon(), so that it is only counted once
+         */
+        private final AtomicBoolean finished = new AtomicBoolean(true);
+        
+        /**
+         * Work for the current group, only written while the worker is idle
+         */
+        private LoopEntry[] group;
+        private int count;
+        private int threads;
+        
+        /**
+         * Incremented every time a group is assigned. The write to this publishes
+         * the group to the worker
+         */
+        private volatile int generation = 0;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Gives the worker a new group to run and wakes it up
+         */
+        void assign(LoopEntry[] group, int count, int threads) {
+            this.group = group;
+            this.count = count;
+            this.threads = threads;
+            finished.set(false);
+            generation++;
+            LockSupport.unpark(thread);
+        }
+
+        /**
+         * Counts the current group as finished, if it hasn't been already
+         */
+        void finish() {
+            if (finished.compareAndSet(false, true) && remaining.decrementAndGet() == 0) {
+                LockSupport.unpark(waiter);
+            }
+        }
+
+        @Override
+        public void run() {
+            int seen = 0;
+            
+            while (!abandoned) {
+                int current = generation;
+                if (current == seen) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                seen = current;
+                
+                try {
+                    runOwnShare();
+                } catch (Throwable t) {
+                    if (failure == null && !abandoned) {
+                        failure = t;
+                    }
+                } finally {
+                    // Once abandoned the group belongs to later ticks, and abandon() 
+                    // already counted it as finished
+                    if (!abandoned) {
+                        group = null;
+                        finish();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Runs every loop in the group that is assigned to this worker, stopping as
+         * soon as the worker is abandoned
+         */
+        private void runOwnShare() {
+            for (int i = index; i < count; i += threads) {
+                if (abandoned) {
+                    return;
+                }
+                task.run(group[i]);
+            }
+        }
+    }
+}
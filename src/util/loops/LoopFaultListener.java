@@ -0,0 +1,27 @@
+package util.loops;
+
+/**
+ * Interface for code that wants to know when the Looper finds a problem with one of 
+ * its loops
+ */
+public interface LoopFaultListener {
+	
+	/**
+	 * Called from the looper's watchdog thread when a loop has been stuck in one of
+	 * its phases for longer than the watchdog allows
+	 * 
+	 * @param report Details about the stuck loop
+	 */
+	public void loopHung(LoopHangReport report);
+
+	/**
+	 * Called from the thread running the loop when one of its phases throws. The
+	 * exception still stops the rest of the tick after every listener is called
+	 * 
+	 * @param loop Loop that threw
+	 * @param phase Phase that threw, "read", "onLoop" or "write"
+	 * @param thrown What was thrown
+	 */
+	public default void loopThrew(Loop loop, String phase, Throwable thrown) {
+	}
+}
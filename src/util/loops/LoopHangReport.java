@@ -0,0 +1,90 @@
+package util.loops;
+
+/**
+ * Details about a loop that the Looper's watchdog found stuck in one of its phases
+ */
+public class LoopHangReport {
+	
+	private final Loop loop;
+	private final String phase;
+	private final String threadName;
+	private final StackTraceElement[] stackTrace;
+	private final double stuckTime;
+	private final boolean quarantined;
+
+	/**
+	 * @param loop Loop that was stuck
+	 * @param phase Name of the phase the loop was stuck in, such as "onLoop"
+	 * @param threadName Name of the thread running the loop
+	 * @param stackTrace Stack of the thread when the hang was found
+	 * @param stuckTime Time in seconds the loop had been running when the hang was found
+	 * @param quarantined True if the loop was quarantined and won't be run again
+	 */
+	LoopHangReport(Loop loop, String phase, String threadName, StackTraceElement[] stackTrace, 
+			double stuckTime, boolean quarantined) {
+		this.loop = loop;
+		this.phase = phase;
+		this.threadName = threadName;
+		this.stackTrace = stackTrace;
+		this.stuckTime = stuckTime;
+		this.quarantined = quarantined;
+	}
+
+	/**
+	 * @return the loop that was stuck
+	 */
+	public Loop getLoop() {
+		return loop;
+	}
+
+	/**
+	 * @return name of the phase the loop was stuck in, "read", "onLoop" or "write"
+	 */
+	public String getPhase() {
+		return phase;
+	}
+
+	/**
+	 * @return name of the thread that was running the loop
+	 */
+	public String getThreadName() {
+		return threadName;
+	}
+
+	/**
+	 * @return stack of the thread running the loop when the hang was found
+	 */
+	public StackTraceElement[] getStackTrace() {
+		return stackTrace;
+	}
+
+	/**
+	 * @return time in seconds the loop had been running when the hang was found
+	 */
+	public double getStuckTime() {
+		return stuckTime;
+	}
+
+	/**
+	 * @return true if the loop was quarantined and won't be run again until restored
+	 */
+	public boolean isQuarantined() {
+		return quarantined;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append("Loop ").append(loop).append(" stuck in ").append(phase)
+			.append(" for ").append(String.format("%.3f", stuckTime)).append("s on ").append(threadName);
+		
+		if (quarantined) {
+			text.append(", quarantined");
+		}
+		
+		for (StackTraceElement element : stackTrace) {
+			text.append("\n\tat ").append(element);
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,163 @@
+package util.loops;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Snapshot of the registered loops, along with the order to run them in. Loops are
+ * split into levels, where every loop in a level only depends on loops in earlier
+ * levels, so all of the loops in one level can be run at the same time.
+ * 
+ * A loop depends on an earlier registered loop if one of them writes something the 
+ * other reads or writes, or if either of them doesn't declare its reads and writes.
+ * Within a level, loops are ordered from highest to lowest priority. Priority never
+ * moves a loop to another level, so loops that don't declare their reads and writes
+ * each get a level of their own and run in the order they were registered.
+ * This is never changed once it is created, the Looper builds a new one whenever
+ * a loop is registered or removed.
+ */
+class LoopSchedule {
+	
+	/**
+	 * Schedule with no loops
+	 */
+    static final LoopSchedule EMPTY = new LoopSchedule(new LoopEntry[0]);
+	
+	/**
+	 * All loops in the order they were registered
+	 */
+    final LoopEntry[] entries;
+    
+    /**
+     * Loops grouped into levels that are run one after another
+     */
+    final LoopEntry[][] levels;
+    
+    /**
+     * Space for the tick to gather the loops in each level that are due, the same
+     * size as each level. Only used by the thread running the tick
+     */
+    final LoopEntry[][] due;
+    
+    /**
+     * Number of loops in each level of due that are due on the current tick
+     */
+    final int[] dueCount;
+    
+    /**
+     * Orders loops from highest to lowest priority
+     */
+    private static final Comparator<LoopEntry> BY_PRIORITY = new Comparator<LoopEntry>() {
+        @Override
+        public int compare(LoopEntry a, LoopEntry b) {
+            return Integer.compare(b.priority, a.priority);
+        }
+    };
+
+    /**
+     * Builds the dependency levels for the given loops
+     * 
+     * @param entries Loops in the order they were registered
+     */
+    LoopSchedule(LoopEntry[] entries) {
+        this.entries = entries;
+        
+        int[] level = new int[entries.length];
+        int levelCount = 0;
+        
+        for (int i = 0; i < entries.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (level[j] >= level[i] && conflicts(entries[j].loop, entries[i].loop)) {
+                    level[i] = level[j] + 1;
+                }
+            }
+            levelCount = Math.max(levelCount, level[i] + 1);
+        }
+        
+        List<List<LoopEntry>> grouped = new ArrayList<>();
+        for (int i = 0; i < levelCount; i++) {
+            grouped.add(new ArrayList<LoopEntry>());
+        }
+        for (int i = 0; i < entries.length; i++) {
+            grouped.get(level[i]).add(entries[i]);
+        }
+        
+        levels = new LoopEntry[levelCount][];
+        due = new LoopEntry[levelCount][];
+        dueCount = new int[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            levels[i] = grouped.get(i).toArray(new LoopEntry[0]);
+            // Stable sort, so loops with the same priority keep their registration order
+            Arrays.sort(levels[i], BY_PRIORITY);
+            due[i] = new LoopEntry[levels[i].length];
+        }
+    }
+
+    /**
+     * Creates a new schedule with a loop added to the end
+     * 
+     * @param entry Loop to add
+     * @return new schedule
+     */
+    LoopSchedule with(LoopEntry entry) {
+        LoopEntry[] next = Arrays.copyOf(entries, entries.length + 1);
+        next[entries.length] = entry;
+        return new LoopSchedule(next);
+    }
+
+    /**
+     * Creates a new schedule without the given loop
+     * 
+     * @param loop Loop to remove
+     * @return new schedule, or this schedule if the loop was not in it
+     */
+    LoopSchedule without(Loop loop) {
+        List<LoopEntry> next = new ArrayList<>();
+        for (LoopEntry entry : entries) {
+            if (entry.loop != loop) {
+                next.add(entry);
+            }
+        }
+        
+        if (next.size() == entries.length) {
+            return this;
+        }
+        return new LoopSchedule(next.toArray(new LoopEntry[0]));
+    }
+
+    /**
+     * Checks if two loops have to be run one after the other
+     * 
+     * @return true if the loops can't be run at the same time
+     */
+    private static boolean conflicts(Loop first, Loop second) {
+        String[] firstReads = first.getReads();
+        String[] firstWrites = first.getWrites();
+        String[] secondReads = second.getReads();
+        String[] secondWrites = second.getWrites();
+        
+        if (firstReads == null || firstWrites == null || secondReads == null || secondWrites == null) {
+            return true;
+        }
+        
+        return overlaps(firstWrites, secondReads) || overlaps(firstWrites, secondWrites) 
+                || overlaps(firstReads, secondWrites);
+    }
+
+    /**
+     * @return true if the two arrays have any name in common
+     */
+    private static boolean overlaps(String[] a, String[] b) {
+        Set<String> names = new HashSet<>(Arrays.asList(a));
+        for (String name : b) {
+            if (names.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,28 @@
+package util.loops;
+
+/**
+ * Interface for the clock and timer that drives a Looper. The looper asks the
+ * scheduler to call its tick periodically and reads the time from it, so the same
+ * loops can be run off the robot's hardware timer or off a simulated clock.
+ */
+public interface LoopScheduler {
+	
+	/**
+	 * Starts calling the tick periodically
+	 * 
+	 * @param tick Runnable to call each period
+	 * @param period Time in seconds between each call
+	 */
+	public void startPeriodic(Runnable tick, double period);
+	
+	/**
+	 * Stops calling the tick. A tick that is already running may still finish
+	 * after this returns
+	 */
+	public void stop();
+	
+	/**
+	 * @return the current time in seconds
+	 */
+	public double getTimestamp();
+}
@@ -0,0 +1,123 @@
+package util.loops;
+
+/**
+ * Timing information for a single loop registered with the Looper. Holds a
+ * histogram of how long each run of the loop's read(), onLoop() and write() took 
+ * together, and how many runs took
+ * longer than the loop's period.
+ */
+public class LoopStats {
+	
+	private final Loop loop;
+	
+	/**
+	 * Histogram of the time it took each run of the loop to finish
+	 */
+	private final TimingHistogram executionTime;
+	
+	/**
+	 * Period of the loop in nanoseconds, any run longer than this is an overrun
+	 */
+	private final long periodNanos;
+	
+	private long overrunCount = 0;
+	
+	/**
+	 * Expected run time of the loop in nanoseconds, 0 if it has no budget
+	 */
+	private final long budgetNanos;
+	
+	private long overBudgetCount = 0;
+	private long shedCount = 0;
+
+	/**
+	 * Creates empty stats for a loop
+	 * 
+	 * @param loop Loop that the stats are kept for
+	 * @param period Time in seconds between each run of the loop
+	 * @param budget Time in seconds the loop is expected to take, 0 for no budget
+	 * @param bucketWidth Width of each histogram bucket in seconds
+	 * @param bucketCount Number of histogram buckets
+	 */
+	LoopStats(Loop loop, double period, double budget, double bucketWidth, int bucketCount) {
+		this.loop = loop;
+		periodNanos = (long) (period * 1e9);
+		budgetNanos = (long) (budget * 1e9);
+		executionTime = new TimingHistogram(bucketWidth, bucketCount);
+	}
+
+	/**
+	 * Records a single run of the loop
+	 * 
+	 * @param nanos Time it took the loop to run in nanoseconds
+	 */
+	void record(long nanos) {
+		executionTime.record(nanos);
+		
+		if (nanos > periodNanos) {
+			overrunCount++;
+		}
+		
+		if (budgetNanos > 0 && nanos > budgetNanos) {
+			overBudgetCount++;
+		}
+	}
+
+	/**
+	 * Records that the loop was put off because the tick was running late
+	 */
+	void recordShed() {
+		shedCount++;
+	}
+
+	/**
+	 * @return the loop that these stats are for
+	 */
+	public Loop getLoop() {
+		return loop;
+	}
+
+	/**
+	 * @return histogram of execution times for the loop
+	 */
+	public TimingHistogram getExecutionTime() {
+		return executionTime;
+	}
+
+	/**
+	 * @return number of runs that took longer than the loop's period
+	 */
+	public long getOverrunCount() {
+		return overrunCount;
+	}
+
+	/**
+	 * @return number of runs that took longer than the loop's budget
+	 */
+	public long getOverBudgetCount() {
+		return overBudgetCount;
+	}
+
+	/**
+	 * @return number of times the loop was put off because the tick was running late
+	 */
+	public long getShedCount() {
+		return shedCount;
+	}
+
+	/**
+	 * Clears all recorded values
+	 */
+	public void reset() {
+		executionTime.reset();
+		overrunCount = 0;
+		overBudgetCount = 0;
+		shedCount = 0;
+	}
+
+	@Override
+	public String toString() {
+		return loop + ": " + executionTime + " overruns=" + overrunCount 
+				+ " overBudget=" + overBudgetCount + " shed=" + shedCount;
+	}
+}
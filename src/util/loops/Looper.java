@@ -2,43 +2,184 @@ package util.loops;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicLong;
 
 import config.LoopConfigDefault;
-import edu.wpi.first.wpilibj.Notifier;
-import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.DriverStation;
 
 /**
- * This code runs all of the robot's loops. Loop objects are stored in a List
- * object. They should be started when the robot powers up and stopped when 
+ * This code runs all of the robot's loops. Loop objects are stored in an array
+ * snapshot. They should be started when the robot powers up and stopped when 
  * the match ends in the robot init methods in Robot.java
  * 
+ * The looper ticks at the rate given by loopDt in the config. Each loop can be
+ * registered with its own period, which is rounded to a whole number of ticks,
+ * and a phase offset so that slower loops can be spread across different ticks
+ * instead of all running on the same one.
+ * 
+ * The registered loops are kept in an array that is never changed once it is
+ * published. Registering or removing a loop copies the array and swaps in the new
+ * one, so the tick never takes a lock and can't be held up by another thread
+ * adding or removing loops, even while the looper is running.
+ * 
+ * Loops can declare what they read and write with getReads() and getWrites(). Loops
+ * that don't share anything are run at the same time on a pool of loopThreads threads,
+ * and the tick waits for all of them before it finishes. Loops that share something,
+ * or that don't declare anything, are run in the order they were registered.
+ * 
+ * Each loop has a priority and an optional time budget. Once a tick has taken more
+ * than shedThreshold of loopDt, or a low priority loop's budget would push it past
+ * loopDt, loops below shedPriority are put off so that the critical loops stay on time.
+ * The number of loops put off is kept in each loop's stats and in getShedCount().
+ * Priority also orders the loops that run at the same time, highest first, but
+ * never changes the order of loops that have to run one after the other.
+ * 
+ * At the start of every tick, before any loop runs, every sensor added to the 
+ * SensorSnapshot from getSensors() is read once. Loops should read sensors from the
+ * snapshot so that each one is only read from the hardware once per tick. The
+ * snapshot counts as stale once it is more than two loopDt old, so classes that 
+ * register sensors read the hardware directly when called while the looper is stopped.
+ * 
+ * Each tick is run in three phases. First read() is run for every loop that is due,
+ * then onLoop(), split across threads as described above, and last write() for every
+ * loop that ran. Doing all outputs in the write phase sends every motor command 
+ * out together at the end of the tick. The time from the end of the read phase, once
+ * every input has been read, to the end of the write phase is kept in 
+ * getInputToOutput(), and the length of the write phase in getWriteSpread().
+ * 
+ * The time each loop takes to run, as well as the length and jitter of each tick,
+ * are recorded in fixed size histograms which can be read with getStats(),
+ * getTickTime() and getTickJitter().
+ * 
+ * A watchdog thread checks each loop while it runs. A loop that spends longer than
+ * watchdogMultiple times loopDt in one phase is reported along with its stack trace,
+ * to System.err, getHangReports() and any LoopFaultListener. With watchdogQuarantine
+ * on, the loop is also taken out of the schedule and the worker running it is 
+ * replaced, so the rest of the loops keep their timing. A hang in read() or write(),
+ * which run on the tick's own thread, is reported and quarantined but still holds up
+ * that tick. stop() and remove() only wait that long for a stuck tick before going
+ * on to onStop(), so they can't be held up by it.
+ * 
+ * A loop that throws a RuntimeException from any phase is reported to the driver 
+ * station and to every LoopFaultListener, on the thread that ran it, and skips the 
+ * rest of its phases for that tick. Every other loop still runs, so the outputs of
+ * the loops that did compute are still written. An Error is reported the same way
+ * and then ends the tick.
+ * 
+ * Ticks are started by a LoopScheduler, which also supplies the time. On the robot 
+ * this is a NotifierScheduler, but a SimulatedScheduler can be passed in instead to
+ * run the same loops off of the robot faster than real time.
+ * 
  * Inspired by 254 The Cheesy Poofs
  * 
  * @author Trevor
  */
 public class Looper {
 	
+	/**
+	 * Time in nanoseconds stop() and remove() park between checks for the tick to finish
+	 */
+    private static final long AWAIT_TICK_NANOS = 100000;
+	
 	/**
 	 * Tells whether the loops are running or not
 	 */
-    private boolean running;
+    private volatile boolean running;
+    
+    /**
+     * Set by the tick while it is running loops, used so that stop() and remove() 
+     * can wait for the current tick to finish before calling onStop()
+     */
+    private volatile boolean tickInProgress = false;
+    
+    /**
+     * Thread that is running the current tick
+     */
+    private volatile Thread tickThread = null;
     
     private final LoopConfigDefault config;
     
     /**
-     * Notifier which is used to schedule the loops with a given dt between each loop
+     * Scheduler which is used to run the loops with a given dt between each loop
+     */
+    private final LoopScheduler scheduler;
+    
+    /**
+     * Snapshot containing all of the loops to run. The snapshot is never modified
+     * after it is assigned, changes are made by swapping in a new copy
+     */
+    private volatile LoopSchedule schedule = LoopSchedule.EMPTY;
+    
+    /**
+     * Runs each level of loops, split across loopThreads threads
+     */
+    private final LoopExecutor executor;
+    
+    /**
+     * Sensor values that are read at the start of each tick
+     */
+    private final SensorSnapshot sensors = new SensorSnapshot();
+    
+    /**
+     * Number of ticks that have run since the looper was started
      */
-    private final Notifier notifier;
+    private long tick = 0;
     
     /**
-     * List containing all of the loops to run
+     * Histogram of the time it takes to run all loops in a tick
      */
-    private final List<Loop> loops;
+    private final TimingHistogram tickTime;
     
     /**
-     * Object used to make sure that threads are synchronized
+     * Histogram of how far the time between the start of each tick is from loopDt
      */
-    private final Object taskRunningLock = new Object();
+    private final TimingHistogram tickJitter;
+    
+    /**
+     * Histogram of the time from the end of each tick's read phase to the end of its
+     * write phase
+     */
+    private final TimingHistogram inputToOutput;
+    
+    /**
+     * Histogram of the length of the write phase of each tick
+     */
+    private final TimingHistogram writeSpread;
+    
+    /**
+     * Number of ticks that took longer than loopDt to run
+     */
+    private final AtomicLong tickOverruns = new AtomicLong();
+    
+    /**
+     * Number of times a loop was put off because the tick was running late
+     */
+    private final AtomicLong shedCount = new AtomicLong();
+    
+    /**
+     * Value of System.nanoTime() at the start of the current tick
+     */
+    private long tickStart = 0;
+    private final long shedThresholdNanos;
+    
+    private final long loopDtNanos;
+    
+    /**
+     * Time in nanoseconds a loop can spend in one phase before it is reported as hung,
+     * 0 if the watchdog is off
+     */
+    private final long watchdogNanos;
+    
+    /**
+     * Thread checking for hung loops, null if the looper is not running
+     */
+    private volatile Thread watchdog = null;
+    
+    private final List<LoopHangReport> hangReports = new CopyOnWriteArrayList<>();
+    private final List<LoopFaultListener> faultListeners = new CopyOnWriteArrayList<>();
+    
     private double timestamp = 0;
     private double dt = 0;
     
@@ -48,28 +189,308 @@ public class Looper {
     private final Runnable runnable = new Runnable() {
         @Override
         public void run() {
-            synchronized (taskRunningLock) {
+            tickThread = Thread.currentThread();
+            tickInProgress = true;
+            
+            // running has to be checked after tickInProgress is set so stop() either 
+            // sees this tick in progress or this tick sees that the looper stopped
+            try {
                 if (running) {
-                    double now = Timer.getFPGATimestamp();
-                    for (Loop loop : loops) {
-                        loop.onLoop();
-                    }
-                    dt = now - timestamp;
-                    timestamp = now;
+                    runTick();
                 }
+            } finally {
+                tickInProgress = false;
             }
         }
     };
 
     /**
-     * Initializes looper and gets ready to run
+     * Initializes looper and gets ready to run off of the robot's Notifier
      * @param config Config object which contains values to be pulled in
      */
     public Looper(LoopConfigDefault config) {
+        this(config, new NotifierScheduler());
+    }
+
+    /**
+     * Initializes looper and gets ready to run
+     * @param config Config object which contains values to be pulled in
+     * @param scheduler Scheduler used to run each tick and get the time
+     */
+    public Looper(LoopConfigDefault config, LoopScheduler scheduler) {
     	this.config = config;
-        notifier = new Notifier(runnable);
+        this.scheduler = scheduler;
         running = false;
-        loops = new ArrayList<>();
+        loopDtNanos = (long) (config.loopDt * 1e9);
+        shedThresholdNanos = (long) (config.loopDt * config.shedThreshold * 1e9);
+        watchdogNanos = (long) (config.loopDt * config.watchdogMultiple * 1e9);
+        sensors.setMaxAge(scheduler::getTimestamp, 2 * config.loopDt);
+        tickTime = new TimingHistogram(config.statsBucketWidth, config.statsBucketCount);
+        tickJitter = new TimingHistogram(config.statsBucketWidth, config.statsBucketCount);
+        inputToOutput = new TimingHistogram(config.statsBucketWidth, config.statsBucketCount);
+        writeSpread = new TimingHistogram(config.statsBucketWidth, config.statsBucketCount);
+        executor = new LoopExecutor(new LoopExecutor.Task() {
+            @Override
+            public void run(LoopEntry entry) {
+                runLoop(entry);
+            }
+        }, config.loopThreads, config.watchdogQuarantine, "Looper");
+    }
+
+    /**
+     * Runs every loop that is due on the current tick
+     */
+    private void runTick() {
+        double now = scheduler.getTimestamp();
+        tickStart = System.nanoTime();
+        dt = now - timestamp;
+        timestamp = now;
+        
+        if (tick > 0) {
+            tickJitter.record((long) (Math.abs(dt - config.loopDt) * 1e9));
+        }
+        
+        // Read the snapshot once so the whole tick sees the same set of loops
+        LoopSchedule snapshot = schedule;
+        int levels = snapshot.levels.length;
+        sensors.sample(now);
+        
+        // Read phase
+        for (int level = 0; level < levels; level++) {
+            LoopEntry[] due = snapshot.due[level];
+            int count = 0;
+            
+            for (LoopEntry entry : snapshot.levels[level]) {
+                if (entry.shouldRun(tick)) {
+                    long start = System.nanoTime();
+                    entry.ranThisTick = false;
+                    entry.enter("read", start);
+                    try {
+                        entry.loop.read();
+                    } catch (RuntimeException e) {
+                        // The loop sits out the rest of the tick, the others carry on
+                        reportThrow(entry, "read", e);
+                        continue;
+                    } catch (Error e) {
+                        reportThrow(entry, "read", e);
+                        throw e;
+                    } finally {
+                        entry.exit();
+                    }
+                    entry.tickNanos = System.nanoTime() - start;
+                    due[count++] = entry;
+                }
+            }
+            snapshot.dueCount[level] = count;
+        }
+        
+        long readEnd = System.nanoTime();
+        
+        // Compute phase
+        for (int level = 0; level < levels; level++) {
+            executor.run(snapshot.due[level], snapshot.dueCount[level]);
+        }
+        
+        // Write phase
+        long writeStart = System.nanoTime();
+        for (int level = 0; level < levels; level++) {
+            LoopEntry[] due = snapshot.due[level];
+            
+            for (int i = 0; i < snapshot.dueCount[level]; i++) {
+                LoopEntry entry = due[i];
+                if (entry.ranThisTick && !entry.quarantined) {
+                    long start = System.nanoTime();
+                    entry.enter("write", start);
+                    try {
+                        entry.loop.write();
+                    } catch (RuntimeException e) {
+                        reportThrow(entry, "write", e);
+                        continue;
+                    } catch (Error e) {
+                        reportThrow(entry, "write", e);
+                        throw e;
+                    } finally {
+                        entry.exit();
+                    }
+                    entry.tickNanos += System.nanoTime() - start;
+                    entry.stats.record(entry.tickNanos);
+                }
+            }
+        }
+        
+        long tickEnd = System.nanoTime();
+        writeSpread.record(tickEnd - writeStart);
+        inputToOutput.record(tickEnd - readEnd);
+        
+        long tickLength = tickEnd - tickStart;
+        tickTime.record(tickLength);
+        if (tickLength > loopDtNanos) {
+            tickOverruns.incrementAndGet();
+        }
+        tick++;
+    }
+
+    /**
+     * Runs the compute phase of a single loop and adds how long it took to the loop's
+     * time for the tick
+     * @param entry Loop to run
+     */
+    private void runLoop(LoopEntry entry) {
+        long loopStart = System.nanoTime();
+        
+        if (entry.priority < config.shedPriority && isLate(entry, loopStart)) {
+            entry.postponed = config.shedPostpone;
+            entry.stats.recordShed();
+            shedCount.incrementAndGet();
+            return;
+        }
+        
+        entry.postponed = false;
+        entry.enter("onLoop", loopStart);
+        try {
+            entry.loop.onLoop();
+        } catch (RuntimeException e) {
+            // Left as not run, so its write() is skipped this tick
+            reportThrow(entry, "onLoop", e);
+            return;
+        } catch (Error e) {
+            reportThrow(entry, "onLoop", e);
+            throw e;
+        } finally {
+            entry.exit();
+        }
+        entry.ranThisTick = true;
+        entry.tickNanos += System.nanoTime() - loopStart;
+    }
+
+    /**
+     * Reports a loop that threw to the driver station and every fault listener
+     * @param entry Loop that threw
+     * @param phase Phase that was running
+     * @param thrown What was thrown
+     */
+    private void reportThrow(LoopEntry entry, String phase, Throwable thrown) {
+        DriverStation.reportError("Loop " + entry.loop + " threw from " + phase + ": " + thrown, true);
+        for (LoopFaultListener listener : faultListeners) {
+            try {
+                listener.loopThrew(entry.loop, phase, thrown);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Checks if the tick is too far behind to run a low priority loop
+     * @param entry Loop that is about to run
+     * @param now Current value of System.nanoTime()
+     * @return true if the loop should be put off
+     */
+    private boolean isLate(LoopEntry entry, long now) {
+        long elapsed = now - tickStart;
+        return elapsed > shedThresholdNanos || (entry.budgetNanos > 0 && elapsed + entry.budgetNanos > loopDtNanos);
+    }
+
+    /**
+     * Checks every loop that is running a phase, and reports any that have been 
+     * running for longer than the watchdog allows
+     */
+    private void checkForHangs() {
+        long now = System.nanoTime();
+        
+        for (LoopEntry entry : schedule.entries) {
+            long since = entry.runningSince;
+            
+            if (since != 0 && now - since > watchdogNanos && !entry.hangReported) {
+                reportHang(entry, since, now);
+            }
+        }
+    }
+
+    /**
+     * Reports a loop that is stuck in a phase, quarantining it if the config says to
+     * @param entry Loop that is stuck
+     * @param since Value of System.nanoTime() when it started the phase
+     * @param now Current value of System.nanoTime()
+     */
+    private void reportHang(LoopEntry entry, long since, long now) {
+        entry.hangReported = true;
+        Thread thread = entry.runningThread;
+        StackTraceElement[] stackTrace = thread.getStackTrace();
+        
+        if (config.watchdogQuarantine) {
+            entry.quarantined = true;
+            executor.abandon(thread);
+        }
+        
+        LoopHangReport report = new LoopHangReport(entry.loop, entry.runningPhase, thread.getName(),
+                stackTrace, (now - since) / 1e9, entry.quarantined);
+        hangReports.add(report);
+        System.err.println(report);
+        
+        for (LoopFaultListener listener : faultListeners) {
+            // A listener that throws must not stop the watchdog
+            try {
+                listener.loopHung(report);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Starts the watchdog thread, if the watchdog is turned on
+     */
+    private void startWatchdog() {
+        if (watchdogNanos <= 0) {
+            return;
+        }
+        
+        watchdog = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // Exit once stopped, or if a newer watchdog has been started
+                while (running && watchdog == Thread.currentThread()) {
+                    LockSupport.parkNanos(this, loopDtNanos);
+                    checkForHangs();
+                }
+            }
+        }, "Looper watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    /**
+     * Waits for the tick that is currently running, if any, to finish. Returns right 
+     * away when called from inside a loop so a loop can remove itself. Gives up once
+     * the tick has run past the watchdog time, or 10 ticks if there is no watchdog,
+     * reporting the loops still running, so a loop stuck on the tick's own thread 
+     * can't hold up stop() or remove() forever
+     * @param entries Loops to report if the tick doesn't finish
+     */
+    private void awaitTick(LoopEntry[] entries) {
+        Thread current = Thread.currentThread();
+        if (current == tickThread || executor.isWorker(current)) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        long limit = Math.max(watchdogNanos, 10 * loopDtNanos);
+        while (tickInProgress) {
+            long waited = System.nanoTime() - start;
+            if (waited > limit) {
+                System.err.println("Gave up waiting for the tick to finish after " + waited / 1e9 + "s");
+                long now = System.nanoTime();
+                for (LoopEntry entry : entries) {
+                    long since = entry.runningSince;
+                    if (since != 0 && !entry.hangReported) {
+                        reportHang(entry, since, now);
+                    }
+                }
+                return;
+            }
+            LockSupport.parkNanos(this, AWAIT_TICK_NANOS);
+        }
     }
 
     /**
@@ -77,9 +498,93 @@ public class Looper {
      * @param loop Loop to be added
      */
     public synchronized void register(Loop loop) {
-        synchronized (taskRunningLock) {
-            loops.add(loop);
+        register(loop, config.loopDt, 0);
+    }
+
+    /**
+     * Adds a given loop to be run at its own period. The phase is picked automatically
+     * so that the loop lands on the ticks that have the fewest other loops running
+     * @param loop Loop to be added
+     * @param period Time in seconds between each run of the loop, rounded to a multiple of loopDt
+     */
+    public synchronized void register(Loop loop, double period) {
+        int divisor = toTicks(period);
+        int[] loopsPerTick = new int[divisor];
+
+        for (LoopEntry entry : schedule.entries) {
+            // Count every tick in this loop's period that the entry runs on
+            for (int i = 0; i < divisor; i++) {
+                if (entry.isDue(i)) {
+                    loopsPerTick[i]++;
+                }
+            }
+        }
+
+        int offset = 0;
+        for (int i = 1; i < divisor; i++) {
+            if (loopsPerTick[i] < loopsPerTick[offset]) {
+                offset = i;
+            }
+        }
+        register(loop, divisor, offset);
+    }
+
+    /**
+     * Adds a given loop to be run at its own period and phase offset
+     * @param loop Loop to be added
+     * @param period Time in seconds between each run of the loop, rounded to a multiple of loopDt
+     * @param phase Time in seconds after the start of each period that the loop runs, 
+     * rounded to a multiple of loopDt
+     */
+    public synchronized void register(Loop loop, double period, double phase) {
+        int divisor = toTicks(period);
+        register(loop, divisor, Math.floorMod(Math.round(phase / config.loopDt), divisor));
+    }
+
+    /**
+     * Publishes a new snapshot with the loop added. If the looper is already running
+     * the loop is started before it is added so onStart() always runs before onLoop()
+     */
+    private void register(Loop loop, int divisor, long offset) {
+        LoopStats stats = new LoopStats(loop, divisor * config.loopDt, loop.getBudget(),
+                config.statsBucketWidth, config.statsBucketCount);
+        
+        if (running) {
+            loop.onStart();
+        }
+        
+        schedule = schedule.with(new LoopEntry(loop, divisor, (int) offset, stats));
+    }
+
+    /**
+     * Removes a loop so that it is no longer run. If the looper is running, this waits
+     * for the current tick to finish and then runs onStop() for the loop
+     * @param loop Loop to be removed
+     * @return true if the loop was registered
+     */
+    public synchronized boolean remove(Loop loop) {
+        LoopSchedule current = schedule;
+        LoopSchedule next = current.without(loop);
+        
+        if (next == current) {
+            return false;
         }
+        schedule = next;
+        
+        if (running) {
+            awaitTick(current.entries);
+            loop.onStop();
+        }
+        return true;
+    }
+
+    /**
+     * Converts a period in seconds to a whole number of ticks, running at least every tick
+     * @param period Period in seconds
+     * @return Number of ticks between each run
+     */
+    private int toTicks(double period) {
+        return (int) Math.max(1, Math.round(period / config.loopDt));
     }
 
     /**
@@ -88,14 +593,15 @@ public class Looper {
     public synchronized void start() {
         if (!running) {
             System.out.println("Starting loops");
-            synchronized (taskRunningLock) {
-                timestamp = Timer.getFPGATimestamp();
-                for (Loop loop : loops) {
-                    loop.onStart();
-                }
-                running = true;
+            timestamp = scheduler.getTimestamp();
+            tick = 0;
+            for (LoopEntry entry : schedule.entries) {
+                entry.postponed = false;
+                entry.loop.onStart();
             }
-            notifier.startPeriodic(config.loopDt);
+            running = true;
+            startWatchdog();
+            scheduler.startPeriodic(runnable, config.loopDt);
         }
     }
 
@@ -105,14 +611,186 @@ public class Looper {
     public synchronized void stop() {
         if (running) {
             System.out.println("Stopping loops");
-            notifier.stop();
-            synchronized (taskRunningLock) {
-                running = false;
-                for (Loop loop : loops) {
-                    System.out.println("Stopping " + loop);
-                    loop.onStop();
-                }
+            scheduler.stop();
+            running = false;
+            if (watchdog != null) {
+                LockSupport.unpark(watchdog);
+                watchdog = null;
+            }
+            awaitTick(schedule.entries);
+            for (LoopEntry entry : schedule.entries) {
+                System.out.println("Stopping " + entry.loop);
+                entry.loop.onStop();
+            }
+        }
+    }
+
+    /**
+     * Gets the timing information for a registered loop
+     * @param loop Loop to get the stats for
+     * @return stats for the loop, or null if the loop is not registered
+     */
+    public LoopStats getStats(Loop loop) {
+        for (LoopEntry entry : schedule.entries) {
+            if (entry.loop == loop) {
+                return entry.stats;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the timing information for every registered loop
+     * @return list of stats in the order the loops were registered
+     */
+    public List<LoopStats> getAllStats() {
+        List<LoopStats> stats = new ArrayList<>();
+        for (LoopEntry entry : schedule.entries) {
+            stats.add(entry.stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Adds a listener to be told about problems found with the loops
+     * @param listener Listener to add
+     */
+    public void addFaultListener(LoopFaultListener listener) {
+        faultListeners.add(listener);
+    }
+
+    /**
+     * @return every hang the watchdog has found, oldest first
+     */
+    public List<LoopHangReport> getHangReports() {
+        return new ArrayList<>(hangReports);
+    }
+
+    /**
+     * Checks if a loop has been quarantined by the watchdog
+     * @param loop Loop to check
+     * @return true if the loop is registered and quarantined
+     */
+    public boolean isQuarantined(Loop loop) {
+        for (LoopEntry entry : schedule.entries) {
+            if (entry.loop == loop) {
+                return entry.quarantined;
             }
         }
+        return false;
+    }
+
+    /**
+     * Lets a loop that was quarantined by the watchdog run again. This should only be 
+     * done once whatever the loop was stuck on has been fixed
+     * @param loop Loop to restore
+     */
+    public void restore(Loop loop) {
+        for (LoopEntry entry : schedule.entries) {
+            if (entry.loop == loop) {
+                entry.quarantined = false;
+            }
+        }
+    }
+
+    /**
+     * @return sensor values that are read once at the start of each tick
+     */
+    public SensorSnapshot getSensors() {
+        return sensors;
+    }
+
+    /**
+     * @return scheduler that starts each tick and supplies the time
+     */
+    public LoopScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return time in seconds at the start of the last tick, from the looper's scheduler
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return time in seconds between the start of the last two ticks
+     */
+    public double getDt() {
+        return dt;
+    }
+
+    /**
+     * @return histogram of the time it takes to run all loops in a tick
+     */
+    public TimingHistogram getTickTime() {
+        return tickTime;
+    }
+
+    /**
+     * @return histogram of how far the time between each tick is from loopDt
+     */
+    public TimingHistogram getTickJitter() {
+        return tickJitter;
+    }
+
+    /**
+     * @return histogram of the time from the end of each tick's read phase to the end 
+     * of its write phase
+     */
+    public TimingHistogram getInputToOutput() {
+        return inputToOutput;
+    }
+
+    /**
+     * @return histogram of the length of the write phase of each tick, which is the
+     * time between the first and last output being sent
+     */
+    public TimingHistogram getWriteSpread() {
+        return writeSpread;
+    }
+
+    /**
+     * @return number of ticks that took longer than loopDt to run
+     */
+    public long getTickOverruns() {
+        return tickOverruns.get();
+    }
+
+    /**
+     * @return number of times a loop was put off because a tick was running late
+     */
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
+    /**
+     * Clears the timing information for the looper and all loops. Values recorded 
+     * by a tick that is running at the same time may be kept
+     */
+    public void resetStats() {
+        tickTime.reset();
+        tickJitter.reset();
+        inputToOutput.reset();
+        writeSpread.reset();
+        tickOverruns.set(0);
+        shedCount.set(0);
+        for (LoopEntry entry : schedule.entries) {
+            entry.stats.reset();
+        }
+    }
+
+    /**
+     * Prints the timing information for the looper and all loops
+     */
+    public void printStats() {
+        System.out.println("Tick time: " + tickTime + " overruns=" + tickOverruns + " shed=" + shedCount);
+        System.out.println("Tick jitter: " + tickJitter);
+        System.out.println("Input to output: " + inputToOutput);
+        System.out.println("Write spread: " + writeSpread);
+        for (LoopStats stats : getAllStats()) {
+            System.out.println(stats);
+        }
     }
 }
@@ -0,0 +1,42 @@
+package util.loops;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Scheduler that runs the tick from a WPILib Notifier and reads the time from the
+ * FPGA. This is what the Looper uses on the robot unless told otherwise.
+ */
+public class NotifierScheduler implements LoopScheduler {
+	
+	/**
+	 * Notifier which is used to schedule the tick, created the first time it is started
+	 */
+	private Notifier notifier = null;
+	
+	/**
+	 * Tick that the current notifier was created for
+	 */
+	private Runnable tick = null;
+
+	@Override
+	public void startPeriodic(Runnable tick, double period) {
+		if (notifier == null || this.tick != tick) {
+			this.tick = tick;
+			notifier = new Notifier(tick);
+		}
+		notifier.startPeriodic(period);
+	}
+
+	@Override
+	public void stop() {
+		if (notifier != null) {
+			notifier.stop();
+		}
+	}
+
+	@Override
+	public double getTimestamp() {
+		return Timer.getFPGATimestamp();
+	}
+}
@@ -0,0 +1,205 @@
+package util.loops;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Scheduler that runs the tick on its own high priority thread with less jitter 
+ * than a Notifier. Each tick has an absolute deadline, a multiple of the period 
+ * from when the scheduler was started, so small delays never add up over time. The 
+ * thread parks until just before the deadline and then spins for the last little 
+ * bit, since waking from a park is only accurate to around a millisecond under load.
+ * 
+ * When a tick runs so long that the next deadline has already passed, the 
+ * MissedTickPolicy decides whether the missed ticks are skipped or run back to 
+ * back. How late each tick woke up is kept in a histogram. An exception thrown by
+ * the tick is reported and the next tick still runs.
+ * 
+ * The thread is given Thread.MAX_PRIORITY, which the JVM only passes on to the
+ * operating system when it is allowed to, so the improvement depends on the platform.
+ * Times are from System.nanoTime(), with 0 being when the scheduler was created.
+ */
+public class PrecisionScheduler implements LoopScheduler {
+	
+	/** 
+	 * What to do when the deadline for a tick has passed before the tick could start
+	 */
+	public enum MissedTickPolicy {
+		/**
+		 * Drop any ticks that were missed and wait for the next deadline that is 
+		 * still in the future
+		 */
+		SKIP,
+		
+		/**
+		 * Run every missed tick right away, one after another, until the ticks are
+		 * back on schedule
+		 */
+		CATCH_UP
+	}
+	
+	/**
+	 * Value of System.nanoTime() when the scheduler was created
+	 */
+	private final long epoch = System.nanoTime();
+	
+	/**
+	 * Time in nanoseconds before each deadline to stop parking and start spinning
+	 */
+	private final long spinNanos;
+	
+	private final MissedTickPolicy policy;
+	
+	/**
+	 * Histogram of how late each tick started compared to its deadline
+	 */
+	private final TimingHistogram wakeLateness = new TimingHistogram(0.00001, 500);
+	
+	private volatile long missedTicks = 0;
+	
+	/**
+	 * Thread running the current ticks, null if stopped. A thread stops as soon as it
+	 * sees it is no longer this one, so a restart can never leave two running
+	 */
+	private final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+	
+	/**
+	 * Last thread started, which may still be finishing a tick after being stopped. 
+	 * Only used while synchronized
+	 */
+	private Thread started = null;
+
+	/**
+	 * Creates a scheduler that spins for the last 0.5ms before each tick and skips 
+	 * any ticks that are missed
+	 */
+	public PrecisionScheduler() {
+		this(0.0005, MissedTickPolicy.SKIP);
+	}
+
+	/**
+	 * Creates a scheduler
+	 * 
+	 * @param spinTime Time in seconds before each deadline to start spinning. Longer 
+	 * times give less jitter but use more CPU
+	 * @param policy What to do with ticks that are missed
+	 */
+	public PrecisionScheduler(double spinTime, MissedTickPolicy policy) {
+		spinNanos = (long) (spinTime * 1e9);
+		this.policy = policy;
+	}
+
+	/**
+	 * Starts ticking, stopping any ticks already running first. Waits for a tick 
+	 * that is in progress on the old thread to finish, unless called from that tick
+	 */
+	@Override
+	public synchronized void startPeriodic(Runnable tick, double period) {
+		stop();
+		if (started != null && started != Thread.currentThread()) {
+			try {
+				started.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		final long periodNanos = (long) (period * 1e9);
+		Thread ticks = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runTicks(tick, periodNanos);
+			}
+		}, "PrecisionScheduler");
+		ticks.setDaemon(true);
+		ticks.setPriority(Thread.MAX_PRIORITY);
+		started = ticks;
+		thread.set(ticks);
+		ticks.start();
+	}
+
+	@Override
+	public void stop() {
+		Thread old = thread.getAndSet(null);
+		if (old != null) {
+			LockSupport.unpark(old);
+		}
+	}
+
+	@Override
+	public double getTimestamp() {
+		return (System.nanoTime() - epoch) / 1e9;
+	}
+
+	/**
+	 * Runs the tick at each deadline until the scheduler is stopped
+	 */
+	private void runTicks(Runnable tick, long periodNanos) {
+		Thread self = Thread.currentThread();
+		long deadline = System.nanoTime() + periodNanos;
+		
+		while (thread.get() == self) {
+			waitUntil(deadline, self);
+			if (thread.get() != self) {
+				break;
+			}
+			
+			long now = System.nanoTime();
+			wakeLateness.record(now - deadline);
+			try {
+				tick.run();
+			} catch (RuntimeException e) {
+				DriverStation.reportError("Error in scheduled tick: " + e, true);
+			} catch (Error e) {
+				// Can't carry on, so stop for good rather than look like it is running
+				thread.compareAndSet(self, null);
+				DriverStation.reportError("Scheduler stopped by error in tick: " + e, true);
+				throw e;
+			}
+			deadline += periodNanos;
+			
+			now = System.nanoTime();
+			if (now - deadline > 0) {
+				// Already missed at least one deadline
+				long missed = (now - deadline) / periodNanos + 1;
+				
+				if (policy == MissedTickPolicy.SKIP) {
+					missedTicks += missed;
+					deadline += missed * periodNanos;
+				}
+				// For CATCH_UP, the next deadline is in the past so it runs right away
+			}
+		}
+	}
+
+	/**
+	 * Parks for most of the time until the deadline, then spins until it is reached
+	 */
+	private void waitUntil(long deadline, Thread self) {
+		long remaining;
+		while (thread.get() == self && (remaining = deadline - System.nanoTime()) > spinNanos) {
+			LockSupport.parkNanos(this, remaining - spinNanos);
+		}
+		
+		while (thread.get() == self && deadline - System.nanoTime() > 0) {
+			// Spin for the last bit, parking isn't accurate enough here
+		}
+	}
+
+	/**
+	 * @return histogram of how late each tick started compared to its deadline
+	 */
+	public TimingHistogram getWakeLateness() {
+		return wakeLateness;
+	}
+
+	/**
+	 * @return number of ticks that were skipped because their deadline had passed,
+	 * always 0 with the CATCH_UP policy
+	 */
+	public long getMissedTicks() {
+		return missedTicks;
+	}
+}
@@ -0,0 +1,193 @@
+package util.loops;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Values read from the robot's sensors once at the start of each tick. Each sensor
+ * is added as a channel with a function that reads it, and the Looper calls sample()
+ * before running any loops. Loops then read the value of each channel from here
+ * instead of from the hardware, so every reading costs one call per tick no matter
+ * how many loops use it, and every loop sees the same values for the whole tick.
+ * 
+ * USAGE:
+ * <ol>
+ * <li>Call addChannel() for each sensor, such as a talon's position or the IMU's yaw,
+ * and keep the channel number that is returned</li>
+ * <li>In a loop, call get() with the channel number to get the value from this tick</li>
+ * </ol>
+ * 
+ * The values are only as new as the last tick. Code that runs outside the looper,
+ * or while it is stopped, should check isFresh() first and read the hardware itself
+ * when it returns false. isFresh() reads the timestamp, which is written last by 
+ * sample(), so the values read after it are at least as new as that timestamp.
+ */
+public class SensorSnapshot {
+	
+	/**
+	 * A single sensor value and the function used to read it
+	 */
+	private static class Channel {
+		final String name;
+		final DoubleSupplier source;
+		
+		/**
+		 * Value from the last sample, written by the looper's thread
+		 */
+		double value = 0;
+		
+		Channel(String name, DoubleSupplier source) {
+			this.name = name;
+			this.source = source;
+		}
+	}
+	
+	/**
+	 * All channels in the order they were added. The array is never modified after 
+	 * it is assigned, a new copy is made whenever a channel is added
+	 */
+	private volatile Channel[] channels = new Channel[0];
+	
+	/**
+	 * Time in seconds when the values were last sampled, NaN before the first sample.
+	 * Written after the values so that reading it first makes them visible
+	 */
+	private volatile double timestamp = Double.NaN;
+	
+	/**
+	 * Gives the current time in seconds, used to check the age of the sample
+	 */
+	private volatile DoubleSupplier clock = null;
+	
+	/**
+	 * Oldest a sample can be in seconds and still be fresh
+	 */
+	private volatile double maxAge = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Adds a sensor to be read each tick
+	 * 
+	 * @param name Name of the sensor, such as "leftPosition"
+	 * @param source Function that reads the sensor
+	 * @return channel number used to get the value
+	 */
+	public synchronized int addChannel(String name, DoubleSupplier source) {
+		Channel[] next = Arrays.copyOf(channels, channels.length + 1);
+		next[channels.length] = new Channel(name, source);
+		channels = next;
+		return channels.length - 1;
+	}
+
+	/**
+	 * Adds a sensor that gives a boolean to be read each tick. The value is stored
+	 * as 1 for true and 0 for false
+	 * 
+	 * @param name Name of the sensor, such as "limitSwitch"
+	 * @param source Function that reads the sensor
+	 * @return channel number used to get the value
+	 */
+	public int addChannel(String name, BooleanSupplier source) {
+		return addChannel(name, () -> source.getAsBoolean() ? 1.0 : 0.0);
+	}
+
+	/**
+	 * Sets how old a sample can get before isFresh() returns false. The Looper sets 
+	 * this to twice its loopDt using its scheduler's clock
+	 * 
+	 * @param clock Gives the current time in seconds, on the same clock as sample()
+	 * @param maxAge Oldest a sample can be in seconds and still be fresh
+	 */
+	public void setMaxAge(DoubleSupplier clock, double maxAge) {
+		this.clock = clock;
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Reads every sensor and stores its value. Called by the Looper at the start of
+	 * each tick before any loops run
+	 * 
+	 * @param timestamp Time in seconds of the tick
+	 */
+	public void sample(double timestamp) {
+		for (Channel channel : channels) {
+			channel.value = channel.source.getAsDouble();
+		}
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Checks if the last sample is new enough to use in place of reading the hardware.
+	 * The sample is stale before the first tick and once the looper stops or falls 
+	 * behind by more than the max age
+	 * 
+	 * @return true if values have been sampled within the max age
+	 */
+	public boolean isFresh() {
+		double sampled = timestamp;
+		if (Double.isNaN(sampled)) {
+			return false;
+		}
+		DoubleSupplier now = clock;
+		return now == null || now.getAsDouble() - sampled <= maxAge;
+	}
+
+	/**
+	 * Gets the value of a sensor from the last sample
+	 * 
+	 * @param channel Channel number returned by addChannel()
+	 * @return value of the sensor
+	 */
+	public double get(int channel) {
+		return channels[channel].value;
+	}
+
+	/**
+	 * Gets the value of a boolean sensor from the last sample
+	 * 
+	 * @param channel Channel number returned by addChannel()
+	 * @return value of the sensor
+	 */
+	public boolean getBoolean(int channel) {
+		return channels[channel].value != 0;
+	}
+
+	/**
+	 * @return time in seconds when the values were last sampled, or NaN if they 
+	 * never have been
+	 */
+	public double getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Finds the channel number for a sensor by its name
+	 * 
+	 * @param name Name the sensor was added with
+	 * @return channel number, or -1 if there is no sensor with that name
+	 */
+	public int getChannel(String name) {
+		Channel[] current = channels;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].name.equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param channel Channel number returned by addChannel()
+	 * @return name of the sensor
+	 */
+	public String getName(int channel) {
+		return channels[channel].name;
+	}
+
+	/**
+	 * @return number of channels
+	 */
+	public int size() {
+		return channels.length;
+	}
+}
@@ -0,0 +1,124 @@
+package util.loops;
+
+/**
+ * Scheduler that runs on a simulated clock instead of real time. Nothing runs on
+ * its own, the tick is only called when step() or run() is called, and the clock
+ * only moves forward by one period each step. This lets loops be run on a
+ * computer without any robot hardware, as fast as the CPU allows, which is useful 
+ * for replaying a match or benchmarking code off of the robot.
+ * 
+ * USAGE:
+ * <ol>
+ * <li>Create a SimulatedScheduler and pass it to the Looper constructor</li>
+ * <li>Register loops and call start() on the looper as usual</li>
+ * <li>Call run() with the amount of time to simulate, such as 150 for a full match</li>
+ * </ol>
+ */
+public class SimulatedScheduler implements LoopScheduler {
+	
+	private Runnable tick = null;
+	private double period = 0;
+	private boolean running = false;
+	
+	/**
+	 * Time when the scheduler was last started
+	 */
+	private double startTime = 0;
+	
+	/**
+	 * Number of ticks since the scheduler was last started
+	 */
+	private long ticks = 0;
+	
+	/**
+	 * Current simulated time in seconds
+	 */
+	private double time;
+
+	/**
+	 * Creates a scheduler with the clock starting at 0
+	 */
+	public SimulatedScheduler() {
+		this(0);
+	}
+
+	/**
+	 * Creates a scheduler with the clock starting at the given time
+	 * 
+	 * @param startTime Time in seconds to start the clock at
+	 */
+	public SimulatedScheduler(double startTime) {
+		time = startTime;
+	}
+
+	@Override
+	public synchronized void startPeriodic(Runnable tick, double period) {
+		this.tick = tick;
+		this.period = period;
+		startTime = time;
+		ticks = 0;
+		running = true;
+	}
+
+	@Override
+	public synchronized void stop() {
+		running = false;
+	}
+
+	@Override
+	public synchronized double getTimestamp() {
+		return time;
+	}
+
+	/**
+	 * Moves the clock forward by one period and runs the tick. Does nothing if the 
+	 * scheduler is not started
+	 * 
+	 * @return true if a tick was run
+	 */
+	public boolean step() {
+		Runnable toRun;
+		
+		synchronized (this) {
+			if (!running) {
+				return false;
+			}
+			ticks++;
+			// Computed from the tick count so that rounding errors don't build up
+			time = startTime + ticks * period;
+			toRun = tick;
+		}
+		
+		toRun.run();
+		return true;
+	}
+
+	/**
+	 * Runs ticks back to back until the given amount of simulated time has passed or
+	 * the scheduler is stopped
+	 * 
+	 * @param seconds Amount of simulated time to run for
+	 * @return number of ticks that were run
+	 */
+	public long run(double seconds) {
+		double endTime = getTimestamp() + seconds;
+		long count = 0;
+		
+		// Half a period of slack so rounding doesn't skip or add the last tick
+		while (getTimestamp() + period / 2 < endTime && step()) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Moves the clock forward without running any ticks, such as to simulate the 
+	 * time between two matches
+	 * 
+	 * @param seconds Amount of time to move the clock forward
+	 */
+	public synchronized void advance(double seconds) {
+		time += seconds;
+		startTime += seconds;
+	}
+}
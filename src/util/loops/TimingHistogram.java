@@ -0,0 +1,137 @@
+package util.loops;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of durations using a fixed number of equally sized buckets. All of 
+ * the memory is allocated when the histogram is created, so recording a value
+ * never allocates. Any duration longer than the last bucket is counted in the
+ * last bucket, and the true maximum is kept separately.
+ * 
+ * Values are recorded from the loop thread and may be read from any other thread,
+ * so anything read while the loops are running is only approximate.
+ */
+public class TimingHistogram {
+	
+	/**
+	 * Width of each bucket in nanoseconds
+	 */
+	private final long bucketWidth;
+	
+	/**
+	 * Number of values recorded in each bucket
+	 */
+	private final long[] counts;
+	
+	private long count = 0;
+	private long total = 0;
+	private long max = 0;
+
+	/**
+	 * Creates an empty histogram
+	 * 
+	 * @param bucketWidth Width of each bucket in seconds
+	 * @param bucketCount Number of buckets, the range covered is bucketWidth * bucketCount
+	 */
+	public TimingHistogram(double bucketWidth, int bucketCount) {
+		this.bucketWidth = Math.max(1, (long) (bucketWidth * 1e9));
+		counts = new long[Math.max(1, bucketCount)];
+	}
+
+	/**
+	 * Adds a duration to the histogram
+	 * 
+	 * @param nanos Duration in nanoseconds, negative durations are counted as 0
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		
+		long bucket = nanos / bucketWidth;
+		counts[(int) Math.min(bucket, counts.length - 1)]++;
+		count++;
+		total += nanos;
+		
+		if (nanos > max) {
+			max = nanos;
+		}
+	}
+
+	/**
+	 * Gets the duration that the given fraction of recorded values are at or below.
+	 * The result is the upper edge of the bucket that holds the percentile, so it is
+	 * only accurate to one bucket width
+	 * 
+	 * @param percentile Fraction of values from 0 to 1, such as 0.99 for the 99th percentile
+	 * @return duration in seconds, 0 if nothing has been recorded
+	 */
+	public double getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		
+		long target = (long) Math.ceil(percentile * count);
+		long seen = 0;
+		
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target && seen > 0) {
+				// Never report more than the largest value actually seen
+				return Math.min((i + 1) * bucketWidth, max) / 1e9;
+			}
+		}
+		return max / 1e9;
+	}
+
+	/**
+	 * @return median duration in seconds
+	 */
+	public double getP50() {
+		return getPercentile(0.5);
+	}
+
+	/**
+	 * @return 99th percentile duration in seconds
+	 */
+	public double getP99() {
+		return getPercentile(0.99);
+	}
+
+	/**
+	 * @return longest duration recorded in seconds
+	 */
+	public double getMax() {
+		return max / 1e9;
+	}
+
+	/**
+	 * @return average duration in seconds, 0 if nothing has been recorded
+	 */
+	public double getMean() {
+		return count == 0 ? 0 : (double) total / count / 1e9;
+	}
+
+	/**
+	 * @return number of values recorded
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Clears all recorded values
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("n=%d p50=%.3fms p99=%.3fms max=%.3fms", 
+				count, getP50() * 1000, getP99() * 1000, getMax() * 1000);
+	}
+}
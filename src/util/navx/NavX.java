@@ -1,6 +1,7 @@
 package util.navx;
 
 import edu.wpi.first.wpilibj.SerialPort;
+import util.loops.SensorSnapshot;
 
 /**
  * Controls the NavX sensor
@@ -9,6 +10,16 @@ import edu.wpi.first.wpilibj.SerialPort;
  */
 public class NavX extends IMUAdvanced
 {
+	/**
+	 * Sensor values read once each tick by the looper, null if registerSensors() 
+	 * has not been called and the yaw should be read directly
+	 */
+	private SensorSnapshot sensors = null;
+	
+	/**
+	 * Channel in the sensor snapshot for the yaw
+	 */
+	private int yawChannel;
 	
 	public NavX(int baudRate)
 	{
@@ -20,7 +31,7 @@ public class NavX extends IMUAdvanced
 	 */
 	public double getAngleDeg()
 	{
-		return super.getYaw();
+		return sensors != null && sensors.isFresh() ? sensors.get(yawChannel) : super.getYaw();
 	}
 	
 	/**
@@ -28,6 +39,19 @@ public class NavX extends IMUAdvanced
 	 */
 	public double getAngleRad()
 	{
-		return (super.getYaw() * ((float) Math.PI/180));
+		return (getAngleDeg() * ((float) Math.PI/180));
+	}
+	
+	/**
+	 * Adds the yaw to a sensor snapshot so that it is read once at the start of each
+	 * tick. After this is called, getAngleDeg() and getAngleRad() use the value from
+	 * the snapshot while it is fresh, and read the NavX directly when it is stale
+	 * 
+	 * @param sensors Snapshot to add the yaw to, usually from Looper.getSensors()
+	 */
+	public void registerSensors(SensorSnapshot sensors)
+	{
+		yawChannel = sensors.addChannel("yaw", () -> super.getYaw());
+		this.sensors = sensors;
 	}
 }
\ No newline at end of file